@@ -32,6 +32,9 @@ public interface Answer<T> {
    * Is called by EasyGwtMock to answer an expected call. The answer may be to
    * return a value, or to throw an exception. Be careful when using the methods
    * arguments - using them is not refactoring-safe.
+   * <p>
+   * {@code args} is the argument array of the call itself and is not copied for the
+   * answer, so it must not be modified.
    * 
    * @return the value to be returned
    * @throws Throwable
@@ -23,6 +23,10 @@ import java.util.List;
 /**
  * Will contain what was captured by the {@code capture()} matcher.
  * 
+ * Values may be captured from several threads at once, see
+ * {@link com.google.gwt.testing.easygwtmock.client.Concurrent}. The list returned by
+ * {@link #getValues()} should not be read before those threads are done.
+ * 
  * @param <T> Type of the captured element
  * 
  * @author Michael Goderbauer
@@ -45,35 +49,35 @@ public class Capture<T> {
   /**
    * Will reset capture to a "nothing captured yet" state
    */
-  public void reset() {
+  public synchronized void reset() {
     this.values.clear();
   }
   
   /**
    * @return true if something was captured
    */
-  public boolean hasCaptured() {
+  public synchronized boolean hasCaptured() {
     return !this.values.isEmpty();
   }
   
   /**
    * @return all captured values.
    */
-  public List<T> getValues() {
+  public synchronized List<T> getValues() {
     return this.values;
   }
   
   /**
    * @return the first captured value.
    */
-  public T getFirstValue() {
+  public synchronized T getFirstValue() {
     return this.values.get(0);
   }
   
   /**
    * @return the last captured value.
    */
-  public T getLastValue() {
+  public synchronized T getLastValue() {
       return this.values.get(this.values.size() - 1);
   }
   
@@ -83,12 +87,12 @@ public class Capture<T> {
    * Used internally by EasyGwtMock to capture a value.
    */
   @SuppressWarnings("unchecked")
-  public void captureValue(Object value) {
+  public synchronized void captureValue(Object value) {
     this.values.add((T) value);
   }
   
   @Override
-  public String toString() {
+  public synchronized String toString() {
     if (this.values.isEmpty()) {
       return "<nothing>";
     }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Allows the mocks of a control annotated with Concurrent to be called from several threads
+ * at once during replay, e.g. in JVM tests of code using thread pools. Every call is matched
+ * exactly once: expected calls are never called more often than their range allows, even if
+ * several threads make the same call at the same time.
+ * 
+ * Expectations still have to be recorded, and the control switched to replay, verified or
+ * reset, from one thread.
+ * 
+ * Can be used to annotate the extended MocksControl interface.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Concurrent {
+}
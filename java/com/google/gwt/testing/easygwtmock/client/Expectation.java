@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client;
+
+/**
+ * An expectation that matched a call, as seen by an {@link InvocationListener}. Its
+ * {@code toString()} renders the method and the argument matchers, e.g.
+ * {@code load(<any>)}. The expectation is only rendered when {@code toString()} is called.
+ */
+public interface Expectation {
+
+  /**
+   * Returns the mock the expectation was recorded for.
+   */
+  Object getMock();
+
+  /**
+   * Returns the name of the expected method.
+   */
+  String getMethodName();
+}
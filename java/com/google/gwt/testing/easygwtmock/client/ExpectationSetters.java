@@ -56,6 +56,30 @@ public interface ExpectationSetters<T> {
    *            is passed to the onFailure() method
    */
   ExpectationSetters<Object> andCallOnFailure(Throwable caught);
+  
+  /**
+   * Calls the onSuccess() method of a {@link com.google.gwt.user.client.rpc.AsyncCallback}
+   * object, which is provided as argument to the expected invocation, once the virtual clock
+   * of the mocks advanced by {@code delayMillis} after the invocation.
+   * 
+   * @param delayMillis
+   *            the delay on the virtual clock, see {@link MocksControl#advanceClock(int)}
+   * @param result
+   *            is passed to the onSuccess() method
+   */
+  ExpectationSetters<Object> andCallOnSuccessAfter(int delayMillis, Object result);
+  
+  /**
+   * Calls the onFailure() method of a {@link com.google.gwt.user.client.rpc.AsyncCallback}
+   * object, which is provided as argument to the expected invocation, once the virtual clock
+   * of the mocks advanced by {@code delayMillis} after the invocation.
+   * 
+   * @param delayMillis
+   *            the delay on the virtual clock, see {@link MocksControl#advanceClock(int)}
+   * @param caught
+   *            is passed to the onFailure() method
+   */
+  ExpectationSetters<Object> andCallOnFailureAfter(int delayMillis, Throwable caught);
 
   /**
    * Sets an object that will be used to calculate the answer for the expected
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import java.util.List;
+
+/**
+ * A call to a mock, as seen by an {@link InvocationListener}. Its {@code toString()}
+ * renders the method and the arguments, e.g. {@code load(1)}.
+ */
+public interface Invocation {
+
+  /**
+   * Returns the called mock.
+   */
+  Object getMock();
+
+  /**
+   * Returns the name of the called method.
+   */
+  String getMethodName();
+
+  /**
+   * Returns the arguments of the call. The list must not be modified.
+   */
+  List<Object> getArguments();
+}
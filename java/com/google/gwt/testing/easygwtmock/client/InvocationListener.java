@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+/**
+ * Observes the calls to the mocks of a control during replay, as well as verifying and
+ * resetting the control. Use it to plug profiling, tracing or coverage tools into the mocks.
+ *
+ * <p>Listeners are called synchronously in the thread that called the mock, verified or
+ * reset the control, in the order they were added. If the mocks are called from several
+ * threads, listeners have to be thread-safe.
+ *
+ * @see MocksControl#addInvocationListener(InvocationListener)
+ */
+public interface InvocationListener {
+
+  /**
+   * Called for every call to a mock during replay, before it is matched against the
+   * expectations.
+   */
+  void beforeInvoke(Invocation invocation);
+
+  /**
+   * Called after a call matched an expectation, before the answer of the expectation runs.
+   *
+   * @param expectation the matched expectation, which exposes its mock and method name and
+   *     renders its argument matchers, e.g. {@code load(<any>)}, only when its
+   *     {@code toString()} is called, or null if a nice mock answers with its default value
+   */
+  void afterMatch(Invocation invocation, Expectation expectation);
+
+  /**
+   * Called when a call did not match any expectation, before the assertion error is thrown.
+   */
+  void unexpectedCall(Invocation invocation);
+
+  /**
+   * Called after the control was verified.
+   *
+   * @param failure the assertion error thrown by verify, or null if verification passed
+   */
+  void afterVerify(AssertionError failure);
+
+  /**
+   * Called after the control was reset.
+   */
+  void afterReset();
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+/**
+ * Simulated latency of a mocked asynchronous service. Every time a mock with this profile
+ * answers with {@link ExpectationSetters#andCallOnSuccess(Object)},
+ * {@link ExpectationSetters#andCallOnFailure(Throwable)} or their deferred variants, the
+ * callback is deferred by the next delay on the virtual clock of the mocks.
+ *
+ * @see MocksControl#setLatency(Object, LatencyProfile)
+ * @see LatencyProfiles
+ */
+public interface LatencyProfile {
+
+  /**
+   * Returns the delay in milliseconds of the next callback, must not be negative.
+   */
+  int nextDelayMillis();
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates common {@link LatencyProfile}s. Random profiles take a seed, so every run of a
+ * test sees the same delays.
+ */
+public class LatencyProfiles {
+
+  private LatencyProfiles() {
+  }
+
+  /**
+   * Returns a profile that always delays by {@code millis}.
+   */
+  public static LatencyProfile fixed(final int millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis has to be non-negative");
+    }
+    return new LatencyProfile() {
+      @Override
+      public int nextDelayMillis() {
+        return millis;
+      }
+    };
+  }
+
+  /**
+   * Returns a profile whose delays are uniformly distributed between {@code minMillis}
+   * and {@code maxMillis}, both inclusive.
+   */
+  public static LatencyProfile uniform(final int minMillis, int maxMillis, long seed) {
+    if (minMillis < 0) {
+      throw new IllegalArgumentException("minMillis has to be non-negative");
+    }
+    if (minMillis > maxMillis) {
+      throw new IllegalArgumentException("maxMillis has to be greater than minMillis");
+    }
+    final int range = maxMillis - minMillis + 1;
+    final Random random = new Random(seed);
+    return new LatencyProfile() {
+      @Override
+      public int nextDelayMillis() {
+        return minMillis + random.nextInt(range);
+      }
+    };
+  }
+
+  /**
+   * Returns a profile whose delays follow a histogram: {@code millis[i]} is picked with a
+   * probability proportional to {@code counts[i]}.
+   */
+  public static LatencyProfile histogram(int[] millis, int[] counts, long seed) {
+    if (millis.length != counts.length) {
+      throw new IllegalArgumentException("millis and counts have to be of the same length");
+    }
+    final int[] delays = new int[millis.length];
+    // cumulativeCounts[i] is the sum of counts[0..i]
+    final int[] cumulativeCounts = new int[counts.length];
+    int total = 0;
+    for (int i = 0; i < millis.length; i++) {
+      if (millis[i] < 0) {
+        throw new IllegalArgumentException("millis has to be non-negative");
+      }
+      if (counts[i] < 0) {
+        throw new IllegalArgumentException("counts have to be non-negative");
+      }
+      total += counts[i];
+      delays[i] = millis[i];
+      cumulativeCounts[i] = total;
+    }
+    if (total <= 0) {
+      throw new IllegalArgumentException("histogram has to contain at least one count");
+    }
+    final int totalCount = total;
+    final Random random = new Random(seed);
+    return new LatencyProfile() {
+      @Override
+      public int nextDelayMillis() {
+        int sample = random.nextInt(totalCount);
+        int i = 0;
+        while (cumulativeCounts[i] <= sample) {
+          i++;
+        }
+        return delays[i];
+      }
+    };
+  }
+
+  /**
+   * Returns a profile whose delays follow the histogram in {@code text}, e.g. the contents
+   * of a histogram file. Each line holds a delay in milliseconds and its count separated by
+   * whitespace, a comma or a tab. Empty lines and lines starting with '#' are ignored.
+   */
+  public static LatencyProfile histogram(String text, long seed) {
+    List<Integer> millis = new ArrayList<Integer>();
+    List<Integer> counts = new ArrayList<Integer>();
+    String[] lines = text.split("\n");
+    for (int i = 0; i < lines.length; i++) {
+      String line = lines[i].trim();
+      if (line.length() == 0 || line.startsWith("#")) {
+        continue;
+      }
+      String[] columns = line.split("[\\s,]+");
+      if (columns.length != 2) {
+        throw new IllegalArgumentException(
+            "Line " + (i + 1) + " of histogram is not '<millis> <count>': " + line);
+      }
+      try {
+        millis.add(Integer.parseInt(columns[0]));
+        counts.add(Integer.parseInt(columns[1]));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "Line " + (i + 1) + " of histogram is not '<millis> <count>': " + line);
+      }
+    }
+    return histogram(toArray(millis), toArray(counts), seed);
+  }
+
+  private static int[] toArray(List<Integer> values) {
+    int[] result = new int[values.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = values.get(i);
+    }
+    return result;
+  }
+}
@@ -60,10 +60,46 @@ public interface MocksControl {
   public void verify();
   
   /**
-   * Resets all mocks, deletes all expectations.
+   * Resets all mocks, deletes all expectations. Everything else configured on the control
+   * is turned off as well: nice mocks, latencies, call budgets, repeated call detection,
+   * the trace, statistics and payload measuring. Pending callbacks are dropped and the
+   * virtual clock starts at 0 again. Only the invocation listeners are kept.
    */
   public void reset();
   
+  /**
+   * Adds a listener that is notified of every call to the mocks during replay and of
+   * verifying and resetting the control. Listeners are kept on {@link #reset()}. Add them
+   * before {@link #replay()} if the mocks are called from several threads.
+   */
+  public void addInvocationListener(InvocationListener listener);
+  
+  /**
+   * Removes a listener added by {@link #addInvocationListener(InvocationListener)}.
+   */
+  public void removeInvocationListener(InvocationListener listener);
+  
+  /**
+   * Advances the virtual clock of the mocks by {@code millis}, calling the callbacks
+   * of all deferred answers that become due in the order of their due time.
+   * 
+   * @see ExpectationSetters#andCallOnSuccessAfter(int, Object)
+   * @see ExpectationSetters#andCallOnFailureAfter(int, Throwable)
+   */
+  public void advanceClock(int millis);
+  
+  /**
+   * Calls the callbacks of all deferred answers in the order of their due time, including
+   * the ones scheduled by these callbacks.
+   */
+  public void flushCallbacks();
+  
+  /**
+   * Returns the time of the virtual clock of the mocks in milliseconds, i.e. the simulated
+   * time that passed since the mocks were created or reset.
+   */
+  public int getSimulatedTimeMillis();
+  
   /**
    * Returns the expectation setter for the last expected invocation.
    * 
@@ -105,6 +141,117 @@ public interface MocksControl {
    */
   public <T> T setToNotNice(T mock);
   
+  /**
+   * Sets a budget of at most {@code maxCalls} calls to all methods of the mock.
+   * {@link #verify()} fails if the mock was called more often, no matter how loose
+   * the recorded expectations are. Calls answered with default values by nice mocks
+   * count as well. The budget is removed by {@link #reset()}.
+   * 
+   * @return the same mock you passed into the method
+   */
+  public <T> T setCallBudget(T mock, int maxCalls);
+  
+  /**
+   * Sets a budget of at most {@code maxCalls} calls to all mocks of this control together.
+   * The budget is removed by {@link #reset()}.
+   * 
+   * @see #setCallBudget(Object, int)
+   */
+  public void setTotalCallBudget(int maxCalls);
+  
+  /**
+   * Starts counting identical calls, i.e. calls to the same method of the same mock with
+   * equal arguments, during replay. Such calls often point to N+1 requests or a missing
+   * cache in the code under test. {@link #verify()} fails if a call is made more than
+   * {@code maxIdenticalCalls} times. {@link #reset()} stops counting.
+   * 
+   * @see #getRepeatedCallsReport()
+   */
+  public void detectRepeatedCalls(int maxIdenticalCalls);
+  
+  /**
+   * Returns a report of all identical calls made more than once since
+   * {@link #detectRepeatedCalls(int)} was called, or an empty string if there are none.
+   */
+  public String getRepeatedCallsReport();
+  
+  /**
+   * Starts recording a trace of all calls during replay: when each call was made, how long
+   * its answer took, the matched expectation and the kind of answer, and for deferred
+   * callbacks the span until they are due on the virtual clock. {@link #reset()} stops
+   * recording and drops the trace.
+   * 
+   * @see #getTraceJson()
+   */
+  public void recordTrace();
+  
+  /**
+   * Returns the trace recorded since {@link #recordTrace()} was called in the Trace Event
+   * Format, which can be opened in Chrome's {@code about:tracing} or the Perfetto UI.
+   * In JVM tests, {@link com.google.gwt.testing.easygwtmock.jvm.JvmMocks#writeTrace} writes
+   * it to a file.
+   */
+  public String getTraceJson();
+  
+  /**
+   * Starts collecting statistics of all calls during replay: per mock and method the calls
+   * that matched an expectation, unexpected calls, default answers of nice mocks and the
+   * time spent in answers. {@link #reset()} stops collecting and drops the statistics.
+   * 
+   * @see #stats()
+   */
+  public void recordStats();
+  
+  /**
+   * Returns the statistics collected since {@link #recordStats()} was called, including
+   * the expectations that were never called. Use {@link MocksStats#toCsv()} or
+   * {@link MocksStats#toJson()} to dump them.
+   */
+  public MocksStats stats();
+  
+  /**
+   * Measures the payloads of all calls to a mock of an asynchronous service during replay:
+   * the arguments of each call without its AsyncCallback as request, and the result passed
+   * to onSuccess() of the callback as response, e.g. by {@code andCallOnSuccess()} or
+   * {@code andCallOnSuccessAfter()}. Responses are measured when the callback is called,
+   * failures are not measured. {@link #reset()} stops measuring and drops the sizes.
+   * 
+   * @see #payloadSizes()
+   * @see PayloadSizers#gwtRpc(com.google.gwt.user.client.rpc.SerializationStreamFactory)
+   * 
+   * @return the same mock you passed into the method
+   */
+  public <T> T measurePayloads(T mock, PayloadSizer sizer);
+  
+  /**
+   * Returns the payload sizes measured since {@link #measurePayloads(Object, PayloadSizer)}
+   * was called: per method and in total, as well as the largest request and response.
+   */
+  public PayloadSizes payloadSizes();
+  
+  /**
+   * Simulates the latency of an asynchronous service: the callbacks of all answers
+   * of the mock that call onSuccess() or onFailure() are deferred by the next delay
+   * of {@code profile} on the virtual clock of the mocks. The latency is removed by
+   * {@link #reset()}.
+   * 
+   * @see #advanceClock(int)
+   * @see LatencyProfiles
+   * 
+   * @return the same mock you passed into the method
+   */
+  public <T> T setLatency(T mock, LatencyProfile profile);
+  
+  /**
+   * Simulates the latency of a single method of an asynchronous service. Overrides the
+   * latency set for the whole mock.
+   * 
+   * @see #setLatency(Object, LatencyProfile)
+   * 
+   * @return the same mock you passed into the method
+   */
+  public <T> T setLatency(T mock, String methodName, LatencyProfile profile);
+  
   /**
    * Expects any boolean argument.
    */
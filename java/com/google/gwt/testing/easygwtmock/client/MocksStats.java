@@ -0,0 +1,221 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.testing.easygwtmock.client.internal.Utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only snapshot of how often the methods of the mocks were called during replay,
+ * returned by {@link MocksControl#stats()}.
+ */
+public class MocksStats {
+
+  private final List<MethodStats> methods;
+  private final List<String> unusedExpectations;
+
+  /**
+   * Called by the control, which collects the statistics.
+   */
+  public MocksStats(List<MethodStats> methods, List<String> unusedExpectations) {
+    this.methods = Collections.unmodifiableList(methods);
+    this.unusedExpectations = Collections.unmodifiableList(unusedExpectations);
+  }
+
+  /**
+   * Returns the statistics of every method that was called or has expectations, in the order
+   * they were first seen.
+   */
+  public List<MethodStats> getMethods() {
+    return this.methods;
+  }
+
+  /**
+   * Returns the statistics of a method of the mock, or null if it was neither called nor
+   * has expectations. For overloaded methods, the first one seen is returned.
+   */
+  public MethodStats getMethod(Object mock, String methodName) {
+    for (MethodStats method : this.methods) {
+      if (method.getMock() == mock && method.getMethodName().equals(methodName)) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of calls to all methods of the mock.
+   */
+  public int getCallCount(Object mock) {
+    int count = 0;
+    for (MethodStats method : this.methods) {
+      if (method.getMock() == mock) {
+        count += method.getCallCount();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of calls to all mocks.
+   */
+  public int getTotalCallCount() {
+    int count = 0;
+    for (MethodStats method : this.methods) {
+      count += method.getCallCount();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the expectations that were never called, e.g. {@code Mock for Service.load(1)}.
+   */
+  public List<String> getUnusedExpectations() {
+    return this.unusedExpectations;
+  }
+
+  /**
+   * Returns the statistics as CSV with a header line and one line per method.
+   */
+  public String toCsv() {
+    StringBuilder csv = new StringBuilder(
+        "mock,method,matched,unexpected,niceDefaults,answerNanos\n");
+    for (MethodStats method : this.methods) {
+      csv.append(toCsvField(String.valueOf(method.getMock()))).append(",")
+          .append(toCsvField(method.getSignature())).append(",")
+          .append(method.getMatchedCount()).append(",")
+          .append(method.getUnexpectedCount()).append(",")
+          .append(method.getNiceDefaultCount()).append(",")
+          .append(method.getAnswerNanos()).append("\n");
+    }
+    return csv.toString();
+  }
+
+  /**
+   * Returns the statistics as JSON object with a {@code methods} and an
+   * {@code unusedExpectations} array.
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\"methods\":[");
+    for (int i = 0; i < this.methods.size(); i++) {
+      MethodStats method = this.methods.get(i);
+      if (i > 0) {
+        json.append(",");
+      }
+      json.append("\n{\"mock\":").append(Utils.toJsonString(String.valueOf(method.getMock())))
+          .append(",\"method\":").append(Utils.toJsonString(method.getSignature()))
+          .append(",\"matched\":").append(method.getMatchedCount())
+          .append(",\"unexpected\":").append(method.getUnexpectedCount())
+          .append(",\"niceDefaults\":").append(method.getNiceDefaultCount())
+          .append(",\"answerNanos\":").append(method.getAnswerNanos()).append("}");
+    }
+    json.append("\n],\"unusedExpectations\":[");
+    for (int i = 0; i < this.unusedExpectations.size(); i++) {
+      if (i > 0) {
+        json.append(",");
+      }
+      json.append("\n").append(Utils.toJsonString(this.unusedExpectations.get(i)));
+    }
+    return json.append("\n]}\n").toString();
+  }
+
+  private static String toCsvField(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  /**
+   * The statistics of one method of a mock.
+   */
+  public static class MethodStats {
+
+    private final Object mock;
+    private final String methodName;
+    private final String signature;
+    private final int matchedCount;
+    private final int unexpectedCount;
+    private final int niceDefaultCount;
+    private final long answerNanos;
+
+    public MethodStats(Object mock, String methodName, String signature, int matchedCount,
+                       int unexpectedCount, int niceDefaultCount, long answerNanos) {
+      this.mock = mock;
+      this.methodName = methodName;
+      this.signature = signature;
+      this.matchedCount = matchedCount;
+      this.unexpectedCount = unexpectedCount;
+      this.niceDefaultCount = niceDefaultCount;
+      this.answerNanos = answerNanos;
+    }
+
+    public Object getMock() {
+      return this.mock;
+    }
+
+    public String getMethodName() {
+      return this.methodName;
+    }
+
+    /**
+     * Returns the name and the parameter types of the method, e.g. {@code load(int)}.
+     */
+    public String getSignature() {
+      return this.signature;
+    }
+
+    /**
+     * Returns the number of calls that matched an expectation.
+     */
+    public int getMatchedCount() {
+      return this.matchedCount;
+    }
+
+    /**
+     * Returns the number of calls that did not match any expectation.
+     */
+    public int getUnexpectedCount() {
+      return this.unexpectedCount;
+    }
+
+    /**
+     * Returns the number of calls a nice mock answered with a default value.
+     */
+    public int getNiceDefaultCount() {
+      return this.niceDefaultCount;
+    }
+
+    /**
+     * Returns the number of all calls.
+     */
+    public int getCallCount() {
+      return this.matchedCount + this.unexpectedCount + this.niceDefaultCount;
+    }
+
+    /**
+     * Returns the time spent in the answers of the calls, in nanoseconds. On the JVM, it is
+     * measured with {@code System.nanoTime()}; compiled to JavaScript, the browser clock
+     * only has millisecond resolution.
+     */
+    public long getAnswerNanos() {
+      return this.answerNanos;
+    }
+  }
+}
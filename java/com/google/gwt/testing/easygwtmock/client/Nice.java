@@ -17,6 +17,8 @@
 package com.google.gwt.testing.easygwtmock.client;
 
 import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 
@@ -30,6 +32,7 @@ import java.lang.annotation.Target;
  * 
  * @author Michael Goderbauer
  */
+@Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE, ElementType.METHOD})
 public @interface Nice { 
   boolean value() default true;
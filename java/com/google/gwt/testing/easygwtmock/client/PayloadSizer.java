@@ -0,0 +1,32 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client;
+
+/**
+ * Computes the size of the serialized payload of a call to a mocked asynchronous service.
+ *
+ * @see MocksControl#measurePayloads(Object, PayloadSizer)
+ * @see PayloadSizers
+ */
+public interface PayloadSizer {
+
+  /**
+   * Returns the size in bytes of {@code values} serialized into one payload: the arguments
+   * of a request without its AsyncCallback, or the single result or throwable of a response.
+   * A RuntimeException thrown here fails the test with an AssertionError.
+   */
+  int sizeOf(Object[] values);
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.client.rpc.SerializationStreamFactory;
+import com.google.gwt.user.client.rpc.SerializationStreamWriter;
+
+/**
+ * Creates common {@link PayloadSizer}s.
+ */
+public class PayloadSizers {
+
+  private PayloadSizers() {
+  }
+
+  /**
+   * Returns a sizer that serializes the values with the GWT-RPC client serialization stream
+   * of {@code factory} and counts the UTF-8 bytes of the stream. The proxy returned by
+   * {@code GWT.create()} for a RemoteService implements SerializationStreamFactory, so
+   * only types that may be sent to that service can be measured:
+   * <pre>
+   * PayloadSizer sizer = PayloadSizers.gwtRpc(
+   *     (SerializationStreamFactory) GWT.create(GreetingService.class));
+   * </pre>
+   *
+   * <p>Each payload is written to a new stream, so it includes the header and string table
+   * of the stream. Primitive arguments are written as their boxed objects, so they count a
+   * few bytes more than in a real request. Since GWT-RPC serialization needs generated
+   * serializers, this sizer only works in GWT tests.
+   */
+  public static PayloadSizer gwtRpc(final SerializationStreamFactory factory) {
+    return new PayloadSizer() {
+      @Override
+      public int sizeOf(Object[] values) {
+        SerializationStreamWriter writer = factory.createStreamWriter();
+        try {
+          for (Object value : values) {
+            writer.writeObject(value);
+          }
+        } catch (SerializationException e) {
+          throw new IllegalArgumentException("Cannot serialize payload with GWT-RPC", e);
+        }
+        return utf8Length(writer.toString());
+      }
+    };
+  }
+
+  /**
+   * Returns the number of bytes of {@code text} encoded as UTF-8.
+   */
+  static int utf8Length(String text) {
+    int length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (c >= 0xD800 && c <= 0xDFFF) {
+        // a surrogate pair is encoded as 4 bytes
+        length += 2;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only snapshot of the payload sizes of the calls to measured mocks, returned by
+ * {@link MocksControl#payloadSizes()}. All sizes are in bytes.
+ */
+public class PayloadSizes {
+
+  private final List<MethodSizes> methods;
+
+  /**
+   * Called by the control, which measures the payloads.
+   */
+  public PayloadSizes(List<MethodSizes> methods) {
+    this.methods = Collections.unmodifiableList(methods);
+  }
+
+  /**
+   * Returns the payload sizes of every called method, in the order they were first called.
+   */
+  public List<MethodSizes> getMethods() {
+    return this.methods;
+  }
+
+  /**
+   * Returns the payload sizes of a method of the mock, or null if it was not called.
+   * For overloaded methods, the sizes of all overloads are returned together.
+   */
+  public MethodSizes getMethod(Object mock, String methodName) {
+    MethodSizes result = null;
+    for (MethodSizes method : this.methods) {
+      if (method.getMock() == mock && method.getMethodName().equals(methodName)) {
+        result = result == null ? method : result.plus(method);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the size of all requests.
+   */
+  public long getTotalRequestBytes() {
+    long bytes = 0;
+    for (MethodSizes method : this.methods) {
+      bytes += method.getTotalRequestBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the size of all responses.
+   */
+  public long getTotalResponseBytes() {
+    long bytes = 0;
+    for (MethodSizes method : this.methods) {
+      bytes += method.getTotalResponseBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the size of the largest request.
+   */
+  public int getMaxRequestBytes() {
+    int bytes = 0;
+    for (MethodSizes method : this.methods) {
+      bytes = Math.max(bytes, method.getMaxRequestBytes());
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the size of the largest response.
+   */
+  public int getMaxResponseBytes() {
+    int bytes = 0;
+    for (MethodSizes method : this.methods) {
+      bytes = Math.max(bytes, method.getMaxResponseBytes());
+    }
+    return bytes;
+  }
+
+  /**
+   * The payload sizes of the calls to one method of a mock.
+   */
+  public static class MethodSizes {
+
+    private final Object mock;
+    private final String methodName;
+    private final int requestCount;
+    private final long totalRequestBytes;
+    private final int maxRequestBytes;
+    private final int responseCount;
+    private final long totalResponseBytes;
+    private final int maxResponseBytes;
+
+    public MethodSizes(Object mock, String methodName, int requestCount, long totalRequestBytes,
+                       int maxRequestBytes, int responseCount, long totalResponseBytes,
+                       int maxResponseBytes) {
+      this.mock = mock;
+      this.methodName = methodName;
+      this.requestCount = requestCount;
+      this.totalRequestBytes = totalRequestBytes;
+      this.maxRequestBytes = maxRequestBytes;
+      this.responseCount = responseCount;
+      this.totalResponseBytes = totalResponseBytes;
+      this.maxResponseBytes = maxResponseBytes;
+    }
+
+    private MethodSizes plus(MethodSizes other) {
+      return new MethodSizes(this.mock, this.methodName, this.requestCount + other.requestCount,
+          this.totalRequestBytes + other.totalRequestBytes,
+          Math.max(this.maxRequestBytes, other.maxRequestBytes),
+          this.responseCount + other.responseCount,
+          this.totalResponseBytes + other.totalResponseBytes,
+          Math.max(this.maxResponseBytes, other.maxResponseBytes));
+    }
+
+    public Object getMock() {
+      return this.mock;
+    }
+
+    public String getMethodName() {
+      return this.methodName;
+    }
+
+    /**
+     * Returns the number of calls.
+     */
+    public int getRequestCount() {
+      return this.requestCount;
+    }
+
+    public long getTotalRequestBytes() {
+      return this.totalRequestBytes;
+    }
+
+    public int getMaxRequestBytes() {
+      return this.maxRequestBytes;
+    }
+
+    /**
+     * Returns the number of results passed to onSuccess() of the callbacks of the calls.
+     * Deferred callbacks are counted when they are called.
+     */
+    public int getResponseCount() {
+      return this.responseCount;
+    }
+
+    public long getTotalResponseBytes() {
+      return this.totalResponseBytes;
+    }
+
+    public int getMaxResponseBytes() {
+      return this.maxResponseBytes;
+    }
+  }
+}
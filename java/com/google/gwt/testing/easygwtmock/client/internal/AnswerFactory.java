@@ -25,48 +25,180 @@ import com.google.gwt.user.client.rpc.AsyncCallback;
  * @author Michael Goderbauer
  */
 public class AnswerFactory {
+  
+  private static final Answer<Object> NULL = new ValueAnswer(null);
+  private static final Answer<Object> FALSE = new ValueAnswer(false);
+  private static final Answer<Object> TRUE = new ValueAnswer(true);
+  
+  // the default return values of all primitive types except boolean
+  private static final ValueAnswer[] ZEROS = {
+      new ValueAnswer(0), new ValueAnswer((long) 0), new ValueAnswer((double) 0),
+      new ValueAnswer((float) 0), new ValueAnswer((short) 0), new ValueAnswer((byte) 0),
+      new ValueAnswer((char) 0)};
 
-  static Answer<Object> forValue(final Object value) {  
-    return new Answer<Object>() {
-      @Override
-      public Object answer(Object[] args) throws Throwable {
-        return value;
-      }};
+  /**
+   * Returns an answer that returns {@code value}. Answers for null, booleans and zeros,
+   * which includes the default return values of all methods, are shared constants.
+   */
+  static Answer<Object> forValue(Object value) {
+    if (value == null) {
+      return NULL;
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value ? TRUE : FALSE;
+    }
+    if (value instanceof Number || value instanceof Character) {
+      for (ValueAnswer zero : ZEROS) {
+        if (zero.value.equals(value)) {
+          return zero;
+        }
+      }
+    }
+    return new ValueAnswer(value);
   }
   
-  static Answer<Object> forThrowable(final Throwable throwable) {
-    return new Answer<Object>() {
-      @Override
-      public Object answer(Object[] args) throws Throwable {
-        throw throwable;
-      }};
+  static Answer<Object> forThrowable(Throwable throwable) {
+    return new ThrowableAnswer(throwable);
   }
   
-  static Answer<Object> forOnSuccess(final Object result) {
-    return new Answer<Object>() {
-      @SuppressWarnings("unchecked")
-      @Override
-      public Object answer(Object[] args) throws Throwable {
-        if (args.length > 0 && args[args.length - 1] instanceof AsyncCallback) {
-          ((AsyncCallback<Object>) args[args.length - 1]).onSuccess(result);
-          return null;
-        }
-        throw new IllegalArgumentException(
-            "No com.google.gwt.user.client.rpc.AsyncCallback object as last argument provided");
-      }};
+  static Answer<Object> forOnSuccess(Object result) {
+    return new CallbackAnswer(null, 0, true, result);
   }
   
-  static Answer<Object> forOnFailure(final Throwable caught) {
-    return new Answer<Object>() {
-      @SuppressWarnings("unchecked")
-      @Override
-      public Object answer(Object[] args) throws Throwable {
-        if (args.length > 0 && args[args.length - 1] instanceof AsyncCallback) {
-          ((AsyncCallback<Object>) args[args.length - 1]).onFailure(caught);
-          return null;
-        }
-        throw new IllegalArgumentException(
-            "No com.google.gwt.user.client.rpc.AsyncCallback object as last argument provided");
-      }};
+  static Answer<Object> forOnFailure(Throwable caught) {
+    return new CallbackAnswer(null, 0, false, caught);
+  }
+  
+  /**
+   * Returns an answer that calls onSuccess() when the clock reached {@code delayMillis}
+   * after the call.
+   */
+  static Answer<Object> forOnSuccessAfter(VirtualClock clock, int delayMillis, Object result) {
+    return new CallbackAnswer(clock, delayMillis, true, result);
+  }
+  
+  /**
+   * Returns an answer that calls onFailure() when the clock reached {@code delayMillis}
+   * after the call.
+   */
+  static Answer<Object> forOnFailureAfter(VirtualClock clock, int delayMillis,
+                                          Throwable caught) {
+    return new CallbackAnswer(clock, delayMillis, false, caught);
+  }
+  
+  /**
+   * Returns what kind of answer {@code answer} is, e.g. for traces.
+   */
+  static String getKind(Answer<? extends Object> answer) {
+    if (answer instanceof ValueAnswer) {
+      return "return";
+    }
+    if (answer instanceof ThrowableAnswer) {
+      return "throw";
+    }
+    if (answer instanceof CallbackAnswer) {
+      return ((CallbackAnswer) answer).isDeferred() ? "deferred callback" : "callback";
+    }
+    return "answer";
+  }
+  
+  /**
+   * Returns the AsyncCallback passed as last argument.
+   */
+  @SuppressWarnings("unchecked")
+  private static AsyncCallback<Object> getCallback(Object[] args) {
+    if (args.length > 0 && args[args.length - 1] instanceof AsyncCallback) {
+      return (AsyncCallback<Object>) args[args.length - 1];
+    }
+    throw new IllegalArgumentException(
+        "No com.google.gwt.user.client.rpc.AsyncCallback object as last argument provided");
+  }
+  
+  /**
+   * Calls onSuccess() or onFailure() of the AsyncCallback passed as last argument, either
+   * right away or when its clock reached the delay after the call.
+   */
+  static class CallbackAnswer implements Answer<Object> {
+    
+    // null if the callback is called right away
+    private final VirtualClock clock;
+    private final int delayMillis;
+    private final boolean success;
+    // the result passed to onSuccess() or the throwable passed to onFailure()
+    private final Object value;
+    
+    CallbackAnswer(VirtualClock clock, int delayMillis, boolean success, Object value) {
+      this.clock = clock;
+      this.delayMillis = delayMillis;
+      this.success = success;
+      this.value = value;
+    }
+    
+    boolean isDeferred() {
+      return this.clock != null;
+    }
+    
+    int getDelayMillis() {
+      return this.delayMillis;
+    }
+    
+    /**
+     * Returns an answer that calls the callback {@code extraMillis} later on {@code clock}.
+     */
+    CallbackAnswer delayedBy(VirtualClock clock, int extraMillis) {
+      return new CallbackAnswer(clock, this.delayMillis + extraMillis, this.success, this.value);
+    }
+    
+    @Override
+    public Object answer(Object[] args) throws Throwable {
+      final AsyncCallback<Object> callback = getCallback(args);
+      if (this.clock == null) {
+        call(callback);
+      } else {
+        this.clock.schedule(this.delayMillis, new Runnable() {
+          @Override
+          public void run() {
+            call(callback);
+          }
+        });
+      }
+      return null;
+    }
+    
+    private void call(AsyncCallback<Object> callback) {
+      if (this.success) {
+        callback.onSuccess(this.value);
+      } else {
+        callback.onFailure((Throwable) this.value);
+      }
+    }
+  }
+  
+  private static class ThrowableAnswer implements Answer<Object> {
+    
+    private final Throwable throwable;
+    
+    ThrowableAnswer(Throwable throwable) {
+      this.throwable = throwable;
+    }
+    
+    @Override
+    public Object answer(Object[] args) throws Throwable {
+      throw this.throwable;
+    }
+  }
+  
+  private static class ValueAnswer implements Answer<Object> {
+    
+    private final Object value;
+    
+    ValueAnswer(Object value) {
+      this.value = value;
+    }
+    
+    @Override
+    public Object answer(Object[] args) throws Throwable {
+      return this.value;
+    }
   }
 }
@@ -25,13 +25,49 @@ package com.google.gwt.testing.easygwtmock.client.internal;
  */
 public class AssertionErrorWrapper extends Exception {
 
-  private final AssertionError exception;
+  private AssertionError exception;
+  private final ExpectationsSnapshot snapshot;
   
   AssertionErrorWrapper(AssertionError exception) {
     this.exception = exception;
+    this.snapshot = null;
+  }
+  
+  /**
+   * Creates a wrapper for an AssertionError whose message is rendered from the snapshot
+   * when it is first requested. Tests that expect the error often never read it.
+   */
+  AssertionErrorWrapper(ExpectationsSnapshot snapshot) {
+    this.snapshot = snapshot;
   }
   
   public AssertionError getAssertionError() {
+    if (this.exception == null) {
+      this.exception = new LazyMessageAssertionError(this.snapshot);
+    }
     return this.exception;
   }
+  
+  /**
+   * An AssertionError that renders its message on demand.
+   */
+  private static class LazyMessageAssertionError extends AssertionError {
+    
+    private ExpectationsSnapshot snapshot;
+    private String message;
+    
+    LazyMessageAssertionError(ExpectationsSnapshot snapshot) {
+      this.snapshot = snapshot;
+    }
+    
+    @Override
+    public String getMessage() {
+      if (this.snapshot != null) {
+        // the snapshot is no longer needed once the message is rendered
+        this.message = this.snapshot.render();
+        this.snapshot = null;
+      }
+      return this.message;
+    }
+  }
 }
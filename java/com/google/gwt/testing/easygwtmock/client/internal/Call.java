@@ -16,46 +16,199 @@
 
 package com.google.gwt.testing.easygwtmock.client.internal;
 
-import java.util.ArrayList;
+import com.google.gwt.testing.easygwtmock.client.ArgumentMatcher;
+import com.google.gwt.testing.easygwtmock.client.Invocation;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Equals;
+
 import java.util.Arrays;
 import java.util.List;
 
 /**
  * An object that represents a method call.
  * 
+ * <p>Calls created with {@link #create(Object, Method, int)} keep primitive arguments unboxed
+ * until their boxed value is needed. Equals matchers compare them without boxing.
+ * 
  * @author Michael Goderbauer
  */
-public class Call {
+public class Call implements Invocation {
 
   private final Object mock;
   private final Method method;
-  private final List<Object> arguments;
+  private Object[] arguments; // null for unboxed primitive arguments
+  
+  private double[] primitiveArguments; // unboxed primitive arguments except long
+  private long[] longArguments; // unboxed long arguments
 
+  /**
+   * Creates a call that takes ownership of the provided argument array, it is not copied.
+   */
   public Call(Object mock, Method method, Object... arguments) {
     this.mock = mock;
     this.method = method;
-    this.arguments = new ArrayList<Object>(Arrays.asList(arguments));
+    this.arguments = arguments;
+  }
+  
+  private Call(Object mock, Method method, int argumentCount) {
+    this(mock, method, new Object[argumentCount]);
+  }
+  
+  /**
+   * Creates a call whose arguments are provided one by one with {@code setArgument()}.
+   */
+  public static Call create(Object mock, Method method, int argumentCount) {
+    return new Call(mock, method, argumentCount);
+  }
+  
+  public void setArgument(int index, Object value) {
+    this.arguments[index] = value;
+  }
+  
+  public void setArgument(int index, byte value) {
+    setPrimitiveArgument(index, value);
+  }
+  
+  public void setArgument(int index, short value) {
+    setPrimitiveArgument(index, value);
+  }
+  
+  public void setArgument(int index, int value) {
+    setPrimitiveArgument(index, value);
   }
   
+  public void setArgument(int index, long value) {
+    if (this.longArguments == null) {
+      this.longArguments = new long[this.arguments.length];
+    }
+    this.longArguments[index] = value;
+  }
+  
+  public void setArgument(int index, float value) {
+    setPrimitiveArgument(index, value);
+  }
+  
+  public void setArgument(int index, double value) {
+    setPrimitiveArgument(index, value);
+  }
+  
+  public void setArgument(int index, boolean value) {
+    setPrimitiveArgument(index, value ? 1 : 0);
+  }
+  
+  public void setArgument(int index, char value) {
+    setPrimitiveArgument(index, value);
+  }
+  
+  private void setPrimitiveArgument(int index, double value) {
+    if (this.primitiveArguments == null) {
+      this.primitiveArguments = new double[this.arguments.length];
+    }
+    this.primitiveArguments[index] = value;
+  }
+  
+  /**
+   * Returns a list view of the boxed arguments, backed by the argument array.
+   */
+  @Override
   public List<Object> getArguments() {
+    return Arrays.asList(getArgumentArray());
+  }
+  
+  /**
+   * Returns the boxed arguments. The array is not copied and is handed to
+   * {@link com.google.gwt.testing.easygwtmock.client.Answer#answer(Object[])} as is.
+   */
+  public Object[] getArgumentArray() {
+    if (this.primitiveArguments != null || this.longArguments != null) {
+      for (int i = 0; i < this.arguments.length; i++) {
+        getArgument(i);
+      }
+    }
     return this.arguments;
   }
   
+  int getArgumentCount() {
+    return this.arguments.length;
+  }
+  
+  /**
+   * Returns the argument at the given index, boxing it if necessary.
+   */
+  Object getArgument(int index) {
+    Object argument = this.arguments[index];
+    if (argument == null && isUnboxed(index)) {
+      argument = box(index);
+      this.arguments[index] = argument;
+    }
+    return argument;
+  }
+  
+  /**
+   * Determines if the argument at the given index is accepted by the matcher.
+   * Equals matchers compare unboxed primitive arguments without boxing them.
+   */
+  boolean matchesArgument(int index, ArgumentMatcher matcher) {
+    if (matcher.getClass() == Equals.class && this.arguments[index] == null
+        && isUnboxed(index)) {
+      Equals equals = (Equals) matcher;
+      Class<?> type = this.method.getArgumentTypes()[index];
+      if (type == long.class) {
+        return equals.matchesLong(this.longArguments[index]);
+      }
+      return equals.matchesPrimitive(type, this.primitiveArguments[index]);
+    }
+    return matcher.matches(getArgument(index));
+  }
+  
+  /**
+   * Checks if the (not yet boxed) argument at the given index has been stored unboxed.
+   * Only arguments of primitive parameters are stored unboxed.
+   */
+  private boolean isUnboxed(int index) {
+    if (this.primitiveArguments == null && this.longArguments == null) {
+      return false;
+    }
+    Class<?>[] argumentTypes = this.method.getArgumentTypes();
+    return index < argumentTypes.length && argumentTypes[index].isPrimitive();
+  }
+  
+  private Object box(int index) {
+    Class<?> type = this.method.getArgumentTypes()[index];
+    if (type == long.class) {
+      return this.longArguments[index];
+    }
+    double value = this.primitiveArguments[index];
+    if (type == int.class) {
+      return (int) value;
+    } else if (type == double.class) {
+      return value;
+    } else if (type == boolean.class) {
+      return value != 0;
+    } else if (type == float.class) {
+      return (float) value;
+    } else if (type == char.class) {
+      return (char) value;
+    } else if (type == short.class) {
+      return (short) value;
+    }
+    return (byte) value;
+  }
+  
   /**
    * Add the varargs argument to the call.
    */
   public void addVarArgument(Object[] arg) {
-    for (Object o : arg) {
-      this.arguments.add(o);
-    }
+    int offset = growArguments(arg.length);
+    System.arraycopy(arg, 0, this.arguments, offset, arg.length);
   }
   
   /**
    * Add the varargs argument to the call.
    */
   public void addVarArgument(byte[] arg) {
-    for (byte o : arg) {
-      this.arguments.add(o);
+    int offset = growArguments(arg.length);
+    for (int i = 0; i < arg.length; i++) {
+      this.arguments[offset + i] = arg[i];
     }
   }
   
@@ -63,8 +216,9 @@ public class Call {
    * Add the varargs argument to the call.
    */
   public void addVarArgument(short[] arg) {
-    for (short o : arg) {
-      this.arguments.add(o);
+    int offset = growArguments(arg.length);
+    for (int i = 0; i < arg.length; i++) {
+      this.arguments[offset + i] = arg[i];
     }
   }
   
@@ -72,8 +226,9 @@ public class Call {
    * Add the varargs argument to the call.
    */
   public void addVarArgument(int[] arg) {
-    for (int o : arg) {
-      this.arguments.add(o);
+    int offset = growArguments(arg.length);
+    for (int i = 0; i < arg.length; i++) {
+      this.arguments[offset + i] = arg[i];
     }
   }
   
@@ -81,8 +236,9 @@ public class Call {
    * Add the varargs argument to the call.
    */
   public void addVarArgument(long[] arg) {
-    for (long o : arg) {
-      this.arguments.add(o);
+    int offset = growArguments(arg.length);
+    for (int i = 0; i < arg.length; i++) {
+      this.arguments[offset + i] = arg[i];
     }
   }
   
@@ -90,8 +246,9 @@ public class Call {
    * Add the varargs argument to the call.
    */
   public void addVarArgument(float[] arg) {
-    for (float o : arg) {
-      this.arguments.add(o);
+    int offset = growArguments(arg.length);
+    for (int i = 0; i < arg.length; i++) {
+      this.arguments[offset + i] = arg[i];
     }
   }
   
@@ -99,8 +256,9 @@ public class Call {
    * Add the varargs argument to the call.
    */
   public void addVarArgument(double[] arg) {
-    for (double o : arg) {
-      this.arguments.add(o);
+    int offset = growArguments(arg.length);
+    for (int i = 0; i < arg.length; i++) {
+      this.arguments[offset + i] = arg[i];
     }
   }
   
@@ -108,8 +266,9 @@ public class Call {
    * Add the varargs argument to the call.
    */
   public void addVarArgument(boolean[] arg) {
-    for (boolean o : arg) {
-      this.arguments.add(o);
+    int offset = growArguments(arg.length);
+    for (int i = 0; i < arg.length; i++) {
+      this.arguments[offset + i] = arg[i];
     }
   }
   
@@ -117,11 +276,23 @@ public class Call {
    * Add the varargs argument to the call.
    */
   public void addVarArgument(char[] arg) {
-    for (char o : arg) {
-      this.arguments.add(o);
+    int offset = growArguments(arg.length);
+    for (int i = 0; i < arg.length; i++) {
+      this.arguments[offset + i] = arg[i];
     }
   }
 
+  /**
+   * Makes room for {@code count} more arguments and returns the index of the first new one.
+   */
+  private int growArguments(int count) {
+    int offset = this.arguments.length;
+    Object[] newArguments = new Object[offset + count];
+    System.arraycopy(this.arguments, 0, newArguments, 0, offset);
+    this.arguments = newArguments;
+    return offset;
+  }
+
   @Override
   public String toString() {
     return this.method.getName() + "(" + argumentsToString() + ")";
@@ -129,11 +300,11 @@ public class Call {
   
   private String argumentsToString() {
     StringBuffer b = new StringBuffer();
-    for (int i = 0; i < this.arguments.size(); i++) {
+    for (int i = 0; i < this.arguments.length; i++) {
       if (i != 0) {
         b.append(", ");
       }
-      Utils.appendArgumentTo(this.arguments.get(i), b);
+      Utils.appendArgumentTo(getArgument(i), b);
     }
     return b.toString();
   }
@@ -142,10 +313,16 @@ public class Call {
     return this.method;
   }
 
-  Object getMock() {
+  @Override
+  public Object getMock() {
     return this.mock;
   }
 
+  @Override
+  public String getMethodName() {
+    return this.method.getName();
+  }
+
   Object getDefaultReturnValue() {
     return this.method.getDefaultReturnValue();
   }
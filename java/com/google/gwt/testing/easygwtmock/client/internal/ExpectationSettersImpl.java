@@ -78,7 +78,7 @@ public class ExpectationSettersImpl implements ExpectationSetters<Object> {
       throw new IllegalStateException("Cannot add 'null' as return value to premitive method");
     }
     
-    return this.andAnswer(AnswerFactory.forValue(value));
+    return this.andAnswer(this.behavior.getValueAnswer(value));
   }
 
   @Override
@@ -123,6 +123,40 @@ public class ExpectationSettersImpl implements ExpectationSetters<Object> {
     }
     return this.andAnswer(AnswerFactory.forOnFailure(caught));
   }
+  
+  @Override
+  public ExpectationSetters<Object> andCallOnSuccessAfter(int delayMillis, Object result) {
+    checkDeferredCallback("andCallOnSuccessAfter()", delayMillis);
+    return this.andAnswer(
+        AnswerFactory.forOnSuccessAfter(this.behavior.getClock(), delayMillis, result));
+  }
+  
+  @Override
+  public ExpectationSetters<Object> andCallOnFailureAfter(int delayMillis, Throwable caught) {
+    checkDeferredCallback("andCallOnFailureAfter()", delayMillis);
+    return this.andAnswer(
+        AnswerFactory.forOnFailureAfter(this.behavior.getClock(), delayMillis, caught));
+  }
+  
+  /**
+   * Checks that a deferred callback answer can be used for the call.
+   */
+  private void checkDeferredCallback(String setterName, int delayMillis) {
+    if (delayMillis < 0) {
+      throw new IllegalArgumentException("delayMillis has to be non-negative");
+    }
+    if (!this.call.getMethod().isReturnValueVoid()) {
+      throw new IllegalStateException(setterName + " is only supported for void methods");
+    }
+    
+    Class<?>[] argumentTypes = call.getMethod().getArgumentTypes();
+    if (argumentTypes.length < 1 || 
+        !Utils.isSubclass(argumentTypes[argumentTypes.length - 1], AsyncCallback.class)) {
+      throw new IllegalStateException(
+        setterName + " can only be used with methods " +
+        "that take an AsyncCallback as last argument");
+    }
+  }
 
   @Override
   public ExpectationSetters<Object> times(int min, int max) {
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import java.util.List;
+
+/**
+ * The state of all expected calls at the time an expectation failed. The call counts and
+ * potential matches are captured right away, the list of expectations for the error message
+ * is only rendered when the message is requested.
+ */
+class ExpectationsSnapshot {
+  
+  /**
+   * At most this many expectations are listed in an error message.
+   */
+  static final int MAX_LISTED_EXPECTATIONS = 500;
+  
+  private final String header;
+  private final Call unexpectedCall;
+  // the expected calls of the behavior, shared since they are only added while recording
+  private final List<ExpectedCall> expectedCalls;
+  private final int[] callCounts;
+  // whether each expected call matches the unexpected call, null if there is none
+  private final boolean[] potentialMatches;
+  
+  /**
+   * @param unexpectedCall call that didn't match any expectation or null, if the failure
+   *            did not happen on a call (e.g. on verify)
+   * @param expectedCalls all expected calls, no more calls are added to them
+   */
+  ExpectationsSnapshot(String header, Call unexpectedCall, List<ExpectedCall> expectedCalls) {
+    this.header = header;
+    this.unexpectedCall = unexpectedCall;
+    this.expectedCalls = expectedCalls;
+    this.callCounts = new int[expectedCalls.size()];
+    this.potentialMatches = unexpectedCall == null ? null : new boolean[expectedCalls.size()];
+    for (int i = 0; i < this.callCounts.length; i++) {
+      ExpectedCall expected = expectedCalls.get(i);
+      this.callCounts[i] = expected.getCallCount();
+      if (this.potentialMatches != null) {
+        this.potentialMatches[i] = expected.matches(unexpectedCall);
+      }
+    }
+  }
+  
+  String render() {
+    StringBuilder builder = new StringBuilder("\n  ").append(this.header);
+    if (this.unexpectedCall != null) {
+      builder.append(" ").append(this.unexpectedCall.toString()).append(".");
+    }
+    builder.append(" List of all expectations:");
+    
+    if (this.callCounts.length == 0) {
+      builder.append("\n    <empty>\n");
+      return builder.toString();
+    }
+    
+    if (this.unexpectedCall != null) {
+      builder.append("\n  Potential matches are marked with (+1).");
+    }
+    
+    int listed = Math.min(this.callCounts.length, MAX_LISTED_EXPECTATIONS);
+    for (int i = 0; i < listed; i++) {
+      ExpectedCall expected = this.expectedCalls.get(i);
+      builder.append("\n    ");
+      if (!expected.expectationMet(this.callCounts[i])) {
+        builder.append("--> ");
+      } else {
+        builder.append("    ");
+      }
+      builder.append(expected.toString())
+          .append(": expected ").append(expected.getExpectedCallRange())
+          .append(", actual ").append(this.callCounts[i]);
+      if (this.potentialMatches != null && this.potentialMatches[i]) {
+        builder.append(" (+1)");
+      }
+    }
+    
+    if (listed < this.callCounts.length) {
+      appendOmitted(builder, listed);
+    }
+
+    return builder.append("\n").toString();
+  }
+
+  /**
+   * Summarizes the expectations that are not listed.
+   */
+  private void appendOmitted(StringBuilder builder, int listed) {
+    int unmet = 0;
+    int potentialMatches = 0;
+    for (int i = listed; i < this.callCounts.length; i++) {
+      if (!this.expectedCalls.get(i).expectationMet(this.callCounts[i])) {
+        unmet++;
+      }
+      if (this.potentialMatches != null && this.potentialMatches[i]) {
+        potentialMatches++;
+      }
+    }
+    builder.append("\n    ... ").append(this.callCounts.length - listed)
+        .append(" more expectations not listed (").append(unmet).append(" unmet");
+    if (this.unexpectedCall != null) {
+      builder.append(", ").append(potentialMatches).append(" potential matches");
+    }
+    builder.append(")");
+  }
+}
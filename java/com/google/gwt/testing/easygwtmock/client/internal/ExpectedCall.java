@@ -18,8 +18,12 @@ package com.google.gwt.testing.easygwtmock.client.internal;
 
 import com.google.gwt.testing.easygwtmock.client.Answer;
 import com.google.gwt.testing.easygwtmock.client.ArgumentMatcher;
+import com.google.gwt.testing.easygwtmock.client.Expectation;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Any;
 import com.google.gwt.testing.easygwtmock.client.internal.matchers.ArgumentCapture;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Equals;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -29,7 +33,7 @@ import java.util.Set;
  * 
  * @author Michael Goderbauer
  */
-public class ExpectedCall {
+public class ExpectedCall implements Expectation {
  
   private final Call call; // call made during recording to set up expectation
   private final List<ArgumentMatcher> matchers;
@@ -55,24 +59,58 @@ public class ExpectedCall {
   boolean matches(Call actual) {
     return this.call.getMock() == actual.getMock()
         && this.call.getMethod() == actual.getMethod()
-        && matchesArguments(actual.getArguments());
+        && matchesArguments(actual);
   }
 
   /**
-   * Determines if the provided argument list fulfills the argument matchers of this call.
+   * Determines if the arguments of the provided call fulfill the argument matchers of
+   * this call. Does not check whether mock and method of the provided call match.
    */
-  private boolean matchesArguments(List<Object> arguments) {
-    if (arguments.size() != matchers.size()) {
+  boolean matchesArguments(Call actual) {
+    if (actual.getArgumentCount() != matchers.size()) {
       return false;
     }
-    for (int i = 0; i < arguments.size(); i++) {
-      if (!matchers.get(i).matches(arguments.get(i))) {
+    for (int i = 0; i < matchers.size(); i++) {
+      ArgumentMatcher matcher = matchers.get(i);
+      if (matcher == Any.ANY) {
+        continue; // no need to box the argument
+      }
+      if (!actual.matchesArgument(i, matcher)) {
         return false;
       }
     }
     return true;
   }
 
+  /**
+   * Returns the expected argument values if every argument matcher of this call is an
+   * {@link Equals} matcher of an immutable value, null otherwise.
+   * 
+   * <p>Only immutable values keep their hash code after replay started, and only their
+   * equals() is symmetric, so only they can be looked up by the actual arguments.
+   */
+  List<Object> getExpectedArguments() {
+    List<Object> arguments = new ArrayList<Object>(this.matchers.size());
+    for (ArgumentMatcher matcher : this.matchers) {
+      if (matcher.getClass() != Equals.class) {
+        return null;
+      }
+      Object expected = ((Equals) matcher).getExpected();
+      if (!isImmutableValue(expected)) {
+        return null;
+      }
+      arguments.add(expected);
+    }
+    return arguments;
+  }
+  
+  private static boolean isImmutableValue(Object value) {
+    return value == null || value instanceof String || value instanceof Integer
+        || value instanceof Long || value instanceof Boolean || value instanceof Character
+        || value instanceof Double || value instanceof Float || value instanceof Short
+        || value instanceof Byte || value instanceof Enum<?>;
+  }
+
   @Override
   public String toString() {
     StringBuffer result = new StringBuffer();
@@ -89,28 +127,69 @@ public class ExpectedCall {
   }
 
   boolean expectationMet() {
-    return this.range.includes(this.answerUsageCount);
+    return expectationMet(this.answerUsageCount);
+  }
+
+  /**
+   * Checks if the expectation is met by the given number of calls.
+   */
+  boolean expectationMet(int callCount) {
+    return this.range.includes(callCount);
   }
 
   boolean canBeInvoked() {
     return this.answerUsageCount < this.range.getMax();
   }
   
-  Answer<? extends Object> invoke() {
+  /**
+   * Counts a call matching this expected call and captures its arguments.
+   */
+  Answer<? extends Object> invoke(Call actual) {
     this.answerUsageCount++;
-    captureArguemnts();
+    captureArguments(actual);
     return this.answer;
   }
+
+  /**
+   * Checks if the last call to {@link #invoke(Call)} turned an unmet expectation into a met one.
+   * Since invoke() never exceeds the maximum of the range, this happens exactly when the
+   * call count reaches the minimum.
+   */
+  boolean metByLastInvoke() {
+    return this.answerUsageCount == this.range.getMin();
+  }
   
-  private void captureArguemnts() {
+  private void captureArguments(Call actual) {
     if (this.captures == null) {
       return;
     }
-    for (ArgumentCapture capture : this.captures) {
-      capture.captureArgument();
+    for (int i = 0; i < this.matchers.size(); i++) {
+      ArgumentMatcher matcher = this.matchers.get(i);
+      if (matcher instanceof ArgumentCapture) {
+        ((ArgumentCapture) matcher).captureArgument(actual.getArgument(i));
+      }
     }
   }
 
+
+  @Override
+  public Object getMock() {
+    return this.call.getMock();
+  }
+
+  @Override
+  public String getMethodName() {
+    return this.call.getMethod().getName();
+  }
+
+  Method getMethod() {
+    return this.call.getMethod();
+  }
+
+  Answer<? extends Object> getAnswer() {
+    return this.answer;
+  }
+
   int getCallCount() {
     return this.answerUsageCount;
   }
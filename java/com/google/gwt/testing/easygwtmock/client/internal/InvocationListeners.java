@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Expectation;
+import com.google.gwt.testing.easygwtmock.client.InvocationListener;
+
+/**
+ * An immutable list of invocation listeners, notified in order. Adding or removing a
+ * listener creates a new list, so mocks called from other threads never see a list
+ * while it is changed.
+ *
+ * <p>Controls without listeners have no list at all, so calls to their mocks only pay
+ * for a null check.
+ */
+class InvocationListeners {
+
+  private final InvocationListener[] listeners;
+
+  private InvocationListeners(InvocationListener[] listeners) {
+    this.listeners = listeners;
+  }
+
+  /**
+   * Returns a list of the listeners in {@code listeners} followed by {@code listener}.
+   *
+   * @param listeners the current list or null if there are no listeners
+   */
+  static InvocationListeners add(InvocationListeners listeners, InvocationListener listener) {
+    if (listeners == null) {
+      return new InvocationListeners(new InvocationListener[] {listener});
+    }
+    InvocationListener[] added = new InvocationListener[listeners.listeners.length + 1];
+    System.arraycopy(listeners.listeners, 0, added, 0, listeners.listeners.length);
+    added[listeners.listeners.length] = listener;
+    return new InvocationListeners(added);
+  }
+
+  /**
+   * Returns a list of the listeners in {@code listeners} without the first occurrence of
+   * {@code listener}, or null if no listener is left.
+   *
+   * @param listeners the current list or null if there are no listeners
+   */
+  static InvocationListeners remove(InvocationListeners listeners,
+                                    InvocationListener listener) {
+    if (listeners == null) {
+      return null;
+    }
+    for (int i = 0; i < listeners.listeners.length; i++) {
+      if (listeners.listeners[i] == listener) {
+        if (listeners.listeners.length == 1) {
+          return null;
+        }
+        InvocationListener[] removed = new InvocationListener[listeners.listeners.length - 1];
+        System.arraycopy(listeners.listeners, 0, removed, 0, i);
+        System.arraycopy(listeners.listeners, i + 1, removed, i, removed.length - i);
+        return new InvocationListeners(removed);
+      }
+    }
+    return listeners;
+  }
+
+  void beforeInvoke(Call call) {
+    for (InvocationListener listener : this.listeners) {
+      listener.beforeInvoke(call);
+    }
+  }
+
+  void afterMatch(Call call, Expectation expectation) {
+    for (InvocationListener listener : this.listeners) {
+      listener.afterMatch(call, expectation);
+    }
+  }
+
+  void unexpectedCall(Call call) {
+    for (InvocationListener listener : this.listeners) {
+      listener.unexpectedCall(call);
+    }
+  }
+
+  void afterVerify(AssertionError failure) {
+    for (InvocationListener listener : this.listeners) {
+      listener.afterVerify(failure);
+    }
+  }
+
+  void afterReset() {
+    for (InvocationListener listener : this.listeners) {
+      listener.afterReset();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the replayed calls in the Trace Event Format of Chrome's and Perfetto's trace
+ * viewers.
+ *
+ * <p>The calls are shown as slices on a real time track, lasting as long as their answer ran.
+ * Their arguments list the call, the matched expectation and the kind of answer. Callbacks
+ * deferred on the virtual clock are shown as async slices on a virtual time track, from the
+ * call to their due time, so overlapping requests are easy to spot.
+ *
+ * <p>Real timestamps have millisecond resolution. Events within the same millisecond are
+ * spread one microsecond apart to keep their order.
+ */
+class InvocationTrace {
+
+  private static final int REAL_TIME_PID = 1;
+  private static final int VIRTUAL_TIME_PID = 2;
+
+  private final VirtualClock clock;
+  private final long origin;
+  private final List<String> events;
+  private long lastTimestamp;
+  // id of the next async slice
+  private int nextCallbackId;
+
+  InvocationTrace(VirtualClock clock) {
+    this.clock = clock;
+    this.origin = System.currentTimeMillis();
+    this.events = new ArrayList<String>();
+    this.lastTimestamp = -1;
+  }
+
+  /**
+   * Returns an answer that answers like {@code answer} and records the call. The call is
+   * rendered right away, before the answer gets its arguments.
+   *
+   * @param expectation the matched expectation or a description why there is none
+   */
+  Answer<Object> trace(final Call call, final String expectation,
+                       final Answer<? extends Object> answer) {
+    final String name = call.getMethod().getName();
+    final String renderedCall = render(call);
+    return new Answer<Object>() {
+      @Override
+      public Object answer(Object[] args) throws Throwable {
+        long start = now();
+        int virtualStart = clock.now();
+        String kind = AnswerFactory.getKind(answer);
+        try {
+          return answer.answer(args);
+        } catch (Throwable throwable) {
+          kind = "throw";
+          throw throwable;
+        } finally {
+          addCall(name, renderedCall, expectation, kind, start, now());
+          if (answer instanceof AnswerFactory.CallbackAnswer
+              && ((AnswerFactory.CallbackAnswer) answer).isDeferred()) {
+            addCallback(name, renderedCall, virtualStart,
+                virtualStart + ((AnswerFactory.CallbackAnswer) answer).getDelayMillis());
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Records a call that did not match any expectation.
+   */
+  synchronized void addUnexpected(Call call) {
+    StringBuilder event = startEvent(call.getMethod().getName(), "unexpected", "i",
+        REAL_TIME_PID, now());
+    event.append(",\"s\":\"t\",\"args\":{");
+    appendArgument(event, "call", render(call), true);
+    this.events.add(event.append("}}").toString());
+  }
+
+  private synchronized void addCall(String name, String call, String expectation, String kind,
+                                    long start, long end) {
+    StringBuilder event = startEvent(name, "call", "X", REAL_TIME_PID, start);
+    event.append(",\"dur\":").append(end - start).append(",\"args\":{");
+    appendArgument(event, "call", call, true);
+    appendArgument(event, "expectation", expectation, false);
+    appendArgument(event, "answer", kind, false);
+    this.events.add(event.append("}}").toString());
+  }
+
+  private synchronized void addCallback(String name, String call, int virtualStart,
+                                        int virtualEnd) {
+    int id = this.nextCallbackId++;
+    StringBuilder begin = startEvent(name, "callback", "b", VIRTUAL_TIME_PID,
+        virtualStart * 1000L);
+    begin.append(",\"id\":").append(id).append(",\"args\":{");
+    appendArgument(begin, "call", call, true);
+    this.events.add(begin.append("}}").toString());
+    this.events.add(startEvent(name, "callback", "e", VIRTUAL_TIME_PID, virtualEnd * 1000L)
+        .append(",\"id\":").append(id).append("}").toString());
+  }
+
+  /**
+   * Returns the trace as JSON object in the Trace Event Format.
+   */
+  synchronized String toJson() {
+    StringBuilder json = new StringBuilder("{\"traceEvents\":[\n");
+    json.append(processName(REAL_TIME_PID, "mock calls (real time)")).append(",\n");
+    json.append(processName(VIRTUAL_TIME_PID, "callbacks (virtual time)"));
+    for (String event : this.events) {
+      json.append(",\n").append(event);
+    }
+    return json.append("\n],\"displayTimeUnit\":\"ms\"}\n").toString();
+  }
+
+  /**
+   * Returns the microseconds since the trace started, always later than the last timestamp.
+   */
+  private synchronized long now() {
+    long timestamp = (System.currentTimeMillis() - this.origin) * 1000;
+    if (timestamp <= this.lastTimestamp) {
+      timestamp = this.lastTimestamp + 1;
+    }
+    this.lastTimestamp = timestamp;
+    return timestamp;
+  }
+
+  private static String render(Call call) {
+    return String.valueOf(call.getMock()) + "." + call;
+  }
+
+  private static StringBuilder startEvent(String name, String category, String phase, int pid,
+                                          long timestamp) {
+    return new StringBuilder("{\"name\":").append(Utils.toJsonString(name))
+        .append(",\"cat\":\"").append(category)
+        .append("\",\"ph\":\"").append(phase)
+        .append("\",\"pid\":").append(pid)
+        .append(",\"tid\":1,\"ts\":").append(timestamp);
+  }
+
+  private static String processName(int pid, String name) {
+    return "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + pid
+        + ",\"tid\":1,\"args\":{\"name\":" + Utils.toJsonString(name) + "}}";
+  }
+
+  private static void appendArgument(StringBuilder event, String key, String value,
+                                     boolean first) {
+    if (!first) {
+      event.append(",");
+    }
+    event.append("\"").append(key).append("\":").append(Utils.toJsonString(value));
+  }
+}
@@ -22,15 +22,38 @@ import java.util.Map;
 /**
  * An object that represents a method that can be called on a mock object.
  * 
+ * <p>Generated mocks pass fully resolved descriptors: the default return value, the flags
+ * of the return type and a {@link DeclaredThrowables} check generated as instanceof tests.
+ * Methods created from classes resolve the return type on construction and check declared
+ * throwables by walking their class hierarchy.
+ * 
  * @author Michael Goderbauer
  */
 public class Method {
   
+  /**
+   * Checks whether a throwable is declared by one of the methods of a mock. Generated mocks
+   * implement it with instanceof tests, one case per method.
+   */
+  public interface DeclaredThrowables {
+
+    /**
+     * Returns true if {@code throwable} is an instance of one of the throwables declared
+     * by the method with the given index.
+     */
+    boolean isDeclared(int methodIndex, Throwable throwable);
+  }
+
   private final String name;
-  private final Class<?> returnType;
-  private final Class<?>[] declaredThrowables;
+  private final Class<?>[] declaredThrowables; // null if checked by declaredThrowablesCheck
+  private final DeclaredThrowables declaredThrowablesCheck;
+  private final int methodIndex;
   private final Class<?>[] argumentTypes;
   
+  private final Object defaultReturnValue;
+  private final boolean returnValueVoid;
+  private final boolean returnValuePrimitive;
+  
   private static Map<Class<?>, Object> defaultReturnValues = new HashMap<Class<?>, Object>();
   static {
     defaultReturnValues.put(byte.class, (byte) 0);
@@ -47,9 +70,32 @@ public class Method {
   public Method(String name, Class<?> returnType, Class<?>[] argumentTypes,
                 Class<?>[] declaredThrowables) {
     this.name = name;
-    this.returnType = returnType;
     this.declaredThrowables = declaredThrowables;
+    this.declaredThrowablesCheck = null;
+    this.methodIndex = -1;
+    this.argumentTypes = argumentTypes;
+    this.defaultReturnValue = defaultReturnValues.get(returnType);
+    this.returnValueVoid = returnType == void.class;
+    this.returnValuePrimitive = returnType.isPrimitive();
+  }
+
+  /**
+   * Creates a fully resolved method, as generated mocks do.
+   *
+   * @param declaredThrowables checks the throwables declared by the method with index
+   *     {@code methodIndex}, or null if the method does not declare any
+   */
+  public Method(String name, Class<?>[] argumentTypes, Object defaultReturnValue,
+                boolean returnValueVoid, boolean returnValuePrimitive,
+                DeclaredThrowables declaredThrowables, int methodIndex) {
+    this.name = name;
+    this.declaredThrowables = null;
+    this.declaredThrowablesCheck = declaredThrowables;
+    this.methodIndex = methodIndex;
     this.argumentTypes = argumentTypes;
+    this.defaultReturnValue = defaultReturnValue;
+    this.returnValueVoid = returnValueVoid;
+    this.returnValuePrimitive = returnValuePrimitive;
   }
 
   public String getName() {
@@ -57,23 +103,30 @@ public class Method {
   }
   
   public Object getDefaultReturnValue() {
-    return defaultReturnValues.get(this.returnType);
+    return this.defaultReturnValue;
   }
 
   public boolean isReturnValueVoid() {
-    return this.returnType.equals(void.class);
+    return this.returnValueVoid;
   }
 
   public boolean isReturnValuePrimitive() {
-    return this.returnType.isPrimitive();
+    return this.returnValuePrimitive;
   }
   
   public boolean canThrow(Throwable throwable) {
-    if (throwable instanceof RuntimeException) {
-      return true;
-    }
-    if (throwable instanceof Error) {
-      return true;
+    return throwable instanceof RuntimeException || throwable instanceof Error
+        || isDeclared(throwable);
+  }
+  
+  /**
+   * Checks if {@code throwable} is an instance of one of the declared throwables. Only
+   * checked exceptions get here, unchecked ones are accepted by instanceof checks first.
+   */
+  private boolean isDeclared(Throwable throwable) {
+    if (this.declaredThrowables == null) {
+      return this.declaredThrowablesCheck != null
+          && this.declaredThrowablesCheck.isDeclared(this.methodIndex, throwable);
     }
     Class<?> throwableClass = throwable.getClass();
     for (Class<?> declaredThrowable : this.declaredThrowables) {
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The expected calls recorded for one method of one mock object, in the order of recording.
+ * 
+ * <p>Expected calls that only use {@code Equals} matchers of immutable values, like strings,
+ * boxed primitives and enums, can be indexed by their argument values. A lookup then hashes the
+ * actual arguments instead of running the matchers of every expected call. All other expected
+ * calls are still matched one by one, so arguments that change after replay started still
+ * match as they would without the index.
+ */
+class MethodExpectations {
+
+  private final List<ExpectedCall> expectedCalls = new ArrayList<ExpectedCall>();
+  
+  // positions of indexed expected calls by argument values, null if not indexed
+  private Map<List<Object>, List<Integer>> positionsByArguments;
+  
+  // positions of expected calls that are not indexed, only used if indexed
+  private int[] unindexedPositions;
+
+  void add(ExpectedCall expected) {
+    this.expectedCalls.add(expected);
+    this.positionsByArguments = null;
+    this.unindexedPositions = null;
+  }
+
+  /**
+   * Builds the argument index. Only worth it if more than one expected call can be indexed.
+   */
+  void index() {
+    Map<List<Object>, List<Integer>> index = new HashMap<List<Object>, List<Integer>>();
+    int[] unindexed = new int[this.expectedCalls.size()];
+    int unindexedCount = 0;
+    int indexedCount = 0;
+    
+    for (int i = 0; i < this.expectedCalls.size(); i++) {
+      List<Object> arguments = this.expectedCalls.get(i).getExpectedArguments();
+      if (arguments == null) {
+        unindexed[unindexedCount++] = i;
+        continue;
+      }
+      List<Integer> positions = index.get(arguments);
+      if (positions == null) {
+        positions = new ArrayList<Integer>(1);
+        index.put(arguments, positions);
+      }
+      positions.add(i);
+      indexedCount++;
+    }
+    
+    if (indexedCount < 2) {
+      return;
+    }
+    
+    this.positionsByArguments = index;
+    this.unindexedPositions = new int[unindexedCount];
+    System.arraycopy(unindexed, 0, this.unindexedPositions, 0, unindexedCount);
+  }
+
+  /**
+   * Returns the first recorded expected call that can be invoked and matches the provided
+   * call or null, if there is none.
+   */
+  ExpectedCall find(Call actual) {
+    if (this.positionsByArguments == null) {
+      for (ExpectedCall expected : this.expectedCalls) {
+        if (expected.canBeInvoked() && expected.matchesArguments(actual)) {
+          return expected;
+        }
+      }
+      return null;
+    }
+    
+    int indexedPosition = findIndexed(actual);
+    
+    // an unindexed expected call wins if it was recorded before the indexed match
+    for (int position : this.unindexedPositions) {
+      if (position > indexedPosition) {
+        break;
+      }
+      ExpectedCall expected = this.expectedCalls.get(position);
+      if (expected.canBeInvoked() && expected.matchesArguments(actual)) {
+        return expected;
+      }
+    }
+    
+    return indexedPosition == Integer.MAX_VALUE ? null : this.expectedCalls.get(indexedPosition);
+  }
+
+  private int findIndexed(Call actual) {
+    List<Integer> positions = this.positionsByArguments.get(actual.getArguments());
+    if (positions != null) {
+      for (int position : positions) {
+        ExpectedCall expected = this.expectedCalls.get(position);
+        if (expected.canBeInvoked() && expected.matchesArguments(actual)) {
+          return position;
+        }
+      }
+    }
+    return Integer.MAX_VALUE;
+  }
+}
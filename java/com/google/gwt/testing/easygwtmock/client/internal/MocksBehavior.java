@@ -17,11 +17,16 @@
 package com.google.gwt.testing.easygwtmock.client.internal;
 
 import com.google.gwt.testing.easygwtmock.client.Answer;
+import com.google.gwt.testing.easygwtmock.client.LatencyProfile;
+import com.google.gwt.testing.easygwtmock.client.MocksStats;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizer;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizes;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * An object that keeps track of the expected method calls of mock objects (= behavior
@@ -30,25 +35,140 @@ import java.util.Set;
  * @author Michael Goderbauer
  */
 public class MocksBehavior {
-  private final Queue<ExpectedCall> expectedCalls;
-  private Set<Object> niceMocks;
+  
+  // value of totalCallBudget if there is no budget
+  private static final int NO_BUDGET = -1;
+  
+  private final List<ExpectedCall> expectedCalls;
+  
+  // if true, calls have to occur in the order they were expected in
+  private final boolean strictOrder;
+  // in strict order: index of the first expected call that may still match the next call
+  private int cursor;
+  
+  // if true, actual calls may be added from several threads at once. Matching and invoking
+  // an expected call is then done while holding the lock of its MethodExpectations, or in
+  // strict order the lock of the behavior, so that ranges are never exceeded.
+  private final boolean concurrent;
+  
+  // expected calls grouped by mock and method. Mocks are compared by identity since their
+  // equals() and hashCode() are reported as unmockable calls to the control.
+  private final Map<Object, Map<Method, MethodExpectations>> expectedCallsByMock;
+  // the nice mocks, also compared by identity. The values are always TRUE
+  private final Map<Object, Boolean> niceMocks;
+  
+  // number of expected calls that have been called less often than their range requires,
+  // guarded by the lock of the behavior if concurrent
+  private int unmetExpectationCount;
+  
+  // answers for andReturn(), shared by all expectations returning the identical value
+  private final Map<Object, Answer<Object>> valueAnswers;
+  
+  // runs the deferred answers of andCallOnSuccessAfter() and andCallOnFailureAfter()
+  private final VirtualClock clock;
+  // latency profiles by mock (compared by identity) and method name, the profile of the
+  // whole mock is stored with a null method name
+  private final Map<Object, Map<String, LatencyProfile>> latencies;
+  
+  // maximum number of calls by mock (compared by identity) and in total, checked on verify
+  private final Map<Object, Integer> callBudgets;
+  private int totalCallBudget;
+  // calls answered with default values by nice mocks, which have no expected call counting
+  // them. Guarded by the lock of the behavior if concurrent
+  private final Map<Object, Integer> niceCallCounts;
+  
+  // counts identical calls if enabled, null otherwise
+  private RepeatedCallDetector repeatedCallDetector;
+  // records the replayed calls if enabled, null otherwise
+  private InvocationTrace trace;
+  // collects the statistics of the replayed calls if enabled, null otherwise
+  private StatsCollector stats;
+  // measures the payloads of the calls to some mocks if enabled, null otherwise
+  private PayloadMeter payloads;
+  // the listeners of the control, null if there are none
+  private InvocationListeners listeners;
  
   MocksBehavior() {
-    this.expectedCalls = new LinkedList<ExpectedCall>();
-    this.niceMocks = new HashSet<Object>();
+    this(false);
+  }
+  
+  MocksBehavior(boolean strictOrder) {
+    this(strictOrder, false);
+  }
+  
+  MocksBehavior(boolean strictOrder, boolean concurrent) {
+    this.strictOrder = strictOrder;
+    this.concurrent = concurrent;
+    this.expectedCalls = new ArrayList<ExpectedCall>();
+    this.expectedCallsByMock = new IdentityHashMap<Object, Map<Method, MethodExpectations>>();
+    this.niceMocks = new IdentityHashMap<Object, Boolean>();
+    this.valueAnswers = new IdentityHashMap<Object, Answer<Object>>();
+    this.clock = new VirtualClock();
+    this.latencies = new IdentityHashMap<Object, Map<String, LatencyProfile>>();
+    this.callBudgets = new IdentityHashMap<Object, Integer>();
+    this.totalCallBudget = NO_BUDGET;
+    this.niceCallCounts = new IdentityHashMap<Object, Integer>();
   }
   
   /**
    * Checks if all expected calls were met.
    */
   void verify() throws AssertionErrorWrapper {
-    for (ExpectedCall call : this.expectedCalls) {
-      if (!call.expectationMet()) {
-        StringBuilder error = new StringBuilder("\n  Expectation failure on verify. ");
-        appendExpectationList(error, true, null);
-        throw new AssertionErrorWrapper(new AssertionError(error.toString()));
+    if (getUnmetExpectationCount() != 0) {
+      throw new AssertionErrorWrapper(new ExpectationsSnapshot(
+          "Expectation failure on verify.", null, this.expectedCalls));
+    }
+    if (!this.callBudgets.isEmpty() || this.totalCallBudget != NO_BUDGET) {
+      verifyCallBudgets();
+    }
+    if (this.repeatedCallDetector != null) {
+      this.repeatedCallDetector.verify();
+    }
+  }
+
+  /**
+   * Checks that no mock and not all mocks together were called more often than their
+   * budget allows. Calls are counted by the expected calls they matched.
+   */
+  private void verifyCallBudgets() throws AssertionErrorWrapper {
+    Map<Object, Integer> callCounts = new IdentityHashMap<Object, Integer>();
+    synchronized (this) {
+      callCounts.putAll(this.niceCallCounts);
+    }
+    int totalCallCount = 0;
+    for (Integer count : callCounts.values()) {
+      totalCallCount += count;
+    }
+    for (ExpectedCall expected : this.expectedCalls) {
+      if (expected.getCallCount() == 0) {
+        continue;
+      }
+      Integer count = callCounts.get(expected.getMock());
+      callCounts.put(expected.getMock(),
+          (count == null ? 0 : count) + expected.getCallCount());
+      totalCallCount += expected.getCallCount();
+    }
+    
+    StringBuilder exceeded = new StringBuilder();
+    for (Map.Entry<Object, Integer> budget : this.callBudgets.entrySet()) {
+      Integer count = callCounts.get(budget.getKey());
+      if (count != null && count > budget.getValue()) {
+        appendExceededBudget(exceeded, String.valueOf(budget.getKey()), budget.getValue(), count);
       }
     }
+    if (this.totalCallBudget != NO_BUDGET && totalCallCount > this.totalCallBudget) {
+      appendExceededBudget(exceeded, "all mocks", this.totalCallBudget, totalCallCount);
+    }
+    if (exceeded.length() > 0) {
+      throw new AssertionErrorWrapper(new AssertionError(
+          "\n  Call budget exceeded on verify." + exceeded + "\n"));
+    }
+  }
+
+  private static void appendExceededBudget(StringBuilder builder, String name, int budget,
+                                           int count) {
+    builder.append("\n    ").append(name).append(": expected at most ").append(budget)
+        .append(" calls, actual ").append(count);
   }
 
   /**
@@ -56,6 +176,39 @@ public class MocksBehavior {
    */
   void addExpected(ExpectedCall expected) {
     this.expectedCalls.add(expected);
+    if (!expected.expectationMet()) {
+      this.unmetExpectationCount++;
+    }
+    if (this.strictOrder) {
+      // calls are matched in order, the index by mock and method is not needed
+      return;
+    }
+    
+    Map<Method, MethodExpectations> expectedCallsByMethod =
+        this.expectedCallsByMock.get(expected.getMock());
+    if (expectedCallsByMethod == null) {
+      expectedCallsByMethod = new HashMap<Method, MethodExpectations>();
+      this.expectedCallsByMock.put(expected.getMock(), expectedCallsByMethod);
+    }
+    MethodExpectations candidates = expectedCallsByMethod.get(expected.getMethod());
+    if (candidates == null) {
+      candidates = new MethodExpectations();
+      expectedCallsByMethod.put(expected.getMethod(), candidates);
+    }
+    candidates.add(expected);
+  }
+
+  /**
+   * Indexes the expected calls by their argument values where possible.
+   * Called once when the mocks are switched to replay mode.
+   */
+  void prepareForReplay() {
+    for (Map<Method, MethodExpectations> expectedCallsByMethod
+        : this.expectedCallsByMock.values()) {
+      for (MethodExpectations candidates : expectedCallsByMethod.values()) {
+        candidates.index();
+      }
+    }
   }
 
   /**
@@ -64,66 +217,329 @@ public class MocksBehavior {
    * @return expected return value for invocation
    */
   Answer<? extends Object> addActual(Call actual) throws AssertionErrorWrapper {
-    for (ExpectedCall expected : this.expectedCalls) {
-      if (!expected.canBeInvoked()) {
-        continue;
+    InvocationListeners listeners = this.listeners;
+    if (listeners != null) {
+      listeners.beforeInvoke(actual);
+    }
+    if (this.repeatedCallDetector != null) {
+      this.repeatedCallDetector.record(actual);
+    }
+    ExpectedCall expected = null;
+    if (this.strictOrder) {
+      if (this.concurrent) {
+        synchronized (this) {
+          expected = invoke(findInOrder(actual), actual);
+        }
+      } else {
+        expected = invoke(findInOrder(actual), actual);
       }
-      if (!expected.matches(actual)) {
-        continue;
+    } else {
+      MethodExpectations candidates = getCandidates(actual);
+      if (candidates != null && this.concurrent) {
+        synchronized (candidates) {
+          expected = invoke(candidates.find(actual), actual);
+        }
+      } else if (candidates != null) {
+        expected = invoke(candidates.find(actual), actual);
+      }
+    }
+    if (expected != null) {
+      if (listeners != null) {
+        listeners.afterMatch(actual, expected);
+      }
+      if (this.payloads != null) {
+        this.payloads.measureRequest(actual);
+      }
+      Answer<? extends Object> answer = withLatency(actual, expected.getAnswer());
+      if (this.trace != null) {
+        answer = this.trace.trace(actual, expected.toString(), answer);
+      }
+      if (this.payloads != null) {
+        answer = this.payloads.measureResponse(actual, answer);
       }
-      return expected.invoke();
+      if (this.stats != null) {
+        return this.stats.time(actual, answer);
+      }
+      return answer;
     }
     
-    if (isNiceMock(actual.getMock())) {
-      return AnswerFactory.forValue(actual.getDefaultReturnValue());
+    Object mock = actual.getMock();
+    if (isNiceMock(mock)) {
+      countNiceCall(mock);
+      if (listeners != null) {
+        listeners.afterMatch(actual, null);
+      }
+      if (this.payloads != null) {
+        this.payloads.measureRequest(actual);
+      }
+      Answer<Object> answer = AnswerFactory.forValue(actual.getDefaultReturnValue());
+      if (this.trace != null) {
+        answer = this.trace.trace(actual, "nice default", answer);
+      }
+      if (this.stats != null) {
+        this.stats.countNiceDefault(actual);
+        return this.stats.time(actual, answer);
+      }
+      return answer;
     }
     
-    StringBuilder error = new StringBuilder("\n  Unexpected method call ");
-    error.append(actual.toString()).append(". ");
-    appendExpectationList(error, true, actual);
-    throw new AssertionErrorWrapper(new AssertionError(error.toString()));
+    if (this.trace != null) {
+      this.trace.addUnexpected(actual);
+    }
+    if (this.stats != null) {
+      this.stats.countUnexpected(actual);
+    }
+    if (listeners != null) {
+      listeners.unexpectedCall(actual);
+    }
+    if (this.payloads != null) {
+      try {
+        this.payloads.measureRequest(actual);
+      } catch (AssertionErrorWrapper e) {
+        // the unexpected call is reported instead
+      }
+    }
+    throw new AssertionErrorWrapper(
+        new ExpectationsSnapshot("Unexpected method call", actual, this.expectedCalls));
   }
 
-  private boolean isNiceMock(Object mock) {
-    return this.niceMocks.contains(mock);
+  /**
+   * Invokes the expected call and returns it, or returns null if there is no expected call.
+   */
+  private ExpectedCall invoke(ExpectedCall expected, Call actual) {
+    if (expected == null) {
+      return null;
+    }
+    expected.invoke(actual);
+    if (expected.metByLastInvoke()) {
+      if (this.concurrent) {
+        synchronized (this) {
+          this.unmetExpectationCount--;
+        }
+      } else {
+        this.unmetExpectationCount--;
+      }
+    }
+    return expected;
   }
-  
-  void addNiceMock(Object mock) {
-    this.niceMocks.add(mock);
+
+  private int getUnmetExpectationCount() {
+    if (this.concurrent) {
+      synchronized (this) {
+        return this.unmetExpectationCount;
+      }
+    }
+    return this.unmetExpectationCount;
   }
-  
-  void removeNiceMock(Object mock) {
-    this.niceMocks.remove(mock);
+
+  /**
+   * Finds the expected call matching the actual call in strict order mode. Starting at the
+   * cursor, expected calls that do not match are skipped as long as they are met. The cursor
+   * moves to the matching call, it never moves backwards.
+   */
+  private ExpectedCall findInOrder(Call actual) {
+    for (int i = this.cursor; i < this.expectedCalls.size(); i++) {
+      ExpectedCall expected = this.expectedCalls.get(i);
+      if (expected.canBeInvoked() && expected.matches(actual)) {
+        this.cursor = i;
+        return expected;
+      }
+      if (!expected.expectationMet()) {
+        return null;
+      }
+    }
+    return null;
   }
 
-  private void appendExpectationList(StringBuilder builder, boolean markUnfullfiled,
-                                     Call matchingCall) {
-    builder.append("List of all expectations:");
-    
-    if (this.expectedCalls.size() == 0) {
-      builder.append("\n    <empty>\n");
-      return;
+  /**
+   * Returns the expected calls recorded for the mock and method of the provided call
+   * or null, if there are none.
+   */
+  private MethodExpectations getCandidates(Call actual) {
+    Map<Method, MethodExpectations> expectedCallsByMethod =
+        this.expectedCallsByMock.get(actual.getMock());
+    if (expectedCallsByMethod == null) {
+      return null;
     }
-    
-    if (matchingCall != null) {
-      builder.append("\n  Potential matches are marked with (+1).");
+    return expectedCallsByMethod.get(actual.getMethod());
+  }
+
+  /**
+   * Returns an answer that returns {@code value}, reusing the answer of earlier expectations
+   * that returned the identical value.
+   */
+  Answer<Object> getValueAnswer(Object value) {
+    Answer<Object> answer = this.valueAnswers.get(value);
+    if (answer == null) {
+      answer = AnswerFactory.forValue(value);
+      this.valueAnswers.put(value, answer);
     }
-    
-    for (ExpectedCall expected : this.expectedCalls) {
-      builder.append("\n    ");
-      if (markUnfullfiled && !expected.expectationMet()) {
-        builder.append("--> ");
-      } else {
-        builder.append("    ");
-      }
-      builder.append(expected.toString())
-          .append(": expected ").append(expected.getExpectedCallRange())
-          .append(", actual ").append(expected.getCallCount());
-      if (matchingCall != null && expected.matches(matchingCall)) {
-        builder.append(" (+1)");
+    return answer;
+  }
+
+  /**
+   * Returns the clock that runs the deferred answers of the mocks.
+   */
+  VirtualClock getClock() {
+    return this.clock;
+  }
+
+  /**
+   * Sets the maximum number of calls to all methods of the mock, or to all mocks if
+   * {@code mock} is null.
+   */
+  void setCallBudget(Object mock, int maxCalls) {
+    if (mock == null) {
+      this.totalCallBudget = maxCalls;
+    } else {
+      this.callBudgets.put(mock, maxCalls);
+    }
+  }
+
+  /**
+   * Starts counting identical calls. {@link #verify()} fails if a call is made more than
+   * {@code maxIdenticalCalls} times.
+   */
+  void detectRepeatedCalls(int maxIdenticalCalls) {
+    this.repeatedCallDetector = new RepeatedCallDetector(maxIdenticalCalls);
+  }
+
+  /**
+   * Returns a report of the identical calls made more than once, or null if repeated calls
+   * are not detected.
+   */
+  String getRepeatedCallsReport() {
+    if (this.repeatedCallDetector == null) {
+      return null;
+    }
+    return this.repeatedCallDetector.report();
+  }
+
+  /**
+   * Starts recording a trace of the replayed calls.
+   */
+  void recordTrace() {
+    this.trace = new InvocationTrace(this.clock);
+  }
+
+  /**
+   * Returns the recorded trace in the Trace Event Format, or null if no trace is recorded.
+   */
+  String getTraceJson() {
+    if (this.trace == null) {
+      return null;
+    }
+    return this.trace.toJson();
+  }
+
+  /**
+   * Starts collecting the statistics of the replayed calls.
+   */
+  void recordStats() {
+    this.stats = new StatsCollector();
+  }
+
+  /**
+   * Returns the statistics of the replayed calls, or null if no statistics are collected.
+   */
+  MocksStats getStats() {
+    if (this.stats == null) {
+      return null;
+    }
+    return this.stats.snapshot(this.expectedCalls);
+  }
+
+  /**
+   * Measures the payloads of the calls to the mock with {@code sizer}.
+   */
+  void measurePayloads(Object mock, PayloadSizer sizer) {
+    if (this.payloads == null) {
+      this.payloads = new PayloadMeter();
+    }
+    this.payloads.measure(mock, sizer);
+  }
+
+  /**
+   * Returns the payload sizes of the calls to the measured mocks, or null if no mock is
+   * measured.
+   */
+  PayloadSizes getPayloadSizes() {
+    if (this.payloads == null) {
+      return null;
+    }
+    return this.payloads.snapshot();
+  }
+
+  /**
+   * Sets the listeners notified of the calls, null if there are none.
+   */
+  void setListeners(InvocationListeners listeners) {
+    this.listeners = listeners;
+  }
+
+  private void countNiceCall(Object mock) {
+    if (this.concurrent) {
+      synchronized (this) {
+        incrementNiceCallCount(mock);
       }
+    } else {
+      incrementNiceCallCount(mock);
+    }
+  }
+
+  private void incrementNiceCallCount(Object mock) {
+    Integer count = this.niceCallCounts.get(mock);
+    this.niceCallCounts.put(mock, count == null ? 1 : count + 1);
+  }
+
+  /**
+   * Sets the latency profile of a method of the mock, or of the whole mock if
+   * {@code methodName} is null. A null profile removes it.
+   */
+  void setLatency(Object mock, String methodName, LatencyProfile profile) {
+    Map<String, LatencyProfile> latenciesByMethod = this.latencies.get(mock);
+    if (latenciesByMethod == null) {
+      latenciesByMethod = new HashMap<String, LatencyProfile>();
+      this.latencies.put(mock, latenciesByMethod);
+    }
+    latenciesByMethod.put(methodName, profile);
+  }
+
+  /**
+   * Defers the callback of a callback answer by the latency of the called method.
+   */
+  private Answer<? extends Object> withLatency(Call actual,
+                                               Answer<? extends Object> answer) {
+    if (this.latencies.isEmpty() || !(answer instanceof AnswerFactory.CallbackAnswer)) {
+      return answer;
+    }
+    Map<String, LatencyProfile> latenciesByMethod = this.latencies.get(actual.getMock());
+    if (latenciesByMethod == null) {
+      return answer;
+    }
+    LatencyProfile profile = latenciesByMethod.get(actual.getMethod().getName());
+    if (profile == null) {
+      profile = latenciesByMethod.get(null);
     }
+    if (profile == null) {
+      return answer;
+    }
+    int delayMillis = profile.nextDelayMillis();
+    if (delayMillis < 0) {
+      throw new IllegalStateException("LatencyProfile returned negative delay " + delayMillis);
+    }
+    return ((AnswerFactory.CallbackAnswer) answer).delayedBy(this.clock, delayMillis);
+  }
 
-    builder.append("\n");
+  private boolean isNiceMock(Object mock) {
+    return this.niceMocks.containsKey(mock);
+  }
+  
+  void addNiceMock(Object mock) {
+    this.niceMocks.put(mock, Boolean.TRUE);
+  }
+  
+  void removeNiceMock(Object mock) {
+    this.niceMocks.remove(mock);
   }
 }
@@ -20,7 +20,13 @@ import com.google.gwt.testing.easygwtmock.client.Answer;
 import com.google.gwt.testing.easygwtmock.client.ArgumentMatcher;
 import com.google.gwt.testing.easygwtmock.client.Capture;
 import com.google.gwt.testing.easygwtmock.client.ExpectationSetters;
+import com.google.gwt.testing.easygwtmock.client.InvocationListener;
+import com.google.gwt.testing.easygwtmock.client.LatencyProfile;
 import com.google.gwt.testing.easygwtmock.client.MocksControl;
+import com.google.gwt.testing.easygwtmock.client.MocksStats;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizer;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizes;
+import com.google.gwt.testing.easygwtmock.client.UndeclaredThrowableException;
 import com.google.gwt.testing.easygwtmock.client.internal.matchers.Any;
 import com.google.gwt.testing.easygwtmock.client.internal.matchers.ArgumentCapture;
 import com.google.gwt.testing.easygwtmock.client.internal.matchers.AsyncCallbackMatcher;
@@ -37,10 +43,33 @@ import com.google.gwt.user.client.rpc.AsyncCallback;
  */
 public abstract class MocksControlBase implements MocksControl {
   
-  private MocksControlState currentState;
+  // volatile, so mocks called from other threads see the switch to replay state
+  private volatile MocksControlState currentState;
   private MocksBehavior behavior;
+  // kept across resets, null if there are no listeners
+  private InvocationListeners listeners;
+  
+  private final boolean strictOrder;
+  private final boolean concurrent;
   
   public MocksControlBase() {
+    this(false);
+  }
+  
+  /**
+   * @param strictOrder if true, calls have to be made in the order they were expected in
+   */
+  public MocksControlBase(boolean strictOrder) {
+    this(strictOrder, false);
+  }
+  
+  /**
+   * @param strictOrder if true, calls have to be made in the order they were expected in
+   * @param concurrent if true, the mocks may be called from several threads during replay
+   */
+  public MocksControlBase(boolean strictOrder, boolean concurrent) {
+    this.strictOrder = strictOrder;
+    this.concurrent = concurrent;
     reset();
   }
   
@@ -48,6 +77,44 @@ public abstract class MocksControlBase implements MocksControl {
     return this.currentState.invoke(call);
   }
   
+  /**
+   * Invokes the mocked method and returns the result of its answer. Generated mock methods
+   * delegate to this method, so they consist of little more than creating the call.
+   * 
+   * <p>Throwables are rethrown as the mocked method would throw them: exceptions declared by
+   * the method and unchecked ones as they are, all others wrapped in an
+   * {@link UndeclaredThrowableException}.
+   */
+  public Object dispatch(Call call) {
+    try {
+      return invoke(call).answer(call.getArgumentArray());
+    } catch (AssertionErrorWrapper e) {
+      AssertionError error = (AssertionError) e.getAssertionError().fillInStackTrace();
+      // the first displayed stack frame should be the one of the mocked method
+      StackTraceElement[] stackTrace = error.getStackTrace();
+      if (stackTrace.length > 1) {
+        StackTraceElement[] callerStackTrace = new StackTraceElement[stackTrace.length - 1];
+        System.arraycopy(stackTrace, 1, callerStackTrace, 0, callerStackTrace.length);
+        error.setStackTrace(callerStackTrace);
+      }
+      throw error;
+    } catch (Throwable exception) {
+      if (call.getMethod().canThrow(exception)) {
+        MocksControlBase.<RuntimeException>throwUnchecked(exception);
+      }
+      throw new UndeclaredThrowableException(exception);
+    }
+  }
+  
+  /**
+   * Throws {@code throwable} without requiring callers to declare or catch it. Only used for
+   * checked exceptions the mocked method declares.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T extends Throwable> void throwUnchecked(Throwable throwable) throws T {
+    throw (T) throwable;
+  }
+  
   public void unmockableCallTo(String methodName) {
     this.currentState.unmockableCallTo(methodName);
   }
@@ -59,6 +126,8 @@ public abstract class MocksControlBase implements MocksControl {
     } catch (IllegalStateExceptionWrapper e) {
       throw (IllegalStateException) e.getIllegalStateException().fillInStackTrace();
     }
+    // prepare before switching, other threads may call the mocks as soon as they see the switch
+    this.behavior.prepareForReplay();
     this.currentState = new ReplayState(behavior);
   }
 
@@ -67,16 +136,60 @@ public abstract class MocksControlBase implements MocksControl {
     try {
       this.currentState.verify();
     } catch (AssertionErrorWrapper e) {
-      throw (AssertionError) e.getAssertionError().fillInStackTrace();
+      AssertionError error = (AssertionError) e.getAssertionError().fillInStackTrace();
+      if (this.listeners != null) {
+        this.listeners.afterVerify(error);
+      }
+      throw error;
     } catch (IllegalStateExceptionWrapper e) {
       throw (IllegalStateException) e.getIllegalStateException().fillInStackTrace();
     }
+    if (this.listeners != null) {
+      this.listeners.afterVerify(null);
+    }
   }
   
   @Override
   public void reset() {
-    this.behavior = new MocksBehavior();
+    this.behavior = new MocksBehavior(this.strictOrder, this.concurrent);
+    this.behavior.setListeners(this.listeners);
     this.currentState = new RecordState(this.behavior);
+    if (this.listeners != null) {
+      this.listeners.afterReset();
+    }
+  }
+  
+  @Override
+  public void addInvocationListener(InvocationListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("listener must not be null");
+    }
+    this.listeners = InvocationListeners.add(this.listeners, listener);
+    this.behavior.setListeners(this.listeners);
+  }
+  
+  @Override
+  public void removeInvocationListener(InvocationListener listener) {
+    this.listeners = InvocationListeners.remove(this.listeners, listener);
+    this.behavior.setListeners(this.listeners);
+  }
+  
+  @Override
+  public void advanceClock(int millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis has to be non-negative");
+    }
+    this.behavior.getClock().advance(millis);
+  }
+  
+  @Override
+  public void flushCallbacks() {
+    this.behavior.getClock().flush();
+  }
+  
+  @Override
+  public int getSimulatedTimeMillis() {
+    return this.behavior.getClock().now();
   }
   
   @Override
@@ -111,6 +224,110 @@ public abstract class MocksControlBase implements MocksControl {
     return mock;
   }
   
+  @Override
+  public <T> T setCallBudget(T mock, int maxCalls) {
+    if (mock == null) {
+      throw new IllegalArgumentException("mock must not be null");
+    }
+    if (maxCalls < 0) {
+      throw new IllegalArgumentException("maxCalls has to be non-negative");
+    }
+    this.behavior.setCallBudget(mock, maxCalls);
+    return mock;
+  }
+  
+  @Override
+  public void setTotalCallBudget(int maxCalls) {
+    if (maxCalls < 0) {
+      throw new IllegalArgumentException("maxCalls has to be non-negative");
+    }
+    this.behavior.setCallBudget(null, maxCalls);
+  }
+  
+  @Override
+  public void detectRepeatedCalls(int maxIdenticalCalls) {
+    if (maxIdenticalCalls < 1) {
+      throw new IllegalArgumentException("maxIdenticalCalls has to be positive");
+    }
+    this.behavior.detectRepeatedCalls(maxIdenticalCalls);
+  }
+  
+  @Override
+  public String getRepeatedCallsReport() {
+    String report = this.behavior.getRepeatedCallsReport();
+    if (report == null) {
+      throw new IllegalStateException("Repeated calls are not detected, "
+          + "call detectRepeatedCalls() before replay");
+    }
+    return report;
+  }
+  
+  @Override
+  public void recordTrace() {
+    this.behavior.recordTrace();
+  }
+  
+  @Override
+  public String getTraceJson() {
+    String json = this.behavior.getTraceJson();
+    if (json == null) {
+      throw new IllegalStateException("No trace is recorded, call recordTrace() before replay");
+    }
+    return json;
+  }
+  
+  @Override
+  public void recordStats() {
+    this.behavior.recordStats();
+  }
+  
+  @Override
+  public MocksStats stats() {
+    MocksStats stats = this.behavior.getStats();
+    if (stats == null) {
+      throw new IllegalStateException("No statistics are collected, "
+          + "call recordStats() before replay");
+    }
+    return stats;
+  }
+  
+  @Override
+  public <T> T measurePayloads(T mock, PayloadSizer sizer) {
+    if (mock == null) {
+      throw new IllegalArgumentException("mock must not be null");
+    }
+    if (sizer == null) {
+      throw new IllegalArgumentException("sizer must not be null");
+    }
+    this.behavior.measurePayloads(mock, sizer);
+    return mock;
+  }
+  
+  @Override
+  public PayloadSizes payloadSizes() {
+    PayloadSizes sizes = this.behavior.getPayloadSizes();
+    if (sizes == null) {
+      throw new IllegalStateException("No payloads are measured, "
+          + "call measurePayloads() before replay");
+    }
+    return sizes;
+  }
+  
+  @Override
+  public <T> T setLatency(T mock, LatencyProfile profile) {
+    this.behavior.setLatency(mock, null, profile);
+    return mock;
+  }
+  
+  @Override
+  public <T> T setLatency(T mock, String methodName, LatencyProfile profile) {
+    if (methodName == null) {
+      throw new IllegalArgumentException("methodName must not be null");
+    }
+    this.behavior.setLatency(mock, methodName, profile);
+    return mock;
+  }
+  
   /*
    * Argument Matcher
    */
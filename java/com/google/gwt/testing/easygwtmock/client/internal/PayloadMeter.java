@@ -0,0 +1,214 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Answer;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizer;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizes;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the payload sizes of the calls to mocks of asynchronous services: the arguments
+ * of each call without its AsyncCallback as request, and the result passed to onSuccess()
+ * as response. Responses are measured when the callback is called, so deferred callbacks
+ * that are not due yet and failures passed to onFailure() are not counted.
+ */
+class PayloadMeter {
+
+  // sizers by mock, compared by identity
+  private final Map<Object, PayloadSizer> sizers;
+  // sizes by mock (compared by identity) and method
+  private final Map<Object, Map<Method, Sizes>> sizesByMock;
+  // the same sizes in the order they were first seen
+  private final List<Sizes> sizes;
+
+  PayloadMeter() {
+    this.sizers = new IdentityHashMap<Object, PayloadSizer>();
+    this.sizesByMock = new IdentityHashMap<Object, Map<Method, Sizes>>();
+    this.sizes = new ArrayList<Sizes>();
+  }
+
+  /**
+   * Measures the payloads of the calls to {@code mock} with {@code sizer}.
+   */
+  void measure(Object mock, PayloadSizer sizer) {
+    this.sizers.put(mock, sizer);
+  }
+
+  /**
+   * Measures the request of the call if its mock is measured.
+   *
+   * @throws AssertionErrorWrapper if the sizer cannot measure the arguments
+   */
+  void measureRequest(Call call) throws AssertionErrorWrapper {
+    PayloadSizer sizer = this.sizers.get(call.getMock());
+    if (sizer == null) {
+      return;
+    }
+    Object[] arguments = call.getArgumentArray();
+    int argumentCount = arguments.length;
+    if (argumentCount > 0 && arguments[argumentCount - 1] instanceof AsyncCallback<?>) {
+      argumentCount--;
+    }
+    Object[] requestArguments = new Object[argumentCount];
+    System.arraycopy(arguments, 0, requestArguments, 0, argumentCount);
+    int bytes = sizeOf(sizer, call, requestArguments);
+    synchronized (this) {
+      getSizes(call).addRequest(bytes);
+    }
+  }
+
+  /**
+   * Returns an answer that measures the result passed to onSuccess() of the callback of
+   * the call, if its mock is measured. The callback is measured when {@code answer} calls
+   * it. A sizer that cannot measure the result throws an AssertionError from onSuccess().
+   */
+  Answer<? extends Object> measureResponse(final Call call,
+                                           final Answer<? extends Object> answer) {
+    final PayloadSizer sizer = this.sizers.get(call.getMock());
+    if (sizer == null) {
+      return answer;
+    }
+    return new Answer<Object>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public Object answer(Object[] args) throws Throwable {
+        int last = args.length - 1;
+        if (last < 0 || !(args[last] instanceof AsyncCallback<?>)) {
+          return answer.answer(args);
+        }
+        // the arguments may be those of the call, so they are copied
+        Object[] measuredArgs = new Object[args.length];
+        System.arraycopy(args, 0, measuredArgs, 0, last);
+        measuredArgs[last] =
+            new MeasuringCallback(call, sizer, (AsyncCallback<Object>) args[last]);
+        return answer.answer(measuredArgs);
+      }
+    };
+  }
+
+  /**
+   * Returns the size of {@code values}. The sizer failing is a failure of the test, not of
+   * the mocked service, so it is reported as an AssertionError.
+   */
+  private static int sizeOf(PayloadSizer sizer, Call call, Object[] values)
+      throws AssertionErrorWrapper {
+    try {
+      return sizer.sizeOf(values);
+    } catch (RuntimeException e) {
+      AssertionError error = new AssertionError("\n  Cannot measure the payload of "
+          + call.getMock() + "." + call + ": " + e.getMessage() + "\n");
+      error.initCause(e);
+      throw new AssertionErrorWrapper(error);
+    }
+  }
+
+  synchronized PayloadSizes snapshot() {
+    List<PayloadSizes.MethodSizes> methods = new ArrayList<PayloadSizes.MethodSizes>();
+    for (Sizes methodSizes : this.sizes) {
+      methods.add(new PayloadSizes.MethodSizes(methodSizes.mock, methodSizes.method.getName(),
+          methodSizes.requestCount, methodSizes.totalRequestBytes, methodSizes.maxRequestBytes,
+          methodSizes.responseCount, methodSizes.totalResponseBytes,
+          methodSizes.maxResponseBytes));
+    }
+    return new PayloadSizes(methods);
+  }
+
+  private Sizes getSizes(Call call) {
+    Map<Method, Sizes> sizesByMethod = this.sizesByMock.get(call.getMock());
+    if (sizesByMethod == null) {
+      sizesByMethod = new HashMap<Method, Sizes>();
+      this.sizesByMock.put(call.getMock(), sizesByMethod);
+    }
+    Sizes methodSizes = sizesByMethod.get(call.getMethod());
+    if (methodSizes == null) {
+      methodSizes = new Sizes(call.getMock(), call.getMethod());
+      sizesByMethod.put(call.getMethod(), methodSizes);
+      this.sizes.add(methodSizes);
+    }
+    return methodSizes;
+  }
+
+  /**
+   * Measures the result before passing it on to the callback of the code under test.
+   */
+  private class MeasuringCallback implements AsyncCallback<Object> {
+
+    private final Call call;
+    private final PayloadSizer sizer;
+    private final AsyncCallback<Object> callback;
+
+    MeasuringCallback(Call call, PayloadSizer sizer, AsyncCallback<Object> callback) {
+      this.call = call;
+      this.sizer = sizer;
+      this.callback = callback;
+    }
+
+    @Override
+    public void onSuccess(Object result) {
+      int bytes;
+      try {
+        bytes = sizeOf(this.sizer, this.call, new Object[] {result});
+      } catch (AssertionErrorWrapper e) {
+        throw e.getAssertionError();
+      }
+      synchronized (PayloadMeter.this) {
+        getSizes(this.call).addResponse(bytes);
+      }
+      this.callback.onSuccess(result);
+    }
+
+    @Override
+    public void onFailure(Throwable caught) {
+      this.callback.onFailure(caught);
+    }
+  }
+
+  private static class Sizes {
+
+    private final Object mock;
+    private final Method method;
+    private int requestCount;
+    private long totalRequestBytes;
+    private int maxRequestBytes;
+    private int responseCount;
+    private long totalResponseBytes;
+    private int maxResponseBytes;
+
+    Sizes(Object mock, Method method) {
+      this.mock = mock;
+      this.method = method;
+    }
+
+    void addRequest(int bytes) {
+      this.requestCount++;
+      this.totalRequestBytes += bytes;
+      this.maxRequestBytes = Math.max(this.maxRequestBytes, bytes);
+    }
+
+    void addResponse(int bytes) {
+      this.responseCount++;
+      this.totalResponseBytes += bytes;
+      this.maxResponseBytes = Math.max(this.maxResponseBytes, bytes);
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts identical calls, i.e. calls to the same method of the same mock with equal
+ * arguments. Calls made repeatedly usually point to N+1 queries or a missing cache in the
+ * code under test.
+ *
+ * <p>Calls are hashed by mock identity, method and arguments, so recording a call takes
+ * constant time. Arguments are compared with equals(), arrays by their contents. Their hash
+ * codes are taken when the call is made, so an argument changed later does not match. Any
+ * AsyncCallback matches any other AsyncCallback, since each call to an asynchronous service
+ * passes a new one. Calls are only rendered for the report.
+ */
+class RepeatedCallDetector {
+
+  // calls that are repeated more often are reported by verify()
+  private final int maxIdenticalCalls;
+
+  // in the order of the first occurrence of each call
+  private final Map<CallKey, IdenticalCalls> calls;
+
+  RepeatedCallDetector(int maxIdenticalCalls) {
+    this.maxIdenticalCalls = maxIdenticalCalls;
+    this.calls = new LinkedHashMap<CallKey, IdenticalCalls>();
+  }
+
+  synchronized void record(Call call) {
+    CallKey key = new CallKey(call);
+    IdenticalCalls identicalCalls = this.calls.get(key);
+    if (identicalCalls == null) {
+      this.calls.put(key, new IdenticalCalls());
+    } else {
+      identicalCalls.count++;
+    }
+  }
+
+  /**
+   * Checks that no call was made more often than allowed.
+   */
+  void verify() throws AssertionErrorWrapper {
+    String exceeded = render(this.maxIdenticalCalls);
+    if (exceeded.length() > 0) {
+      throw new AssertionErrorWrapper(new AssertionError("\n  Identical calls made more than "
+          + this.maxIdenticalCalls + " times:" + exceeded + "\n"));
+    }
+  }
+
+  /**
+   * Returns a report of all calls that were made more than once, or an empty string
+   * if there are none.
+   */
+  String report() {
+    String repeated = render(1);
+    if (repeated.length() == 0) {
+      return "";
+    }
+    return "\n  Repeated identical calls:" + repeated + "\n";
+  }
+
+  /**
+   * Renders the calls that were made more than {@code maxCount} times, one per line.
+   */
+  private synchronized String render(int maxCount) {
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<CallKey, IdenticalCalls> entry : this.calls.entrySet()) {
+      CallKey key = entry.getKey();
+      IdenticalCalls identicalCalls = entry.getValue();
+      if (identicalCalls.count > maxCount) {
+        builder.append("\n    ").append(key.mock).append(".").append(key)
+            .append(": ").append(identicalCalls.count).append(" times");
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Identifies the calls that are identical to a given call.
+   */
+  private static class CallKey {
+
+    // stands in for every AsyncCallback argument
+    private static final Object ANY_CALLBACK = new Object() {
+      @Override
+      public String toString() {
+        return "<AsyncCallback>";
+      }
+    };
+
+    private final Object mock;
+    private final Method method;
+    // a copy of the arguments, so later changes to the call don't affect the key
+    private final Object[] arguments;
+    // taken when the call was made
+    private final int hashCode;
+
+    CallKey(Call call) {
+      this.mock = call.getMock();
+      this.method = call.getMethod();
+      Object[] callArguments = call.getArgumentArray();
+      this.arguments = new Object[callArguments.length];
+      for (int i = 0; i < callArguments.length; i++) {
+        this.arguments[i] = callArguments[i] instanceof AsyncCallback<?>
+            ? ANY_CALLBACK : callArguments[i];
+      }
+      this.hashCode = 31 * (31 * System.identityHashCode(this.mock)
+          + this.method.hashCode()) + Arrays.deepHashCode(this.arguments);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof CallKey)) {
+        return false;
+      }
+      CallKey other = (CallKey) obj;
+      return this.hashCode == other.hashCode && this.mock == other.mock
+          && this.method == other.method && Arrays.deepEquals(this.arguments, other.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hashCode;
+    }
+
+    @Override
+    public String toString() {
+      StringBuffer buffer = new StringBuffer(this.method.getName()).append("(");
+      for (int i = 0; i < this.arguments.length; i++) {
+        if (i > 0) {
+          buffer.append(", ");
+        }
+        Utils.appendArgumentTo(this.arguments[i], buffer);
+      }
+      return buffer.append(")").toString();
+    }
+  }
+
+  private static class IdenticalCalls {
+
+    private int count;
+
+    IdenticalCalls() {
+      this.count = 1;
+    }
+  }
+}
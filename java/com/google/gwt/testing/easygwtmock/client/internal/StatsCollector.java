@@ -0,0 +1,133 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Answer;
+import com.google.gwt.testing.easygwtmock.client.MocksStats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the statistics of the replayed calls by mock and method.
+ *
+ * <p>Calls that matched an expectation are not counted here, the expected calls already
+ * count them. Only unexpected calls, default answers of nice mocks and the time spent in
+ * answers are collected.
+ */
+class StatsCollector {
+
+  // counters by mock (compared by identity) and method
+  private final Map<Object, Map<Method, MethodCounters>> countersByMock;
+  // the same counters in the order they were first seen
+  private final List<MethodCounters> counters;
+
+  StatsCollector() {
+    this.countersByMock = new IdentityHashMap<Object, Map<Method, MethodCounters>>();
+    this.counters = new ArrayList<MethodCounters>();
+  }
+
+  /**
+   * Returns an answer that answers like {@code answer} and adds the time it took to the
+   * called method.
+   */
+  Answer<Object> time(final Call call, final Answer<? extends Object> answer) {
+    return new Answer<Object>() {
+      @Override
+      public Object answer(Object[] args) throws Throwable {
+        long start = Stopwatch.nanoTime();
+        try {
+          return answer.answer(args);
+        } finally {
+          addAnswerNanos(call, Stopwatch.nanoTime() - start);
+        }
+      }
+    };
+  }
+
+  synchronized void countUnexpected(Call call) {
+    getCounters(call.getMock(), call.getMethod()).unexpectedCount++;
+  }
+
+  synchronized void countNiceDefault(Call call) {
+    getCounters(call.getMock(), call.getMethod()).niceDefaultCount++;
+  }
+
+  private synchronized void addAnswerNanos(Call call, long nanos) {
+    getCounters(call.getMock(), call.getMethod()).answerNanos += nanos;
+  }
+
+  /**
+   * Returns the statistics of all methods that were called or have expected calls.
+   * The matched calls are counted by {@code expectedCalls}.
+   */
+  synchronized MocksStats snapshot(List<ExpectedCall> expectedCalls) {
+    Map<MethodCounters, Integer> matchedCounts = new IdentityHashMap<MethodCounters, Integer>();
+    List<String> unusedExpectations = new ArrayList<String>();
+    for (ExpectedCall expected : expectedCalls) {
+      MethodCounters methodCounters = getCounters(expected.getMock(), expected.getMethod());
+      int callCount = expected.getCallCount();
+      if (callCount == 0) {
+        unusedExpectations.add(String.valueOf(expected.getMock()) + "." + expected);
+      }
+      Integer matchedCount = matchedCounts.get(methodCounters);
+      matchedCounts.put(methodCounters, (matchedCount == null ? 0 : matchedCount) + callCount);
+    }
+
+    List<MocksStats.MethodStats> methods = new ArrayList<MocksStats.MethodStats>();
+    for (MethodCounters methodCounters : this.counters) {
+      Integer matchedCount = matchedCounts.get(methodCounters);
+      methods.add(new MocksStats.MethodStats(methodCounters.mock,
+          methodCounters.method.getName(), methodCounters.method.toString(),
+          matchedCount == null ? 0 : matchedCount, methodCounters.unexpectedCount,
+          methodCounters.niceDefaultCount, methodCounters.answerNanos));
+    }
+    return new MocksStats(methods, unusedExpectations);
+  }
+
+  private MethodCounters getCounters(Object mock, Method method) {
+    Map<Method, MethodCounters> countersByMethod = this.countersByMock.get(mock);
+    if (countersByMethod == null) {
+      countersByMethod = new HashMap<Method, MethodCounters>();
+      this.countersByMock.put(mock, countersByMethod);
+    }
+    MethodCounters methodCounters = countersByMethod.get(method);
+    if (methodCounters == null) {
+      methodCounters = new MethodCounters(mock, method);
+      countersByMethod.put(method, methodCounters);
+      this.counters.add(methodCounters);
+    }
+    return methodCounters;
+  }
+
+  private static class MethodCounters {
+
+    private final Object mock;
+    private final Method method;
+    private int unexpectedCount;
+    private int niceDefaultCount;
+    private long answerNanos;
+
+    MethodCounters(Object mock, Method method) {
+      this.mock = mock;
+      this.method = method;
+    }
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+/**
+ * Reads the clock that times the answers of calls. Compiled to JavaScript, the version in
+ * the super-source directory is used instead, since the JRE emulation of GWT before 2.8 has
+ * no {@code System.nanoTime()}.
+ */
+class Stopwatch {
+
+  private Stopwatch() {
+  }
+
+  /**
+   * Returns the time of a monotonic clock in nanoseconds, only meaningful as a difference.
+   */
+  static long nanoTime() {
+    return System.nanoTime();
+  }
+}
@@ -70,4 +70,43 @@ public class Utils {
     String[] components = str.split("\\.");
     return components[components.length - 1].replace("$", ".");
   }
+  
+  /**
+   * Returns {@code value} as JSON string literal.
+   */
+  public static String toJsonString(String value) {
+    StringBuilder result = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          result.append("\\\"");
+          break;
+        case '\\':
+          result.append("\\\\");
+          break;
+        case '\n':
+          result.append("\\n");
+          break;
+        case '\r':
+          result.append("\\r");
+          break;
+        case '\t':
+          result.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            String hex = Integer.toHexString(c);
+            result.append("\\u");
+            for (int j = hex.length(); j < 4; j++) {
+              result.append('0');
+            }
+            result.append(hex);
+          } else {
+            result.append(c);
+          }
+      }
+    }
+    return result.append("\"").toString();
+  }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A clock that only advances when told to. Runs the tasks scheduled on it once their due time
+ * is reached, so deferred answers can be tested without waiting for real timers.
+ * 
+ * <p>Tasks are run outside the lock of the clock, they may schedule further tasks.
+ */
+class VirtualClock {
+  
+  // current time in milliseconds since the clock was created
+  private int now;
+  
+  // ordered by due time, tasks due at the same time in the order they were scheduled
+  private final List<ScheduledTask> scheduledTasks = new ArrayList<ScheduledTask>();
+  
+  synchronized int now() {
+    return this.now;
+  }
+  
+  synchronized int getScheduledCount() {
+    return this.scheduledTasks.size();
+  }
+  
+  /**
+   * Schedules {@code task} to run {@code delayMillis} after the current time.
+   */
+  synchronized void schedule(int delayMillis, Runnable task) {
+    int dueTime = this.now + delayMillis;
+    int position = this.scheduledTasks.size();
+    while (position > 0 && this.scheduledTasks.get(position - 1).dueTime > dueTime) {
+      position--;
+    }
+    this.scheduledTasks.add(position, new ScheduledTask(dueTime, task));
+  }
+  
+  /**
+   * Advances the clock by {@code millis}, running all tasks that become due in the order of
+   * their due time. The clock shows the due time of each task while it runs.
+   */
+  void advance(int millis) {
+    int targetTime;
+    synchronized (this) {
+      targetTime = this.now + millis;
+    }
+    runDueTasks(targetTime);
+    synchronized (this) {
+      if (this.now < targetTime) {
+        this.now = targetTime;
+      }
+    }
+  }
+  
+  /**
+   * Runs all scheduled tasks including the ones they schedule, advancing the clock to the
+   * due time of each.
+   */
+  void flush() {
+    runDueTasks(Integer.MAX_VALUE);
+  }
+  
+  private void runDueTasks(int time) {
+    ScheduledTask next;
+    while ((next = pollDueTask(time)) != null) {
+      next.task.run();
+    }
+  }
+  
+  private synchronized ScheduledTask pollDueTask(int time) {
+    if (this.scheduledTasks.isEmpty() || this.scheduledTasks.get(0).dueTime > time) {
+      return null;
+    }
+    ScheduledTask next = this.scheduledTasks.remove(0);
+    this.now = next.dueTime;
+    return next;
+  }
+  
+  private static class ScheduledTask {
+    
+    private final int dueTime;
+    private final Runnable task;
+    
+    ScheduledTask(int dueTime, Runnable task) {
+      this.dueTime = dueTime;
+      this.task = task;
+    }
+  }
+}
@@ -23,13 +23,16 @@ import com.google.gwt.testing.easygwtmock.client.Capture;
 /**
  * Matches any argument and saves it in the provided capture for later usage.
  * 
+ * <p>Matching keeps no state. The expected call captures the argument of the call it is
+ * invoked with, so matching calls for an error message, maybe in another thread, never
+ * changes what is captured.
+ * 
  * @author Michael Goderbauer
  * Originally written for EasyMock {@link "www.easymock.org"} by Henri Tremblay
  */
 public class ArgumentCapture implements ArgumentMatcher {
 
   private Capture<? extends Object> capture;
-  private Object potentialValue;
   
   public ArgumentCapture(Capture<? extends Object> capture) {
     this.capture = capture;
@@ -37,7 +40,6 @@ public class ArgumentCapture implements ArgumentMatcher {
   
   @Override
   public boolean matches(Object argument) {
-    this.potentialValue = argument;
     return true;
   }
 
@@ -46,7 +48,7 @@ public class ArgumentCapture implements ArgumentMatcher {
     buffer.append("captured(").append(this.capture).append(")");
   }
   
-  public void captureArgument() {
-    this.capture.captureValue(this.potentialValue);
+  public void captureArgument(Object argument) {
+    this.capture.captureValue(argument);
   }
 }
@@ -30,9 +30,37 @@ import com.google.gwt.testing.easygwtmock.client.internal.Utils;
 public class Equals implements ArgumentMatcher {
 
   private Object expected;
+  
+  // the expected value as primitive, used to match unboxed arguments
+  private Class<?> primitiveType;
+  private double primitiveValue;
+  private long longValue;
 
   public Equals(Object expected) {
       this.expected = expected;
+      if (expected instanceof Integer) {
+        setPrimitive(int.class, (Integer) expected);
+      } else if (expected instanceof Long) {
+        this.primitiveType = long.class;
+        this.longValue = (Long) expected;
+      } else if (expected instanceof Double) {
+        setPrimitive(double.class, (Double) expected);
+      } else if (expected instanceof Boolean) {
+        setPrimitive(boolean.class, ((Boolean) expected) ? 1 : 0);
+      } else if (expected instanceof Float) {
+        setPrimitive(float.class, (Float) expected);
+      } else if (expected instanceof Character) {
+        setPrimitive(char.class, (Character) expected);
+      } else if (expected instanceof Short) {
+        setPrimitive(short.class, (Short) expected);
+      } else if (expected instanceof Byte) {
+        setPrimitive(byte.class, (Byte) expected);
+      }
+  }
+  
+  private void setPrimitive(Class<?> type, double value) {
+    this.primitiveType = type;
+    this.primitiveValue = value;
   }
   
   @Override
@@ -43,6 +71,33 @@ public class Equals implements ArgumentMatcher {
     return expected.equals(actual);
   }
 
+  /**
+   * Matches an unboxed argument of the given primitive type (except long) without boxing it.
+   * Gives the same result as {@link #matches(Object)} for the boxed argument.
+   */
+  public boolean matchesPrimitive(Class<?> type, double actual) {
+    if (type != this.primitiveType) {
+      return false;
+    }
+    if (actual == this.primitiveValue) {
+      // Double.equals() and Float.equals() distinguish 0.0 and -0.0
+      return actual != 0 || 1 / actual == 1 / this.primitiveValue;
+    }
+    // Double.equals() and Float.equals() consider NaN equal to itself
+    return actual != actual && this.primitiveValue != this.primitiveValue;
+  }
+
+  /**
+   * Matches an unboxed long argument without boxing it.
+   */
+  public boolean matchesLong(long actual) {
+    return this.primitiveType == long.class && actual == this.longValue;
+  }
+
+  public Object getExpected() {
+    return this.expected;
+  }
+
   @Override
   public void appendTo(StringBuffer buffer) {
     Utils.appendArgumentTo(this.expected, buffer);
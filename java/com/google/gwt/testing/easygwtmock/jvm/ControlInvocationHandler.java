@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.jvm;
+
+import com.google.gwt.testing.easygwtmock.client.Concurrent;
+import com.google.gwt.testing.easygwtmock.client.MocksControl;
+import com.google.gwt.testing.easygwtmock.client.Nice;
+import com.google.gwt.testing.easygwtmock.client.StrictOrder;
+import com.google.gwt.testing.easygwtmock.client.internal.MocksControlBase;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Implements an interface extending {@link MocksControl} with a dynamic proxy: methods of
+ * MocksControl are delegated to a {@link MocksControlBase}, all other methods create
+ * mocks backed by {@link MockInvocationHandler}.
+ */
+class ControlInvocationHandler implements InvocationHandler {
+  
+  private final Class<?> controlInterface;
+  private final MocksControlBase control;
+  
+  private ControlInvocationHandler(Class<?> controlInterface) {
+    this.controlInterface = controlInterface;
+    this.control = new MocksControlBase(
+        controlInterface.getAnnotation(StrictOrder.class) != null,
+        controlInterface.getAnnotation(Concurrent.class) != null) {};
+  }
+  
+  /**
+   * Returns a new proxy implementing {@code controlInterface}.
+   * 
+   * @throws IllegalArgumentException if a method of the interface cannot create a mock with
+   *     a proxy
+   */
+  static <T extends MocksControl> T createControl(Class<T> controlInterface) {
+    if (!controlInterface.isInterface()) {
+      throw new IllegalArgumentException(controlInterface.getName() + " is not an interface");
+    }
+    
+    Set<String> reservedNames = getReservedNames();
+    for (Method method : controlInterface.getMethods()) {
+      if (method.getDeclaringClass() == MocksControl.class) {
+        // Method is implemented in MocksControlBase
+        continue;
+      }
+      String methodName = controlInterface.getSimpleName() + "." + method.getName();
+      if (reservedNames.contains(method.getName())) {
+        throw new IllegalArgumentException(method.getName() +
+            " is a reserved name. Do not use it in the extended MocksControl interface");
+      }
+      if (!method.getReturnType().isInterface()) {
+        throw new IllegalArgumentException(method.getReturnType().getName() +
+            " is not an interface, proxies can only mock interfaces: " + methodName);
+      }
+      if (method.getParameterTypes().length != 0) {
+        throw new IllegalArgumentException("This method should not have parameters because " +
+            "it creates a mock of an interface: " + methodName);
+      }
+    }
+    
+    return controlInterface.cast(Proxy.newProxyInstance(controlInterface.getClassLoader(),
+        new Class<?>[] {controlInterface}, new ControlInvocationHandler(controlInterface)));
+  }
+  
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    Class<?> declaringClass = method.getDeclaringClass();
+    
+    if (declaringClass == Object.class) {
+      String name = method.getName();
+      if (name.equals("equals")) {
+        return proxy == args[0];
+      } else if (name.equals("hashCode")) {
+        return System.identityHashCode(proxy);
+      }
+      return this.controlInterface.getName() + "@" +
+          Integer.toHexString(System.identityHashCode(proxy));
+    }
+    
+    if (declaringClass == MocksControl.class) {
+      try {
+        return method.invoke(this.control, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+    
+    Object mock = MockInvocationHandler.createMock(method.getReturnType(), this.control);
+    return isNiceMock(method) ? this.control.setToNice(mock) : mock;
+  }
+  
+  private boolean isNiceMock(Method method) {
+    boolean isNice = false; //default
+    
+    Nice interfaceAnnotation = this.controlInterface.getAnnotation(Nice.class);
+    if (interfaceAnnotation != null) {
+      isNice = interfaceAnnotation.value();
+    }
+    
+    Nice methodAnotation = method.getAnnotation(Nice.class);
+    if (methodAnotation != null) {
+      isNice = methodAnotation.value();
+    }
+    
+    return isNice;
+  }
+  
+  private static Set<String> getReservedNames() {
+    Set<String> result = new HashSet<String>();
+    for (Method method : MocksControlBase.class.getDeclaredMethods()) {
+      if (!Modifier.isPrivate(method.getModifiers())) {
+        result.add(method.getName());
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.jvm;
+
+import com.google.gwt.testing.easygwtmock.client.MocksControl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Creates MocksControls in tests that run on a plain JVM, where {@code GWT.create()} is not
+ * available. The controls are either generated at compile time by
+ * {@link com.google.gwt.testing.easygwtmock.rebind.MocksProcessor} or built at runtime
+ * from dynamic proxies.
+ */
+public class JvmMocks {
+  
+  private JvmMocks() {
+  }
+  
+  /**
+   * Returns a new instance of the control generated for {@code controlInterface}.
+   * 
+   * @throws IllegalArgumentException if no control was generated for the interface
+   */
+  public static <T extends MocksControl> T create(Class<T> controlInterface) {
+    String name = controlInterface.getName();
+    int packageEnd = name.lastIndexOf('.');
+    // nested types are named like Outer_InnerImpl, as in MocksControlGenerator
+    String implName = name.substring(0, packageEnd + 1)
+        + name.substring(packageEnd + 1).replace('$', '_') + "Impl";
+    
+    Class<?> implClass;
+    try {
+      implClass = Class.forName(implName, true, controlInterface.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException("No MocksControl was generated for "
+          + controlInterface.getName() + ", compile it with javac -processor "
+          + "com.google.gwt.testing.easygwtmock.rebind.MocksProcessor", e);
+    }
+    
+    try {
+      return controlInterface.cast(implClass.getDeclaredConstructor().newInstance());
+    } catch (InstantiationException e) {
+      throw new IllegalStateException(e);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+  
+  /**
+   * Returns a new control for {@code controlInterface} built from dynamic proxies, which does
+   * not require a compile step. Proxies can only mock interfaces.
+   * 
+   * @throws IllegalArgumentException if a method of the interface creates a mock of a class
+   *     or has parameters
+   */
+  public static <T extends MocksControl> T createProxy(Class<T> controlInterface) {
+    return ControlInvocationHandler.createControl(controlInterface);
+  }
+  
+  /**
+   * Writes the trace recorded by {@code control} to {@code file}, e.g. to open it in a trace
+   * viewer after the test ran.
+   * 
+   * @see MocksControl#recordTrace()
+   */
+  public static void writeTrace(MocksControl control, File file) throws IOException {
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      writer.write(control.getTraceJson());
+    } finally {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.jvm;
+
+import com.google.gwt.testing.easygwtmock.client.internal.Call;
+import com.google.gwt.testing.easygwtmock.client.internal.Method;
+import com.google.gwt.testing.easygwtmock.client.internal.MocksControlBase;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Turns the invocations of a proxy mock into {@link Call}s dispatched to the control, like
+ * the mock methods generated by {@link com.google.gwt.testing.easygwtmock.rebind.MocksGenerator}
+ * do.
+ */
+class MockInvocationHandler implements InvocationHandler {
+  
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  
+  private final String name;
+  private final MocksControlBase mocksControl;
+  // Method descriptors are created once per reflected method of the mock, like the methods
+  // array of a generated mock. They are held by the mock, so they don't keep the classes of
+  // its interface loaded once the mock is gone.
+  private final ConcurrentMap<java.lang.reflect.Method, Method> methods;
+  
+  private MockInvocationHandler(String name, MocksControlBase mocksControl) {
+    this.name = name;
+    this.mocksControl = mocksControl;
+    this.methods = new ConcurrentHashMap<java.lang.reflect.Method, Method>();
+  }
+  
+  /**
+   * Returns a new proxy mock of {@code interfaceToMock}.
+   */
+  static Object createMock(Class<?> interfaceToMock, MocksControlBase mocksControl) {
+    // named like JClassType.getName(), e.g. Outer.Inner
+    String name = interfaceToMock.getName()
+        .substring(interfaceToMock.getName().lastIndexOf('.') + 1).replace('$', '.');
+    return Proxy.newProxyInstance(interfaceToMock.getClassLoader(),
+        new Class<?>[] {interfaceToMock}, new MockInvocationHandler(name, mocksControl));
+  }
+  
+  @Override
+  public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) {
+    if (method.getDeclaringClass() == Object.class) {
+      return invokeObjectMethod(proxy, method.getName(), args);
+    }
+    
+    Call call = new Call(proxy, getMethod(method), getArguments(method, args));
+    // rethrowing exceptions is done by dispatch()
+    return this.mocksControl.dispatch(call);
+  }
+  
+  /**
+   * Default implementations of Object's methods, see
+   * {@link com.google.gwt.testing.easygwtmock.rebind.MocksGenerator}.
+   */
+  private Object invokeObjectMethod(Object proxy, String methodName, Object[] args) {
+    this.mocksControl.unmockableCallTo(methodName + "()");
+    if (methodName.equals("equals")) {
+      return proxy == args[0];
+    } else if (methodName.equals("hashCode")) {
+      return System.identityHashCode(proxy);
+    }
+    return "Mock for " + this.name;
+  }
+  
+  private Method getMethod(java.lang.reflect.Method method) {
+    Method result = this.methods.get(method);
+    if (result == null) {
+      result = new Method(method.getName(), method.getReturnType(),
+          method.getParameterTypes(), method.getExceptionTypes());
+      Method existing = this.methods.putIfAbsent(method, result);
+      if (existing != null) {
+        result = existing;
+      }
+    }
+    return result;
+  }
+  
+  /**
+   * Returns the arguments of the call, the elements of a varargs array are added as
+   * separate arguments like {@link Call#addVarArgument(Object[])} does.
+   */
+  private static Object[] getArguments(java.lang.reflect.Method method, Object[] args) {
+    if (args == null) {
+      return NO_ARGUMENTS;
+    }
+    if (!method.isVarArgs()) {
+      return args;
+    }
+    
+    int fixedCount = args.length - 1;
+    Object varArgs = args[fixedCount];
+    int varArgsCount = Array.getLength(varArgs);
+    Object[] arguments = new Object[fixedCount + varArgsCount];
+    System.arraycopy(args, 0, arguments, 0, fixedCount);
+    for (int i = 0; i < varArgsCount; i++) {
+      arguments[fixedCount + i] = Array.get(varArgs, i);
+    }
+    return arguments;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JConstructor;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JPackage;
+import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
+import com.google.gwt.core.ext.typeinfo.JType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds {@link MockedType}s from the GWT type oracle.
+ */
+class GwtMockedTypes {
+  
+  private GwtMockedTypes() {
+  }
+  
+  static MockedType of(JClassType typeToMock) {
+    JPackage typePackage = typeToMock.getPackage();
+    
+    List<String> typeArguments = new ArrayList<String>();
+    if (typeToMock.isParameterized() != null) {
+      for (JClassType typeArgument : typeToMock.isParameterized().getTypeArgs()) {
+        typeArguments.add(typeArgument.getParameterizedQualifiedSourceName());
+      }
+    }
+    
+    List<MockedMethod> methods = new ArrayList<MockedMethod>();
+    for (JMethod method : typeToMock.getOverridableMethods()) {
+      methods.add(toMockedMethod(method));
+    }
+    
+    List<List<MockedParameter>> constructors = new ArrayList<List<MockedParameter>>();
+    for (JConstructor constructor : typeToMock.getConstructors()) {
+      constructors.add(toMockedParameters(constructor.getParameters()));
+    }
+    
+    return new MockedType(typePackage == null ? "" : typePackage.getName(),
+        typeToMock.getName(), typeToMock.getParameterizedQualifiedSourceName(), typeArguments,
+        typeToMock.isInterface() != null, methods, constructors);
+  }
+  
+  private static MockedMethod toMockedMethod(JMethod method) {
+    List<String> throwables = new ArrayList<String>();
+    for (JClassType throwable : method.getThrows()) {
+      throwables.add(throwable.getErasedType().getQualifiedSourceName());
+    }
+    
+    JType returnType = method.getReturnType();
+    JPrimitiveType primitiveType = returnType.isPrimitive();
+    String returnCast;
+    if (primitiveType == JPrimitiveType.VOID) {
+      returnCast = null;
+    } else if (primitiveType != null) {
+      returnCast = primitiveType.getQualifiedBoxedSourceName();
+    } else if (returnType.isTypeParameter() != null) {
+      returnCast = returnType.isTypeParameter().getName();
+    } else {
+      returnCast = returnType.getQualifiedSourceName();
+    }
+    
+    return new MockedMethod(method.getName(),
+        method.getReadableDeclaration(false, true, false, false, true),
+        toMockedParameters(method.getParameters()), method.isVarArgs(), throwables,
+        returnType.getErasedType().getQualifiedSourceName(), returnCast);
+  }
+  
+  private static List<MockedParameter> toMockedParameters(JParameter[] parameters) {
+    List<MockedParameter> result = new ArrayList<MockedParameter>();
+    for (JParameter parameter : parameters) {
+      JType type = parameter.getType();
+      result.add(new MockedParameter(parameter.getName(),
+          type.getParameterizedQualifiedSourceName(),
+          type.getErasedType().getQualifiedSourceName(),
+          type.isPrimitive() != null, type.isArray() != null));
+    }
+    return result;
+  }
+}
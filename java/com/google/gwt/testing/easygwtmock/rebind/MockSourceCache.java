@@ -0,0 +1,205 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * On-disk cache of generated mock sources, shared by all GWT compiles on a machine.
+ * 
+ * <p>Entries are content-addressed: the key is a hash of everything the generated source
+ * depends on, so an entry never has to be invalidated. Entries are written to a temporary
+ * file and renamed into place, concurrent compiles therefore never read partial entries.
+ * If two compiles write the same entry, both write identical content. The cache is bounded:
+ * when a write exceeds the maximum number of entries, the least recently used entries are
+ * deleted, leaving some room for the following writes. Reading an entry counts as a use.
+ * 
+ * <p>Listing the cache directory is expensive, so the entries are only counted on the first
+ * write and when deleting them; writes in between are counted in memory. Entries written by
+ * other compiles in the meantime are noticed at the next listing, so the cache may exceed its
+ * maximum for a while. Temporary files left behind by compiles that were killed while
+ * writing are deleted when the directory is listed, once they are old enough that no
+ * compile can still be writing them.
+ * 
+ * <p>The cache is disabled unless the system property {@value #DIRECTORY_PROPERTY} names
+ * the cache directory. {@value #MAX_ENTRIES_PROPERTY} sets the maximum number of entries.
+ */
+class MockSourceCache {
+  
+  static final String DIRECTORY_PROPERTY = "easygwtmock.cache.dir";
+  static final String MAX_ENTRIES_PROPERTY = "easygwtmock.cache.maxEntries";
+  static final int DEFAULT_MAX_ENTRIES = 5000;
+  
+  private static final String SUFFIX = ".java";
+  private static final String TEMP_SUFFIX = ".tmp";
+  // temporary files not touched for this long are left over from interrupted writes
+  static final long STALE_TEMP_MILLIS = 60 * 60 * 1000L;
+  
+  // the cache configured by system properties, shared by all generators of a compile
+  private static MockSourceCache shared;
+  
+  private final File directory;
+  private final int maxEntries;
+  // number of entries counted when the directory was last listed plus the entries written
+  // since, -1 if the directory was not listed yet
+  private int entryCount;
+  
+  MockSourceCache(File directory, int maxEntries) {
+    this.directory = directory;
+    this.maxEntries = maxEntries;
+    this.entryCount = -1;
+  }
+  
+  /**
+   * Returns the cache configured by system properties or null if caching is disabled.
+   */
+  static synchronized MockSourceCache fromSystemProperties() {
+    String directory = System.getProperty(DIRECTORY_PROPERTY);
+    if (directory == null || directory.length() == 0) {
+      return null;
+    }
+    File directoryFile = new File(directory);
+    int maxEntries = Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES);
+    if (shared == null || !shared.directory.equals(directoryFile)
+        || shared.maxEntries != maxEntries) {
+      shared = new MockSourceCache(directoryFile, maxEntries);
+    }
+    return shared;
+  }
+  
+  /**
+   * Returns the cached source for {@code key} or null if there is none.
+   */
+  String get(String key) {
+    File entry = getEntry(key);
+    try {
+      InputStream in = new FileInputStream(entry);
+      try {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          content.write(buffer, 0, read);
+        }
+        entry.setLastModified(System.currentTimeMillis());
+        return content.toString("UTF-8");
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      // missing or just evicted by another compile
+      return null;
+    }
+  }
+  
+  /**
+   * Stores {@code source} under {@code key}. Failures are ignored, the cache is an optimization.
+   */
+  void put(String key, String source) {
+    if (!this.directory.isDirectory() && !this.directory.mkdirs()
+        && !this.directory.isDirectory()) {
+      return;
+    }
+    try {
+      File temp = File.createTempFile(key, TEMP_SUFFIX, this.directory);
+      try {
+        OutputStream out = new FileOutputStream(temp);
+        try {
+          out.write(source.getBytes("UTF-8"));
+        } finally {
+          out.close();
+        }
+        // fails if another compile stored the same entry in the meantime on some platforms
+        temp.renameTo(getEntry(key));
+      } finally {
+        temp.delete();
+      }
+    } catch (IOException e) {
+      return;
+    }
+    countWrite();
+  }
+  
+  /**
+   * Counts a written entry and evicts entries if the cache may be full.
+   */
+  private synchronized void countWrite() {
+    if (this.entryCount >= 0 && this.entryCount < this.maxEntries) {
+      this.entryCount++;
+      return;
+    }
+    this.entryCount = evict();
+  }
+  
+  /**
+   * Deletes the least recently used entries if there are more than {@code maxEntries},
+   * until a tenth of the entries is free. Deletes stale temporary files as well.
+   * 
+   * @return the number of entries left, or -1 if the directory cannot be listed
+   */
+  private int evict() {
+    File[] entries = this.directory.listFiles();
+    if (entries == null) {
+      return -1;
+    }
+    long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+    int count = 0;
+    for (int i = 0; i < entries.length; i++) {
+      String name = entries[i].getName();
+      if (name.endsWith(SUFFIX)) {
+        entries[count++] = entries[i];
+      } else if (name.endsWith(TEMP_SUFFIX) && entries[i].lastModified() < staleBefore) {
+        // another compile may have deleted it already
+        entries[i].delete();
+      }
+    }
+    if (count <= this.maxEntries) {
+      return count;
+    }
+    int keep = this.maxEntries - this.maxEntries / 10;
+    
+    final long[] lastModified = new long[count];
+    Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      lastModified[i] = entries[i].lastModified();
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return lastModified[a] < lastModified[b] ? -1 : lastModified[a] == lastModified[b] ? 0 : 1;
+      }
+    });
+    for (int i = 0; i < count - keep; i++) {
+      // another compile may have deleted it already
+      entries[order[i]].delete();
+    }
+    return keep;
+  }
+  
+  private File getEntry(String key) {
+    return new File(this.directory, key + SUFFIX);
+  }
+}
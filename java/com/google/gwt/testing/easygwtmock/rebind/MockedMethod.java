@@ -0,0 +1,84 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+import java.util.List;
+
+/**
+ * Describes a method of a {@link MockedType}.
+ */
+class MockedMethod {
+  
+  private final String name;
+  private final String declaration;
+  private final List<MockedParameter> parameters;
+  private final boolean isVarArgs;
+  private final List<String> throwables;
+  private final String erasedReturnType;
+  private final String returnCast;
+  
+  /**
+   * @param declaration the declaration used to override the method, e.g.
+   *     {@code public <T> T foo(java.lang.String name) throws java.io.IOException}
+   * @param throwables erased qualified source names of the declared throwables
+   * @param erasedReturnType erased qualified source name of the return type
+   * @param returnCast the type to cast the answer to before returning it, or null for void
+   */
+  MockedMethod(String name, String declaration, List<MockedParameter> parameters,
+               boolean isVarArgs, List<String> throwables, String erasedReturnType,
+               String returnCast) {
+    this.name = name;
+    this.declaration = declaration;
+    this.parameters = parameters;
+    this.isVarArgs = isVarArgs;
+    this.throwables = throwables;
+    this.erasedReturnType = erasedReturnType;
+    this.returnCast = returnCast;
+  }
+
+  String getName() {
+    return this.name;
+  }
+
+  String getDeclaration() {
+    return this.declaration;
+  }
+
+  List<MockedParameter> getParameters() {
+    return this.parameters;
+  }
+
+  boolean isVarArgs() {
+    return this.isVarArgs;
+  }
+
+  List<String> getThrowables() {
+    return this.throwables;
+  }
+
+  String getErasedReturnType() {
+    return this.erasedReturnType;
+  }
+
+  String getReturnCast() {
+    return this.returnCast;
+  }
+  
+  boolean isVoid() {
+    return this.returnCast == null;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+/**
+ * Describes a parameter of a {@link MockedMethod} or of a constructor of a {@link MockedType}.
+ */
+class MockedParameter {
+  
+  private final String name;
+  private final String type;
+  private final String erasedType;
+  private final boolean isPrimitive;
+  private final boolean isArray;
+  
+  /**
+   * @param type parameterized qualified source name of the parameter type
+   * @param erasedType erased qualified source name of the parameter type
+   */
+  MockedParameter(String name, String type, String erasedType, boolean isPrimitive,
+                  boolean isArray) {
+    this.name = name;
+    this.type = type;
+    this.erasedType = erasedType;
+    this.isPrimitive = isPrimitive;
+    this.isArray = isArray;
+  }
+
+  String getName() {
+    return this.name;
+  }
+
+  String getType() {
+    return this.type;
+  }
+
+  String getErasedType() {
+    return this.erasedType;
+  }
+
+  boolean isPrimitive() {
+    return this.isPrimitive;
+  }
+
+  boolean isArray() {
+    return this.isArray;
+  }
+}
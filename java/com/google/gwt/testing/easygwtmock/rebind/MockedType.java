@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+import java.util.List;
+
+/**
+ * Describes a type to mock with everything needed to generate its mock class. Built from the
+ * GWT type oracle by {@link GwtMockedTypes} and from javac's type model by
+ * {@link MocksProcessor}, so both generate the same mocks.
+ */
+class MockedType {
+  
+  private final String packageName;
+  private final String name;
+  private final String parameterizedQualifiedSourceName;
+  private final List<String> typeArguments;
+  private final boolean isInterface;
+  private final List<MockedMethod> overridableMethods;
+  private final List<List<MockedParameter>> constructors;
+  
+  /**
+   * @param packageName the package of the generated mock class, usually that of the type
+   * @param name the name of the type without package, nested types are separated by dots
+   * @param typeArguments parameterized qualified source names of the type arguments, empty
+   *     if the type is not parameterized
+   * @param constructors the parameters of each accessible constructor
+   */
+  MockedType(String packageName, String name, String parameterizedQualifiedSourceName,
+             List<String> typeArguments, boolean isInterface,
+             List<MockedMethod> overridableMethods, List<List<MockedParameter>> constructors) {
+    this.packageName = packageName;
+    this.name = name;
+    this.parameterizedQualifiedSourceName = parameterizedQualifiedSourceName;
+    this.typeArguments = typeArguments;
+    this.isInterface = isInterface;
+    this.overridableMethods = overridableMethods;
+    this.constructors = constructors;
+  }
+
+  String getPackageName() {
+    return this.packageName;
+  }
+
+  String getName() {
+    return this.name;
+  }
+
+  String getParameterizedQualifiedSourceName() {
+    return this.parameterizedQualifiedSourceName;
+  }
+
+  List<String> getTypeArguments() {
+    return this.typeArguments;
+  }
+
+  boolean isInterface() {
+    return this.isInterface;
+  }
+
+  List<MockedMethod> getOverridableMethods() {
+    return this.overridableMethods;
+  }
+
+  List<List<MockedParameter>> getConstructors() {
+    return this.constructors;
+  }
+}
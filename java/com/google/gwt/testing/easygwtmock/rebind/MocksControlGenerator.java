@@ -16,8 +16,11 @@
 
 package com.google.gwt.testing.easygwtmock.rebind;
 
-import com.google.gwt.core.ext.Generator;
+import com.google.gwt.core.ext.CachedGeneratorResult;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.IncrementalGenerator;
+import com.google.gwt.core.ext.RebindMode;
+import com.google.gwt.core.ext.RebindResult;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
@@ -27,14 +30,18 @@ import com.google.gwt.core.ext.typeinfo.JPackage;
 import com.google.gwt.core.ext.typeinfo.JParameter;
 import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
+import com.google.gwt.testing.easygwtmock.client.Concurrent;
 import com.google.gwt.testing.easygwtmock.client.MocksControl;
 import com.google.gwt.testing.easygwtmock.client.Nice;
+import com.google.gwt.testing.easygwtmock.client.StrictOrder;
 import com.google.gwt.testing.easygwtmock.client.internal.MocksControlBase;
 import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
 import com.google.gwt.user.rebind.SourceWriter;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -42,9 +49,29 @@ import java.util.Set;
  * {@link com.google.gwt.testing.easygwtmock.client.MocksControl} giving access to the
  * mocks specified in that interface.
  * 
+ * <p>The generator is incremental: if neither the control interface nor any of the mocked
+ * types changed structurally (see {@link StructuralHash}), all types of the previous run are
+ * reused. Otherwise mocks of unchanged types are still reused.
+ * 
  * @author Michael Goderbauer
  */
-public class MocksControlGenerator extends Generator {
+public class MocksControlGenerator extends IncrementalGenerator {
+  
+  /**
+   * Has to be increased whenever the generated code changes, so that cached results of an
+   * older generator version are not reused.
+   */
+  static final long VERSION_ID = 7L;
+  
+  /**
+   * Client data key of the structural hash of the control interface and all mocked types.
+   */
+  private static final String STRUCTURE_KEY = "structure";
+  
+  @Override
+  public long getVersionId() {
+    return VERSION_ID;
+  }
   
   /**
    * Generates the concrete MocksControl implementation of the {@code typeName} interface and 
@@ -52,8 +79,8 @@ public class MocksControlGenerator extends Generator {
    * {@link com.google.gwt.testing.easygwtmock.rebind.MocksGenerator}
    */
   @Override
-  public String generate(TreeLogger logger, GeneratorContext context, String typeName)
-          throws UnableToCompleteException {
+  public RebindResult generateIncrementally(TreeLogger logger, GeneratorContext context,
+                                            String typeName) throws UnableToCompleteException {
     
     TypeOracle typeOracle = context.getTypeOracle();
     JClassType mockControlInterface = typeOracle.findType(typeName);
@@ -73,11 +100,20 @@ public class MocksControlGenerator extends Generator {
     String packageName = interfacePackage == null ? "" : interfacePackage.getName();
     String newClassName = mockControlInterface.getName().replace(".", "_") + "Impl";
     String fullNewClassName = packageName + "." + newClassName;
+    
+    JClassType markerInterface = typeOracle.findType(MocksControl.class.getCanonicalName());
+    
+    String structure = getStructure(mockControlInterface, markerInterface);
+    CachedGeneratorResult cached = context.getCachedGeneratorResult();
+    if (context.isGeneratorResultCachingEnabled() && cached != null
+        && structure.equals(cached.getClientData(STRUCTURE_KEY))) {
+      return new RebindResult(RebindMode.USE_ALL_CACHED, fullNewClassName);
+    }
          
     PrintWriter printWriter = context.tryCreate(logger, packageName, newClassName);
     if (printWriter == null) {
       // We generated this before.
-      return fullNewClassName;
+      return new RebindResult(RebindMode.USE_EXISTING, fullNewClassName);
     }
     
     ClassSourceFileComposerFactory composer =
@@ -88,8 +124,10 @@ public class MocksControlGenerator extends Generator {
     SourceWriter writer = composer.createSourceWriter(context, printWriter);
     writer.println();
     
+    printConstructor(writer, newClassName, isStrictOrder(mockControlInterface),
+        isConcurrent(mockControlInterface));
+    
     MocksGenerator mocksGenerator = new MocksGenerator(context, logger);
-    JClassType markerInterface = typeOracle.findType(MocksControl.class.getCanonicalName());
     
     Set<String> reservedNames = getMethodNames(composer.getSuperclassName(), logger, typeOracle);
 
@@ -152,33 +190,96 @@ public class MocksControlGenerator extends Generator {
     }
 
     writer.commit(logger);
-    return fullNewClassName;
+    
+    RebindMode mode;
+    if (!context.isGeneratorResultCachingEnabled()) {
+      mode = RebindMode.USE_ALL_NEW_WITH_NO_CACHING;
+    } else if (mocksGenerator.reusedCachedMock()) {
+      mode = RebindMode.USE_PARTIAL_CACHED;
+    } else {
+      mode = RebindMode.USE_ALL_NEW;
+    }
+    RebindResult result = new RebindResult(mode, fullNewClassName);
+    result.putClientData(STRUCTURE_KEY, structure);
+    mocksGenerator.putClientData(result);
+    return result;
+  }
+  
+  /**
+   * Computes the structural hash of everything the generated control and its mocks depend on.
+   */
+  private String getStructure(JClassType mockControlInterface, JClassType markerInterface) {
+    StructuralHash hash = new StructuralHash().add(mockControlInterface);
+    hash.add(String.valueOf(isStrictOrder(mockControlInterface)));
+    hash.add(String.valueOf(isConcurrent(mockControlInterface)));
+    for (JMethod method : mockControlInterface.getOverridableMethods()) {
+      if (method.getEnclosingType().equals(markerInterface)) {
+        continue;
+      }
+      hash.add(String.valueOf(isNiceMock(method, mockControlInterface)));
+      JClassType typeToMock = method.getReturnType().isClassOrInterface();
+      if (typeToMock != null) {
+        hash.add(typeToMock);
+      }
+    }
+    return hash.get();
   }
 
   private void printFactoryMethod(SourceWriter out, JMethod methodToImplement,
       JClassType mockControlInterface, String classToCreate) {
-    out.println("%s {", methodToImplement.getReadableDeclaration(false, false, false, false, true));
+    List<String> parameterNames = new ArrayList<String>();
+    for (JParameter param : methodToImplement.getParameters()) {
+      parameterNames.add(param.getName());
+    }
+    printFactoryMethod(out,
+        methodToImplement.getReadableDeclaration(false, false, false, false, true),
+        parameterNames, isNiceMock(methodToImplement, mockControlInterface), classToCreate);
+  }
+
+  /**
+   * Prints a method of the control interface that creates a mock of {@code classToCreate},
+   * passing its parameters on to the constructor of the mock.
+   */
+  static void printFactoryMethod(SourceWriter out, String declaration,
+      List<String> parameterNames, boolean isNice, String classToCreate) {
+    out.println("%s {", declaration);
     out.indent();
-    if (isNiceMock(methodToImplement, mockControlInterface)) {
+    if (isNice) {
       out.print("return this.setToNice(new %s(", classToCreate);
-      printMatchingParameters(out, methodToImplement);
+      printMatchingParameters(out, parameterNames);
       out.println(").__mockInit(this));");
     } else {
       out.print("return new %s(", classToCreate);
-      printMatchingParameters(out, methodToImplement);
+      printMatchingParameters(out, parameterNames);
       out.println(").__mockInit(this);");
     }
     out.outdent();
     out.println("}");
   }
 
-  private void printMatchingParameters(SourceWriter out, JMethod methodToImplement) {
-    JParameter[] params = methodToImplement.getParameters();
-    for (int i = 0; i < params.length; i++) {
+  /**
+   * Prints the constructor of a control whose interface is annotated with {@link StrictOrder}
+   * or {@link Concurrent}, other controls use the default constructor.
+   */
+  static void printConstructor(SourceWriter out, String newClassName, boolean strictOrder,
+                               boolean concurrent) {
+    if (!strictOrder && !concurrent) {
+      return;
+    }
+    out.println("public %s() {", newClassName);
+    out.indent();
+    out.println("super(%s, %s);", strictOrder, concurrent);
+    out.outdent();
+    out.println("}");
+    out.println();
+  }
+
+  private static void printMatchingParameters(SourceWriter out, List<String> parameterNames) {
+    for (int i = 0; i < parameterNames.size(); i++) {
       if (i > 0) {
         out.print(", ");
       }
-      out.print(params[i].getName());
+      out.print(parameterNames.get(i));
     }
   }
 
@@ -198,6 +299,14 @@ public class MocksControlGenerator extends Generator {
     return isNice;
   }
 
+  private boolean isStrictOrder(JClassType mockControlInterface) {
+    return mockControlInterface.getAnnotation(StrictOrder.class) != null;
+  }
+
+  private boolean isConcurrent(JClassType mockControlInterface) {
+    return mockControlInterface.getAnnotation(Concurrent.class) != null;
+  }
+
   private Set<String> getMethodNames(String className, TreeLogger logger,
                                TypeOracle typeOracle) throws UnableToCompleteException {
     
@@ -16,18 +16,12 @@
 
 package com.google.gwt.testing.easygwtmock.rebind;
 
+import com.google.gwt.core.ext.CachedGeneratorResult;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.RebindResult;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
-import com.google.gwt.core.ext.typeinfo.JConstructor;
-import com.google.gwt.core.ext.typeinfo.JMethod;
-import com.google.gwt.core.ext.typeinfo.JPackage;
-import com.google.gwt.core.ext.typeinfo.JParameter;
-import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
-import com.google.gwt.core.ext.typeinfo.JType;
-import com.google.gwt.testing.easygwtmock.client.UndeclaredThrowableException;
-import com.google.gwt.testing.easygwtmock.client.internal.AssertionErrorWrapper;
 import com.google.gwt.testing.easygwtmock.client.internal.Call;
 import com.google.gwt.testing.easygwtmock.client.internal.Method;
 import com.google.gwt.testing.easygwtmock.client.internal.MocksControlBase;
@@ -35,9 +29,12 @@ import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
 import com.google.gwt.user.rebind.SourceWriter;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -47,64 +44,147 @@ import java.util.Set;
  */
 public class MocksGenerator {
   
+  /**
+   * Prefix of the client data keys under which the structural hash of each mocked type
+   * is cached, followed by the name of the generated mock class.
+   */
+  private static final String MOCK_STRUCTURE_KEY_PREFIX = "mockStructure:";
+  
+  /**
+   * Literals of the default return values of primitive types, by type name.
+   */
+  private static final Map<String, String> DEFAULT_VALUE_LITERALS = new HashMap<String, String>();
+  static {
+    DEFAULT_VALUE_LITERALS.put("byte", "(byte) 0");
+    DEFAULT_VALUE_LITERALS.put("short", "(short) 0");
+    DEFAULT_VALUE_LITERALS.put("int", "0");
+    DEFAULT_VALUE_LITERALS.put("long", "0L");
+    DEFAULT_VALUE_LITERALS.put("float", "0F");
+    DEFAULT_VALUE_LITERALS.put("double", "0D");
+    DEFAULT_VALUE_LITERALS.put("boolean", "false");
+    DEFAULT_VALUE_LITERALS.put("char", "(char) 0");
+  }
+  
   private GeneratorContext context;
   private TreeLogger logger;
+  
+  // structural hashes of the types mocked by this generator, by generated class name
+  private final Map<String, String> mockStructures = new HashMap<String, String>();
+  private boolean reusedCachedMock;
+  
+  private final MockSourceCache sourceCache;
 
   MocksGenerator(GeneratorContext context, TreeLogger logger) {
     this.context = context;
     this.logger = logger;
+    this.sourceCache = MockSourceCache.fromSystemProperties();
   }
   
   /**
-   * Generates a mock class for {@code interfaceToMock}.
+   * Returns true if at least one mock class was reused from the cached generator result.
    */
-  String generateMock(JClassType typeToMock) throws UnableToCompleteException {
+  boolean reusedCachedMock() {
+    return this.reusedCachedMock;
+  }
   
-    JPackage interfacePackage = typeToMock.getPackage();
-    String packageName = interfacePackage == null ? "" : interfacePackage.getName();
-    String newClassName = typeToMock.getName().replace(".", "_") + "Mock";
-    
-    // GenericType<Integer> has to generate a different mock implementation than
-    // GenericType<String>, that's what we check and do here
-    if (typeToMock.isParameterized() != null) {
-      StringBuilder typeList = new StringBuilder();
-      for (JClassType genericArg : typeToMock.isParameterized().getTypeArgs()) {
-        typeList.append(genericArg.getParameterizedQualifiedSourceName());
-      }
-      newClassName += Integer.toHexString(typeList.toString().hashCode());
+  /**
+   * Stores the structural hashes of the generated and reused mocks in {@code result},
+   * so the next generator run can reuse them.
+   */
+  void putClientData(RebindResult result) {
+    for (Map.Entry<String, String> entry : this.mockStructures.entrySet()) {
+      result.putClientData(MOCK_STRUCTURE_KEY_PREFIX + entry.getKey(), entry.getValue());
     }
+  }
+  
+  /**
+   * Generates a mock class for {@code interfaceToMock}.
+   */
+  String generateMock(JClassType typeToMock) throws UnableToCompleteException {
     
+    MockedType mockedType = GwtMockedTypes.of(typeToMock);
+    String packageName = mockedType.getPackageName();
+    String newClassName = getMockClassName(mockedType);
     String fullNewClassName = packageName + "." + newClassName;
     
+    String structure = new StructuralHash().add(typeToMock).get();
+    if (tryReuseFromCache(fullNewClassName, structure)) {
+      this.mockStructures.put(fullNewClassName, structure);
+      this.reusedCachedMock = true;
+      return fullNewClassName;
+    }
+    
     PrintWriter printWriter = this.context.tryCreate(this.logger, packageName, newClassName);
     if (printWriter == null) {
       // We generated this before.
       return fullNewClassName;
     }
+    this.mockStructures.put(fullNewClassName, structure);
+    
+    String cacheKey = null;
+    String source = null;
+    if (this.sourceCache != null) {
+      cacheKey = new StructuralHash().add(String.valueOf(MocksControlGenerator.VERSION_ID))
+          .add(fullNewClassName).add(structure).get();
+      source = this.sourceCache.get(cacheKey);
+    }
+    if (source == null) {
+      source = generateSource(mockedType, newClassName);
+      if (this.sourceCache != null) {
+        this.sourceCache.put(cacheKey, source);
+      }
+    }
+    
+    printWriter.print(source);
+    this.context.commit(this.logger, printWriter);
+    
+    return fullNewClassName;
+  }
+  
+  /**
+   * Returns the simple name of the mock class for {@code typeToMock}.
+   */
+  static String getMockClassName(MockedType typeToMock) {
+    String newClassName = typeToMock.getName().replace(".", "_") + "Mock";
     
+    // GenericType<Integer> has to generate a different mock implementation than
+    // GenericType<String>, that's what we check and do here
+    if (!typeToMock.getTypeArguments().isEmpty()) {
+      StringBuilder typeList = new StringBuilder();
+      for (String genericArg : typeToMock.getTypeArguments()) {
+        typeList.append(genericArg);
+      }
+      newClassName += Integer.toHexString(typeList.toString().hashCode());
+    }
+    return newClassName;
+  }
+  
+  /**
+   * Generates the source of the mock class {@code newClassName} for {@code typeToMock}.
+   * The mock class is in the package of {@code typeToMock}.
+   */
+  static String generateSource(MockedType typeToMock, String newClassName) {
     ClassSourceFileComposerFactory composer = 
-        new ClassSourceFileComposerFactory(packageName, newClassName);
+        new ClassSourceFileComposerFactory(typeToMock.getPackageName(), newClassName);
     composer.addImport(MocksControlBase.class.getCanonicalName());
     composer.addImport(Method.class.getCanonicalName());
     composer.addImport(Call.class.getCanonicalName());
-    composer.addImport(UndeclaredThrowableException.class.getCanonicalName());
-    if (typeToMock.isInterface() != null) {
+    if (typeToMock.isInterface()) {
       composer.addImplementedInterface(typeToMock.getParameterizedQualifiedSourceName());
     } else {
       composer.setSuperclass(typeToMock.getParameterizedQualifiedSourceName());
     }
     
-    SourceWriter sourceWriter = composer.createSourceWriter(this.context, printWriter);
+    StringWriter source = new StringWriter();
+    SourceWriter sourceWriter = composer.createSourceWriter(new PrintWriter(source));
     sourceWriter.println();
     
-    JMethod[] overridableMethods = typeToMock.getOverridableMethods();
-    
-    List<JMethod> methodsToMock = new ArrayList<JMethod>();
+    List<MockedMethod> methodsToMock = new ArrayList<MockedMethod>();
     Set<String> needsDefaultImplementation = new HashSet<String>();
-    for (JMethod method : overridableMethods) {
+    for (MockedMethod method : typeToMock.getOverridableMethods()) {
       if (isSpecialMethodOfObject(method)) {
         needsDefaultImplementation.add(method.getName());
-      } else if (method.getParameterTypes().length == 0 && method.getName().equals("getClass")) {
+      } else if (method.getParameters().isEmpty() && method.getName().equals("getClass")) {
         // ignore, Bug 5026788 in GWT
       } else {
         methodsToMock.add(method);
@@ -116,19 +196,31 @@ public class MocksGenerator {
     printMockMethods(sourceWriter, methodsToMock, newClassName);
     printDefaultMethods(sourceWriter, typeToMock, needsDefaultImplementation);
     
-    sourceWriter.commit(this.logger);
+    // without a generator context the logger is not used
+    sourceWriter.commit(TreeLogger.NULL);
     
-    return fullNewClassName;
+    return source.toString();
+  }
+
+  /**
+   * Reuses the mock class from the cached generator result if the mocked type did not
+   * change structurally since it was generated.
+   */
+  private boolean tryReuseFromCache(String fullClassName, String structure) {
+    CachedGeneratorResult cached = this.context.getCachedGeneratorResult();
+    return this.context.isGeneratorResultCachingEnabled() && cached != null
+        && structure.equals(cached.getClientData(MOCK_STRUCTURE_KEY_PREFIX + fullClassName))
+        && this.context.tryReuseTypeFromCache(fullClassName);
   }
 
-  private boolean isSpecialMethodOfObject(JMethod method) {
+  private static boolean isSpecialMethodOfObject(MockedMethod method) {
     String name = method.getName();
-    JType[] types = method.getParameterTypes();
-    return types.length == 0 && (name.equals("finalize") ||
-                                 name.equals("hashCode") ||
-                                 name.equals("toString")) ||
-           types.length == 1 && name.equals("equals") &&
-               types[0].getQualifiedSourceName().equals("java.lang.Object");
+    List<MockedParameter> params = method.getParameters();
+    return params.size() == 0 && (name.equals("finalize") ||
+                                  name.equals("hashCode") ||
+                                  name.equals("toString")) ||
+           params.size() == 1 && name.equals("equals") &&
+               params.get(0).getErasedType().equals("java.lang.Object");
   }
 
   /**
@@ -137,10 +229,11 @@ public class MocksGenerator {
    * methods of Object listed in the methods parameter. If typeToMock is an interface
    * it will always print default implementations for all methods of Object.
    */
-  private void printDefaultMethods(SourceWriter writer, JClassType typeToMock, Set<String> methods) {
+  private static void printDefaultMethods(SourceWriter writer, MockedType typeToMock,
+                                          Set<String> methods) {
     
     // always print default implementations for interfaces
-    boolean isInterface = typeToMock.isInterface() != null;
+    boolean isInterface = typeToMock.isInterface();
     
     if (isInterface || methods.contains("equals")) {
       writer.println("public boolean equals(Object obj) {");
@@ -184,75 +277,108 @@ public class MocksGenerator {
   }
   
   /**
-   * Prints required fields for mock class.
+   * Prints required fields for mock class. The methods are fully resolved: default return
+   * values and return type flags are literals, declared throwables are checked by generated
+   * instanceof tests, so the mock never inspects classes at runtime.
    */
-  private void printFields(SourceWriter sourceWriter, List<JMethod> methodsToMock) {
+  private static void printFields(SourceWriter sourceWriter, List<MockedMethod> methodsToMock) {
 
-    StringBuilder throwableArray = 
-        new StringBuilder("private static final Class<?>[][] throwables = {");
     StringBuilder argumentTypesArray = 
         new StringBuilder("private static final Class<?>[][] argumentTypes = {");
     StringBuilder methodArray = 
         new StringBuilder("private static final Method[] methods = {");
+    boolean declaresThrowables = false;
     
     for (int i = 0; i < methodsToMock.size(); i++) {
-      JMethod method = methodsToMock.get(i);
-      
-      throwableArray.append("{");
-      for (JClassType throwable : method.getThrows()) {
-        throwableArray
-            .append(throwable.getQualifiedSourceName()).append(".class, ");
-      }
-      if (method.getThrows().length != 0) {
-        throwableArray.setLength(throwableArray.length() - 2);
-      }
-      throwableArray.append("}, ");
+      MockedMethod method = methodsToMock.get(i);
       
       argumentTypesArray.append("{");
-      for (JType argumentType : method.getParameterTypes()) {
-        argumentTypesArray
-            .append(argumentType.getErasedType().getQualifiedSourceName()).append(".class, ");
+      for (MockedParameter argument : method.getParameters()) {
+        argumentTypesArray.append(argument.getErasedType()).append(".class, ");
       }
-      if (method.getParameterTypes().length != 0) {
+      if (method.getParameters().size() != 0) {
         argumentTypesArray.setLength(argumentTypesArray.length() - 2);
       }
       argumentTypesArray.append("}, ");
       
+      String returnType = method.getErasedReturnType();
+      String defaultValue = DEFAULT_VALUE_LITERALS.get(returnType);
+      boolean hasThrowables = method.getThrowables().size() != 0;
+      declaresThrowables |= hasThrowables;
       methodArray
           .append("new Method(\"").append(method.getName()).append("\", ")
-          .append(method.getReturnType().getErasedType().getQualifiedSourceName())
-          .append(".class, argumentTypes[").append(i).append("], ")
-          .append("throwables[").append(i).append("]), ");
+          .append("argumentTypes[").append(i).append("], ")
+          .append(defaultValue == null ? "null" : defaultValue).append(", ")
+          .append(returnType.equals("void")).append(", ")
+          .append(defaultValue != null || returnType.equals("void")).append(", ")
+          .append(hasThrowables ? "throwables" : "null").append(", ")
+          .append(i).append("), ");
     }
     
     if (methodsToMock.size() != 0) {
-      throwableArray.setLength(throwableArray.length() - 2);
       argumentTypesArray.setLength(argumentTypesArray.length() - 2);
       methodArray.setLength(methodArray.length() - 2);
     }
-    throwableArray.append("};");
     argumentTypesArray.append("};");
     methodArray.append("};");
     
-    sourceWriter.println(throwableArray.toString());
+    if (declaresThrowables) {
+      printDeclaredThrowables(sourceWriter, methodsToMock);
+    }
     sourceWriter.println(argumentTypesArray.toString());
     sourceWriter.println(methodArray.toString());
     sourceWriter.println("private MocksControlBase mocksControl;");
     sourceWriter.println();
   }
 
+  /**
+   * Prints the check of the declared throwables of all methods, with a case of instanceof
+   * tests for each method that declares throwables.
+   */
+  private static void printDeclaredThrowables(SourceWriter out,
+                                              List<MockedMethod> methodsToMock) {
+    out.println("private static final Method.DeclaredThrowables throwables =");
+    out.indent();
+    out.println("new Method.DeclaredThrowables() {");
+    out.indent();
+    out.println("public boolean isDeclared(int methodIndex, Throwable throwable) {");
+    out.indent();
+    out.println("switch (methodIndex) {");
+    for (int i = 0; i < methodsToMock.size(); i++) {
+      List<String> throwables = methodsToMock.get(i).getThrowables();
+      if (throwables.size() == 0) {
+        continue;
+      }
+      StringBuilder check = new StringBuilder("case ").append(i).append(": return ");
+      for (int j = 0; j < throwables.size(); j++) {
+        if (j > 0) {
+          check.append(" || ");
+        }
+        check.append("throwable instanceof ").append(throwables.get(j));
+      }
+      out.println(check.append(";").toString());
+    }
+    out.println("default: return false;");
+    out.println("}");
+    out.outdent();
+    out.println("}");
+    out.outdent();
+    out.println("};");
+    out.outdent();
+  }
+
   /**
    * Prints each constructor for the mock class, and a hidden init method.
    */
-  private void printConstructors(SourceWriter out, String newClassName,
-      JConstructor[] constructors) {
+  private static void printConstructors(SourceWriter out, String newClassName,
+      List<List<MockedParameter>> constructors) {
 
-    if (constructors.length == 0) {
+    if (constructors.size() == 0) {
       // probably an interface
       out.print("public  %s() {}", newClassName);
     }
 
-    for (JConstructor constructor : constructors) {
+    for (List<MockedParameter> constructor : constructors) {
       out.print("public  %s(", newClassName);
       printMatchingParameters(out, constructor);
       out.println(") {");
@@ -274,32 +400,31 @@ public class MocksGenerator {
     out.println();
   }
 
-  private void printMatchingParameters(SourceWriter out, JConstructor constructorToCall) {
-    JParameter[] params = constructorToCall.getParameters();
-    for (int i = 0; i < params.length; i++) {
+  private static void printMatchingParameters(SourceWriter out,
+                                              List<MockedParameter> params) {
+    for (int i = 0; i < params.size(); i++) {
       if (i > 0) {
         out.print(", ");
       }
-      JParameter param = params[i];
-      out.print(param.getType().getParameterizedQualifiedSourceName());
+      MockedParameter param = params.get(i);
+      out.print(param.getType());
       out.print(" ");
       out.print(param.getName());
     }
   }
 
-  private void printMatchingSuperCall(SourceWriter out, JConstructor constructorToCall) {
-    if (constructorToCall.getParameters().length == 0) {
+  private static void printMatchingSuperCall(SourceWriter out, List<MockedParameter> params) {
+    if (params.size() == 0) {
       return; // will be added automatically
     }
 
     out.print("super(");
 
-    JParameter[] params = constructorToCall.getParameters();
-    for (int i = 0; i < params.length; i++) {
+    for (int i = 0; i < params.size(); i++) {
       if (i > 0) {
         out.print(", ");
       }
-      out.print(params[i].getName());
+      out.print(params.get(i).getName());
     }
     out.println(");");
   }
@@ -307,11 +432,11 @@ public class MocksGenerator {
   /**
    * Generates and prints the actual mock versions of the methods.
    */
-  private void printMockMethods(SourceWriter sourceWriter, List<JMethod> methodsToMock,
-                                String newClassName) {
+  private static void printMockMethods(SourceWriter sourceWriter,
+                                       List<MockedMethod> methodsToMock, String newClassName) {
     int methodNo = 0;
-    for (JMethod method : methodsToMock) {
-      sourceWriter.println("%s {", method.getReadableDeclaration(false, true, false, false, true));
+    for (MockedMethod method : methodsToMock) {
+      sourceWriter.println("%s {", method.getDeclaration());
       sourceWriter.indent();
       printMockMethodBody(sourceWriter, method, methodNo++, newClassName);
       sourceWriter.outdent();
@@ -320,80 +445,65 @@ public class MocksGenerator {
     }
   }
 
-  private void printMockMethodBody(SourceWriter sourceWriter, JMethod method, 
-                                     int methodNo, String newClassName) {
+  private static void printMockMethodBody(SourceWriter sourceWriter, MockedMethod method, 
+                                          int methodNo, String newClassName) {
     
-    JParameter[] args = method.getParameters();
+    List<MockedParameter> args = method.getParameters();
     
     String callVar = freeVariableName("call", args);
-    sourceWriter.print("Call %s = new Call(this, %s.methods[%d]", callVar, newClassName, methodNo);
+    int argsCount = method.isVarArgs() ? args.size() - 1 : args.size();
     
-    int argsCount = method.isVarArgs() ? args.length - 1 : args.length;
-
-    for (int i = 0; i < argsCount; i++) {
-      sourceWriter.print(", %s", args[i].getName());
+    if (hasPrimitiveArgument(args, argsCount)) {
+      // pass arguments one by one to keep primitives unboxed
+      sourceWriter.println("Call %s = Call.create(this, %s.methods[%d], %d);",
+          callVar, newClassName, methodNo, argsCount);
+      for (int i = 0; i < argsCount; i++) {
+        sourceWriter.println("%s.setArgument(%d, %s);", callVar, i, args.get(i).getName());
+      }
+    } else {
+      sourceWriter.print("Call %s = new Call(this, %s.methods[%d]",
+          callVar, newClassName, methodNo);
+      for (int i = 0; i < argsCount; i++) {
+        if (argsCount == 1 && args.get(i).isArray()) {
+          // a single array must not be taken as the argument array of the call
+          sourceWriter.print(", (Object) %s", args.get(i).getName());
+        } else {
+          sourceWriter.print(", %s", args.get(i).getName());
+        }
+      }
+      sourceWriter.println(");");
     }
-    sourceWriter.println(");");
     
     if (method.isVarArgs()) {
-      sourceWriter.println("%s.addVarArgument(%s);", callVar, args[args.length - 1].getName());
+      sourceWriter.println("%s.addVarArgument(%s);", callVar, args.get(args.size() - 1).getName());
     }
     
-    sourceWriter.println("try {");
-    sourceWriter.indent();
-    
-    if (!isVoid(method)) {
-      sourceWriter.print("return (");
-      
-      JType returnType = method.getReturnType();
-      JPrimitiveType primitiveType = returnType.isPrimitive();
-      if (primitiveType != null) {
-        sourceWriter.print(primitiveType.getQualifiedBoxedSourceName());
-      } else if (returnType.isTypeParameter() != null) {
-        sourceWriter.print(returnType.isTypeParameter().getName());
-      } else {
-        sourceWriter.print(returnType.getQualifiedSourceName());
-      }
-      
-      sourceWriter.print(") ");
+    if (!method.isVoid()) {
+      sourceWriter.print("return (%s) ", method.getReturnCast());
     }
     
-    sourceWriter.println("this.mocksControl.invoke(%s).answer(%s.getArguments().toArray());", 
-        callVar, callVar);
-    sourceWriter.outdent();
-    
-    String exceptionVar = freeVariableName("exception", args);
-    sourceWriter.println("} catch (Throwable %s) {", exceptionVar);
-    sourceWriter.indent();
-    
-    String assertionError = AssertionErrorWrapper.class.getCanonicalName();
-    sourceWriter.println("if (%s instanceof %s) throw (AssertionError) " +
-        "((%s) %s).getAssertionError().fillInStackTrace();", 
-        exceptionVar, assertionError, assertionError, exceptionVar);
-    
-    for (JClassType exception : method.getThrows()) {
-      printRethrowException(sourceWriter, exceptionVar, exception.getQualifiedSourceName());
-    }
-    printRethrowException(sourceWriter, exceptionVar, "RuntimeException");
-    printRethrowException(sourceWriter, exceptionVar, "Error");
-    sourceWriter.println("throw new UndeclaredThrowableException(%s);", exceptionVar);
-    sourceWriter.outdent();
-    sourceWriter.println("}");
+    // rethrowing exceptions is done by dispatch()
+    sourceWriter.println("this.mocksControl.dispatch(%s);", callVar);
   }
 
-  private void printRethrowException(SourceWriter writer, String var, String exception) {
-    writer.println("if (%s instanceof %s) throw (%s) %s;", var, exception, exception, var);
+  private static boolean hasPrimitiveArgument(List<MockedParameter> args, int argsCount) {
+    for (int i = 0; i < argsCount; i++) {
+      if (args.get(i).isPrimitive()) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
    * Returns a variable name that doesn't collide with any of the argument names.
    * The returned variable name starts with the provided prefix.
    */
-  private String freeVariableName(String prefix, JParameter[] args) {
+  private static String freeVariableName(String prefix, List<MockedParameter> args) {
     String nextVar = prefix;
     
     Set<String> usedNames = new HashSet<String>();
-    for (JParameter arg : args) {
+    for (MockedParameter arg : args) {
       usedNames.add(arg.getName());
     }
     
@@ -403,9 +513,4 @@ public class MocksGenerator {
     }
     return nextVar;
   }
-  
-  private boolean isVoid(JMethod method) {
-    JPrimitiveType primitiveType = method.getReturnType().isPrimitive();
-    return (primitiveType != null && primitiveType.getSimpleSourceName().equals("void"));
-  }
 }
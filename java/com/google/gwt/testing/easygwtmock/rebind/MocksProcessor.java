@@ -0,0 +1,530 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.testing.easygwtmock.client.Concurrent;
+import com.google.gwt.testing.easygwtmock.client.MocksControl;
+import com.google.gwt.testing.easygwtmock.client.Nice;
+import com.google.gwt.testing.easygwtmock.client.StrictOrder;
+import com.google.gwt.testing.easygwtmock.client.internal.MocksControlBase;
+import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
+import com.google.gwt.user.rebind.SourceWriter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Annotation processor that generates the same control and mock classes as
+ * {@link MocksControlGenerator} and {@link MocksGenerator} at compile time, for every interface
+ * extending {@link MocksControl} in the compiled sources. Tests running on a plain JVM can then
+ * create their controls with
+ * {@link com.google.gwt.testing.easygwtmock.jvm.JvmMocks#create(Class)} instead of
+ * {@code GWT.create()}.
+ * 
+ * <p>The processor is not registered as a service, it has to be enabled with
+ * {@code javac -processor com.google.gwt.testing.easygwtmock.rebind.MocksProcessor}.
+ */
+@SupportedAnnotationTypes("*")
+public class MocksProcessor extends AbstractProcessor {
+  
+  private Elements elements;
+  private Types types;
+  private Messager messager;
+  
+  // qualified names of the classes generated so far, mocks may be shared by several controls
+  private final Set<String> generatedClasses = new HashSet<String>();
+  
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    this.elements = processingEnv.getElementUtils();
+    this.types = processingEnv.getTypeUtils();
+    this.messager = processingEnv.getMessager();
+  }
+  
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    TypeElement markerInterface =
+        this.elements.getTypeElement(MocksControl.class.getCanonicalName());
+    if (markerInterface == null) {
+      return false;
+    }
+    
+    List<TypeElement> controlInterfaces = new ArrayList<TypeElement>();
+    for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+      collectControlInterfaces(type, markerInterface, controlInterfaces);
+    }
+    
+    for (TypeElement controlInterface : controlInterfaces) {
+      try {
+        generateControl(controlInterface, markerInterface);
+      } catch (IOException e) {
+        this.messager.printMessage(Diagnostic.Kind.ERROR,
+            "Unable to write generated source: " + e.getMessage(), controlInterface);
+      }
+    }
+    
+    // other processors may want to see the same types
+    return false;
+  }
+
+  /**
+   * Adds {@code type} and its nested types to {@code result} if they are interfaces
+   * extending {@code markerInterface}.
+   */
+  private void collectControlInterfaces(TypeElement type, TypeElement markerInterface,
+                                        List<TypeElement> result) {
+    if (type.getKind() == ElementKind.INTERFACE && !type.equals(markerInterface)
+        && this.types.isSubtype(this.types.erasure(type.asType()), markerInterface.asType())) {
+      result.add(type);
+    }
+    for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+      collectControlInterfaces(nested, markerInterface, result);
+    }
+  }
+
+  /**
+   * Generates the concrete MocksControl implementation of {@code controlInterface} and the
+   * mock classes it creates.
+   */
+  private void generateControl(TypeElement controlInterface, TypeElement markerInterface)
+      throws IOException {
+    
+    String packageName = getPackageName(controlInterface);
+    String newClassName = getName(controlInterface).replace(".", "_") + "Impl";
+    
+    ClassSourceFileComposerFactory composer =
+        new ClassSourceFileComposerFactory(packageName, newClassName);
+    composer.setSuperclass(MocksControlBase.class.getCanonicalName());
+    composer.addImplementedInterface(controlInterface.getQualifiedName().toString());
+    
+    StringWriter source = new StringWriter();
+    SourceWriter writer = composer.createSourceWriter(new PrintWriter(source));
+    writer.println();
+    
+    MocksControlGenerator.printConstructor(writer, newClassName,
+        controlInterface.getAnnotation(StrictOrder.class) != null,
+        controlInterface.getAnnotation(Concurrent.class) != null);
+    
+    Set<String> reservedNames = getReservedNames();
+    TypeElement objectType = this.elements.getTypeElement(Object.class.getCanonicalName());
+    
+    // Report one error per method in the control interface, like MocksControlGenerator does.
+    boolean failed = false;
+    for (ExecutableElement method
+        : getAllMethods((DeclaredType) controlInterface.asType(), controlInterface)) {
+      Element enclosingType = method.getEnclosingElement();
+      if (enclosingType.equals(markerInterface) || enclosingType.equals(objectType)
+          || !method.getModifiers().contains(Modifier.ABSTRACT)) {
+        // Method is implemented in MocksControlBase or the interface itself
+        continue;
+      }
+      
+      String methodName = controlInterface.getSimpleName() + "." + method.getSimpleName();
+      
+      if (reservedNames.contains(method.getSimpleName().toString())) {
+        error(method, method.getSimpleName() +
+            " is a reserved name. Do not use it in the extended MocksControl interface");
+        failed = true;
+        continue;
+      }
+      
+      ExecutableType methodType = (ExecutableType) this.types.asMemberOf(
+          (DeclaredType) controlInterface.asType(), method);
+      TypeMirror returnType = methodType.getReturnType();
+      
+      if (returnType.getKind() != TypeKind.DECLARED) {
+        error(method, returnType + " is not an interface or a class");
+        failed = true;
+        continue;
+      }
+      
+      DeclaredType typeToMock = (DeclaredType) returnType;
+      TypeElement typeToMockElement = (TypeElement) typeToMock.asElement();
+      
+      if (typeToMockElement.getKind() == ElementKind.INTERFACE) {
+        if (!method.getParameters().isEmpty()) {
+          error(method, "This method should not have parameters because it creates a mock " +
+              "of an interface: " + methodName);
+          failed = true;
+          continue;
+        }
+      } else if (typeToMockElement.getKind() != ElementKind.CLASS) {
+        error(method, returnType + " is not an interface or a class");
+        failed = true;
+        continue;
+      } else if (!hasMatchingConstructor(typeToMock, methodType.getParameterTypes())) {
+        error(method, "Cannot find matching constructor to call for " + methodName);
+        failed = true;
+        continue;
+      }
+      
+      String mockClassName = generateMock(typeToMock, controlInterface, packageName);
+      
+      List<String> parameterNames = new ArrayList<String>();
+      for (VariableElement param : method.getParameters()) {
+        parameterNames.add(param.getSimpleName().toString());
+      }
+      MocksControlGenerator.printFactoryMethod(writer, getDeclaration(method, methodType),
+          parameterNames, isNiceMock(method, controlInterface), mockClassName);
+    }
+    
+    if (failed) {
+      return;
+    }
+    
+    writer.commit(TreeLogger.NULL);
+    write(packageName, newClassName, source.toString(), controlInterface);
+  }
+
+  /**
+   * Generates a mock class for {@code typeToMock} unless it was generated before and returns
+   * its qualified name.
+   */
+  private String generateMock(DeclaredType typeToMock, TypeElement originatingElement,
+                              String controlPackageName) throws IOException {
+    MockedType mockedType = toMockedType(typeToMock, controlPackageName);
+    String packageName = mockedType.getPackageName();
+    String newClassName = MocksGenerator.getMockClassName(mockedType);
+    String fullNewClassName = packageName + "." + newClassName;
+    
+    if (!this.generatedClasses.contains(fullNewClassName)) {
+      write(packageName, newClassName, MocksGenerator.generateSource(mockedType, newClassName),
+          originatingElement);
+    }
+    return fullNewClassName;
+  }
+
+  private void write(String packageName, String className, String source,
+                     Element originatingElement) throws IOException {
+    String qualifiedName = packageName.length() == 0 ? className : packageName + "." + className;
+    Writer writer = this.processingEnv.getFiler()
+        .createSourceFile(qualifiedName, originatingElement).openWriter();
+    try {
+      writer.write(source);
+    } finally {
+      writer.close();
+    }
+    this.generatedClasses.add(packageName + "." + className);
+  }
+
+  private MockedType toMockedType(DeclaredType typeToMock, String controlPackageName) {
+    TypeElement element = (TypeElement) typeToMock.asElement();
+    String packageName = getPackageName(element);
+    if (packageName.startsWith("java.")) {
+      // the JVM does not allow to define classes in java.*
+      packageName = controlPackageName;
+    }
+    boolean isInterface = element.getKind() == ElementKind.INTERFACE;
+    
+    List<String> typeArguments = new ArrayList<String>();
+    for (TypeMirror typeArgument : typeToMock.getTypeArguments()) {
+      typeArguments.add(typeArgument.toString());
+    }
+    
+    List<MockedMethod> methods = new ArrayList<MockedMethod>();
+    for (ExecutableElement method : getAllMethods(typeToMock, element)) {
+      if (isOverridable(method, packageName, isInterface)) {
+        ExecutableType methodType =
+            (ExecutableType) this.types.asMemberOf(typeToMock, method);
+        methods.add(toMockedMethod(method, methodType));
+      }
+    }
+    
+    List<List<MockedParameter>> constructors = new ArrayList<List<MockedParameter>>();
+    for (ExecutableElement constructor
+        : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+      if (!constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        ExecutableType constructorType =
+            (ExecutableType) this.types.asMemberOf(typeToMock, constructor);
+        constructors.add(toMockedParameters(constructor, constructorType));
+      }
+    }
+    
+    return new MockedType(packageName, getName(element), typeToMock.toString(), typeArguments,
+        isInterface, methods, constructors);
+  }
+
+  /**
+   * Returns the methods of {@code type} like {@code Elements.getAllMembers()}, but only one
+   * method per erased signature, as {@code JClassType.getOverridableMethods()} does.
+   * Unrelated superinterfaces may declare the same method, and implementing both would
+   * otherwise generate it twice. Of such methods, the one with the most specific return
+   * type is kept.
+   */
+  private Collection<ExecutableElement> getAllMethods(DeclaredType type, TypeElement element) {
+    Map<String, ExecutableElement> methods = new LinkedHashMap<String, ExecutableElement>();
+    for (ExecutableElement method
+        : ElementFilter.methodsIn(this.elements.getAllMembers(element))) {
+      ExecutableType methodType = (ExecutableType) this.types.asMemberOf(type, method);
+      StringBuilder signature = new StringBuilder(method.getSimpleName()).append("(");
+      for (TypeMirror parameterType : methodType.getParameterTypes()) {
+        signature.append(this.types.erasure(parameterType)).append(",");
+      }
+      String key = signature.append(")").toString();
+
+      ExecutableElement other = methods.get(key);
+      if (other == null || isMoreSpecific(methodType.getReturnType(),
+          ((ExecutableType) this.types.asMemberOf(type, other)).getReturnType())) {
+        methods.put(key, method);
+      }
+    }
+    return methods.values();
+  }
+
+  private boolean isMoreSpecific(TypeMirror returnType, TypeMirror otherReturnType) {
+    return !this.types.isSameType(returnType, otherReturnType)
+        && this.types.isSubtype(returnType, otherReturnType);
+  }
+
+  /**
+   * Mirrors {@code JClassType.getOverridableMethods()}: of {@link Object} only the methods
+   * known to the GWT JRE emulation are taken into account.
+   */
+  private boolean isOverridable(ExecutableElement method, String packageName,
+                                boolean isInterface) {
+    Set<Modifier> modifiers = method.getModifiers();
+    if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+        || modifiers.contains(Modifier.FINAL)) {
+      return false;
+    }
+    
+    TypeElement enclosingType = (TypeElement) method.getEnclosingElement();
+    if (enclosingType.getQualifiedName().contentEquals(Object.class.getCanonicalName())) {
+      String name = method.getSimpleName().toString();
+      return !isInterface && (name.equals("equals") || name.equals("hashCode")
+          || name.equals("toString") || name.equals("finalize"));
+    }
+    
+    if (!modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.PROTECTED)) {
+      // package private methods can only be overridden from within their package
+      return getPackageName(enclosingType).equals(packageName);
+    }
+    return true;
+  }
+
+  private MockedMethod toMockedMethod(ExecutableElement method, ExecutableType methodType) {
+    List<String> throwables = new ArrayList<String>();
+    for (TypeMirror throwable : methodType.getThrownTypes()) {
+      throwables.add(this.types.erasure(throwable).toString());
+    }
+    
+    TypeMirror returnType = methodType.getReturnType();
+    String returnCast;
+    if (returnType.getKind() == TypeKind.VOID) {
+      returnCast = null;
+    } else if (returnType.getKind().isPrimitive()) {
+      returnCast = this.types.boxedClass((PrimitiveType) returnType).getQualifiedName().toString();
+    } else if (returnType.getKind() == TypeKind.DECLARED) {
+      returnCast = this.types.erasure(returnType).toString();
+    } else {
+      // type variables and arrays
+      returnCast = returnType.toString();
+    }
+    
+    return new MockedMethod(method.getSimpleName().toString(),
+        getDeclaration(method, methodType), toMockedParameters(method, methodType),
+        method.isVarArgs(), throwables, this.types.erasure(returnType).toString(), returnCast);
+  }
+
+  private List<MockedParameter> toMockedParameters(ExecutableElement method,
+                                                   ExecutableType methodType) {
+    List<? extends VariableElement> parameters = method.getParameters();
+    List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+    List<MockedParameter> result = new ArrayList<MockedParameter>();
+    for (int i = 0; i < parameters.size(); i++) {
+      TypeMirror type = parameterTypes.get(i);
+      result.add(new MockedParameter(parameters.get(i).getSimpleName().toString(),
+          type.toString(), this.types.erasure(type).toString(), type.getKind().isPrimitive(),
+          type.getKind() == TypeKind.ARRAY));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the declaration used to implement {@code method}, like
+   * {@code JMethod.getReadableDeclaration()} it omits the abstract modifier.
+   */
+  private String getDeclaration(ExecutableElement method, ExecutableType methodType) {
+    StringBuilder declaration = new StringBuilder();
+    if (method.getModifiers().contains(Modifier.PUBLIC)) {
+      declaration.append("public ");
+    } else if (method.getModifiers().contains(Modifier.PROTECTED)) {
+      declaration.append("protected ");
+    }
+    
+    List<? extends TypeParameterElement> typeParameters = method.getTypeParameters();
+    if (!typeParameters.isEmpty()) {
+      declaration.append("<");
+      for (int i = 0; i < typeParameters.size(); i++) {
+        if (i > 0) {
+          declaration.append(", ");
+        }
+        appendTypeParameter(declaration, typeParameters.get(i));
+      }
+      declaration.append("> ");
+    }
+    
+    declaration.append(methodType.getReturnType()).append(" ")
+        .append(method.getSimpleName()).append("(");
+    List<? extends VariableElement> parameters = method.getParameters();
+    List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+    for (int i = 0; i < parameters.size(); i++) {
+      if (i > 0) {
+        declaration.append(", ");
+      }
+      String type = parameterTypes.get(i).toString();
+      if (method.isVarArgs() && i == parameters.size() - 1) {
+        type = type.substring(0, type.length() - 2) + "...";
+      }
+      declaration.append(type).append(" ").append(parameters.get(i).getSimpleName());
+    }
+    declaration.append(")");
+    
+    List<? extends TypeMirror> thrownTypes = methodType.getThrownTypes();
+    for (int i = 0; i < thrownTypes.size(); i++) {
+      declaration.append(i == 0 ? " throws " : ", ").append(thrownTypes.get(i));
+    }
+    return declaration.toString();
+  }
+
+  private void appendTypeParameter(StringBuilder declaration, TypeParameterElement parameter) {
+    declaration.append(parameter.getSimpleName());
+    List<? extends TypeMirror> bounds = parameter.getBounds();
+    boolean first = true;
+    for (TypeMirror bound : bounds) {
+      if (first && bounds.size() == 1
+          && bound.toString().equals(Object.class.getCanonicalName())) {
+        break;
+      }
+      declaration.append(first ? " extends " : " & ").append(bound);
+      first = false;
+    }
+  }
+
+  private boolean hasMatchingConstructor(DeclaredType typeToMock,
+                                         List<? extends TypeMirror> parameterTypes) {
+    TypeElement element = (TypeElement) typeToMock.asElement();
+    for (ExecutableElement constructor
+        : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+      if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        continue;
+      }
+      List<? extends TypeMirror> constructorParameterTypes =
+          ((ExecutableType) this.types.asMemberOf(typeToMock, constructor)).getParameterTypes();
+      if (constructorParameterTypes.size() != parameterTypes.size()) {
+        continue;
+      }
+      boolean matches = true;
+      for (int i = 0; i < parameterTypes.size() && matches; i++) {
+        matches = this.types.isSameType(constructorParameterTypes.get(i), parameterTypes.get(i));
+      }
+      if (matches) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isNiceMock(ExecutableElement method, TypeElement controlInterface) {
+    boolean isNice = false; //default
+    
+    Nice interfaceAnnotation = controlInterface.getAnnotation(Nice.class);
+    if (interfaceAnnotation != null) {
+      isNice = interfaceAnnotation.value();
+    }
+    
+    Nice methodAnotation = method.getAnnotation(Nice.class);
+    if (methodAnotation != null) {
+      isNice = methodAnotation.value();
+    }
+    
+    return isNice;
+  }
+
+  /**
+   * Returns the names of the non-private methods of {@link MocksControlBase}.
+   */
+  private Set<String> getReservedNames() {
+    TypeElement baseClass =
+        this.elements.getTypeElement(MocksControlBase.class.getCanonicalName());
+    Set<String> result = new HashSet<String>();
+    for (ExecutableElement method : ElementFilter.methodsIn(baseClass.getEnclosedElements())) {
+      if (!method.getModifiers().contains(Modifier.PRIVATE)) {
+        result.add(method.getSimpleName().toString());
+      }
+    }
+    return result;
+  }
+
+  private String getPackageName(TypeElement type) {
+    return this.elements.getPackageOf(type).getQualifiedName().toString();
+  }
+
+  /**
+   * Returns the name of {@code type} without package, nested types separated by dots like
+   * {@code JClassType.getName()}.
+   */
+  private String getName(TypeElement type) {
+    String packageName = getPackageName(type);
+    String qualifiedName = type.getQualifiedName().toString();
+    return packageName.length() == 0
+        ? qualifiedName : qualifiedName.substring(packageName.length() + 1);
+  }
+
+  private void error(Element element, String message) {
+    this.messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JConstructor;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hash over the signatures generated code depends on. Generator results are reused
+ * when the hash of the types they were generated from did not change.
+ * 
+ * <p>The hash covers the qualified source name of a type, whether it is an interface,
+ * and the declarations of all its overridable methods and its constructors. Method
+ * bodies and annotations other than the ones added explicitly do not affect it.
+ */
+class StructuralHash {
+  
+  private final MessageDigest digest;
+  
+  StructuralHash() {
+    try {
+      this.digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+  
+  /**
+   * Adds the signature of {@code type} to the hash.
+   */
+  StructuralHash add(JClassType type) {
+    add(type.getParameterizedQualifiedSourceName());
+    add(type.isInterface() != null ? "interface" : "class");
+    for (JMethod method : type.getOverridableMethods()) {
+      add(method.getReadableDeclaration());
+    }
+    for (JConstructor constructor : type.getConstructors()) {
+      add(constructor.getReadableDeclaration());
+    }
+    return this;
+  }
+  
+  StructuralHash add(String part) {
+    try {
+      this.digest.update(part.getBytes("UTF-8"));
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+    this.digest.update((byte) 0); // separator, so ("ab", "c") and ("a", "bc") differ
+    return this;
+  }
+  
+  /**
+   * Returns the hash as hex string. The hash must not be used afterwards.
+   */
+  String get() {
+    StringBuilder result = new StringBuilder();
+    for (byte b : this.digest.digest()) {
+      result.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.core.client.Duration;
+
+/**
+ * Reads the clock that times the answers of calls, in compiled JavaScript. The browser
+ * clock has millisecond resolution.
+ */
+class Stopwatch {
+
+  private Stopwatch() {
+  }
+
+  /**
+   * Returns the time of the browser clock in nanoseconds, only meaningful as a difference.
+   */
+  static long nanoTime() {
+    return (long) (Duration.currentTimeMillis() * 1000000);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+/**
+ * Hand-written mock of {@link BenchmarkService}, shaped like the output of
+ * {@link com.google.gwt.testing.easygwtmock.rebind.MocksGenerator}.
+ */
+public class BenchmarkServiceMock implements BenchmarkService {
+
+  private static final Class<?>[][] throwables = {{}, {}, {}};
+  private static final Class<?>[][] argumentTypes =
+      {{int.class}, {int.class, String.class}, {int.class, String.class, double.class}};
+  private static final Method[] methods = {
+      new Method("call1", int.class, argumentTypes[0], throwables[0]),
+      new Method("call2", int.class, argumentTypes[1], throwables[1]),
+      new Method("call3", int.class, argumentTypes[2], throwables[2])};
+  private MocksControlBase mocksControl;
+
+  public BenchmarkServiceMock __mockInit(MocksControlBase newValue) {
+    this.mocksControl = newValue;
+    return this;
+  }
+
+  public int call1(int id) {
+    Call call = Call.create(this, BenchmarkServiceMock.methods[0], 1);
+    call.setArgument(0, id);
+    return (java.lang.Integer) this.mocksControl.dispatch(call);
+  }
+
+  public int call2(int id, String name) {
+    Call call = Call.create(this, BenchmarkServiceMock.methods[1], 2);
+    call.setArgument(0, id);
+    call.setArgument(1, name);
+    return (java.lang.Integer) this.mocksControl.dispatch(call);
+  }
+
+  public int call3(int id, String name, double weight) {
+    Call call = Call.create(this, BenchmarkServiceMock.methods[2], 3);
+    call.setArgument(0, id);
+    call.setArgument(1, name);
+    call.setArgument(2, weight);
+    return (java.lang.Integer) this.mocksControl.dispatch(call);
+  }
+
+  public boolean equals(Object obj) {
+    this.mocksControl.unmockableCallTo("equals()");
+    return obj == this;
+  }
+
+  public String toString() {
+    this.mocksControl.unmockableCallTo("toString()");
+    return "Mock for BenchmarkService";
+  }
+
+  public int hashCode() {
+    this.mocksControl.unmockableCallTo("hashCode()");
+    return System.identityHashCode(this);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating a Call the way generated mocks do and matching it against an
+ * ExpectedCall.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CallBenchmark {
+
+  @Param({"1", "2", "3"})
+  int arguments;
+
+  @Param({"equals", "any", "custom"})
+  String matchers;
+
+  private Object mock;
+  private Method method;
+  private ExpectedCall expected;
+  private Call matching;
+  private Call notMatching;
+
+  @Setup
+  public void setUp() {
+    this.mock = new Object();
+    Class<?>[] argumentTypes = { int.class, String.class, double.class };
+    Class<?>[] declaredThrowables = {};
+    this.method = new Method("call" + this.arguments, int.class,
+        Arrays.copyOf(argumentTypes, this.arguments), declaredThrowables);
+    this.expected = new ExpectedCall(createCall(1), Workload.matchers(1, this.arguments,
+        this.matchers), null, AnswerFactory.forValue(1), new Range(0, Range.UNLIMITED_MAX));
+    this.matching = createCall(1);
+    this.notMatching = createCall(2);
+  }
+
+  private Call createCall(int id) {
+    Call call = Call.create(this.mock, this.method, this.arguments);
+    call.setArgument(0, id);
+    if (this.arguments > 1) {
+      call.setArgument(1, Workload.NAME);
+    }
+    if (this.arguments > 2) {
+      call.setArgument(2, Workload.WEIGHT);
+    }
+    return call;
+  }
+
+  @Benchmark
+  public Call create() {
+    return createCall(1);
+  }
+
+  @Benchmark
+  public boolean matches() {
+    return this.expected.matches(this.matching);
+  }
+
+  @Benchmark
+  public boolean matchesNot() {
+    return this.expected.matches(this.notMatching);
+  }
+
+  /**
+   * Creates a fresh call and matches it, as a single replayed invocation would.
+   */
+  @Benchmark
+  public boolean createAndMatch() {
+    return this.expected.matches(createCall(1));
+  }
+}
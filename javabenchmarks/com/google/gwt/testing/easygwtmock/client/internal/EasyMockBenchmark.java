@@ -0,0 +1,125 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import org.easymock.EasyMock;
+import org.easymock.IArgumentMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the workload of {@link MocksControlBenchmark} against EasyMock as a point of
+ * comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EasyMockBenchmark {
+
+  @Param({"10", "1000", "10000"})
+  int expectations;
+
+  @Param({"1", "2", "3"})
+  int arguments;
+
+  @Param({"equals", "any", "custom"})
+  String matchers;
+
+  private BenchmarkService replayingMock;
+  private int nextId;
+
+  @Setup
+  public void setUp() {
+    this.replayingMock = record();
+    EasyMock.replay(this.replayingMock);
+  }
+
+  @Benchmark
+  public BenchmarkService record() {
+    BenchmarkService mock = EasyMock.createMock(BenchmarkService.class);
+    for (int id = 0; id < this.expectations; id++) {
+      EasyMock.expect(recordCall(mock, id)).andReturn(id).anyTimes();
+    }
+    return mock;
+  }
+
+  @Benchmark
+  public BenchmarkService recordAndReplay() {
+    BenchmarkService mock = record();
+    EasyMock.replay(mock);
+    return mock;
+  }
+
+  @Benchmark
+  public int replay() {
+    int id = this.nextId;
+    this.nextId = id + 1 == this.expectations ? 0 : id + 1;
+    return Workload.call(this.replayingMock, id, this.arguments);
+  }
+
+  @Benchmark
+  public BenchmarkService verify() {
+    EasyMock.verify(this.replayingMock);
+    return this.replayingMock;
+  }
+
+  private int recordCall(BenchmarkService mock, int id) {
+    if (this.matchers.equals("equals")) {
+      return Workload.call(mock, id, this.arguments);
+    }
+    boolean any = this.matchers.equals("any");
+    int idArgument = any ? EasyMock.eq(id) : idMatcher(id);
+    switch (this.arguments) {
+      case 1:
+        return mock.call1(idArgument);
+      case 2:
+        return mock.call2(idArgument,
+            any ? EasyMock.<String>anyObject() : EasyMock.eq(Workload.NAME));
+      default:
+        return mock.call3(idArgument,
+            any ? EasyMock.<String>anyObject() : EasyMock.eq(Workload.NAME),
+            any ? EasyMock.anyDouble() : EasyMock.eq(Workload.WEIGHT));
+    }
+  }
+
+  private static int idMatcher(final int id) {
+    EasyMock.reportMatcher(new IArgumentMatcher() {
+      public boolean matches(Object argument) {
+        return argument instanceof Integer && (Integer) argument == id;
+      }
+
+      public void appendTo(StringBuffer buffer) {
+        buffer.append("id(").append(id).append(")");
+      }
+    });
+    return 0;
+  }
+}
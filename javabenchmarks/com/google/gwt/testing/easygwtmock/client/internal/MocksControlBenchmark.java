@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures recording, replaying and verifying through a mocks control, i.e. through
+ * RecordState, ReplayState and MocksBehavior.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MocksControlBenchmark {
+
+  @Param({"10", "1000", "10000"})
+  int expectations;
+
+  @Param({"1", "2", "3"})
+  int arguments;
+
+  @Param({"equals", "any", "custom"})
+  String matchers;
+
+  private BenchmarkControl replayingControl;
+  private BenchmarkService replayingMock;
+  private int nextId;
+
+  @Setup
+  public void setUp() {
+    this.replayingControl = new BenchmarkControl();
+    this.replayingMock = this.replayingControl.getMock();
+    Workload.record(this.replayingControl, this.replayingMock, this.expectations,
+        this.arguments, this.matchers);
+    this.replayingControl.replay();
+  }
+
+  /**
+   * Records all expectations of the workload.
+   */
+  @Benchmark
+  public BenchmarkControl record() {
+    BenchmarkControl ctrl = new BenchmarkControl();
+    Workload.record(ctrl, ctrl.getMock(), this.expectations, this.arguments, this.matchers);
+    return ctrl;
+  }
+
+  /**
+   * Records all expectations of the workload and switches to replay.
+   */
+  @Benchmark
+  public BenchmarkControl recordAndReplay() {
+    BenchmarkControl ctrl = record();
+    ctrl.replay();
+    return ctrl;
+  }
+
+  /**
+   * Makes a single call, cycling through all recorded ids.
+   */
+  @Benchmark
+  public int replay() {
+    int id = this.nextId;
+    this.nextId = id + 1 == this.expectations ? 0 : id + 1;
+    return Workload.call(this.replayingMock, id, this.arguments);
+  }
+
+  @Benchmark
+  public BenchmarkControl verify() {
+    this.replayingControl.verify();
+    return this.replayingControl;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.ArgumentMatcher;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Any;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Equals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The workload shared by the benchmarks: one expectation per id on the
+ * {@link BenchmarkService} method with the requested number of arguments, using one of the
+ * following matcher mixes:
+ * <ul>
+ * <li>{@code equals}: raw argument values, i.e. only Equals matchers</li>
+ * <li>{@code any}: Equals matcher for the id, Any matchers for all other arguments</li>
+ * <li>{@code custom}: custom matcher for the id, Equals matchers for all other arguments</li>
+ * </ul>
+ */
+final class Workload {
+  
+  static final String NAME = "name";
+  static final double WEIGHT = 0.5;
+  
+  private Workload() {
+  }
+  
+  /**
+   * Records {@code expectations} expectations that can be called any number of times.
+   */
+  static void record(BenchmarkMocksControl ctrl, BenchmarkService mock, int expectations,
+                     int arguments, String matchers) {
+    for (int id = 0; id < expectations; id++) {
+      ctrl.expect(recordCall(ctrl, mock, id, arguments, matchers)).andReturn(id).anyTimes();
+    }
+  }
+  
+  private static int recordCall(BenchmarkMocksControl ctrl, BenchmarkService mock, int id,
+                                int arguments, String matchers) {
+    if (matchers.equals("equals")) {
+      return call(mock, id, arguments);
+    }
+    boolean any = matchers.equals("any");
+    int idArgument = any ? ctrl.eq(id) : ctrl.matchesInt(new IdMatcher(id));
+    switch (arguments) {
+      case 1:
+        return mock.call1(idArgument);
+      case 2:
+        return mock.call2(idArgument, any ? ctrl.<String>anyObject() : ctrl.eq(NAME));
+      default:
+        return mock.call3(idArgument, any ? ctrl.<String>anyObject() : ctrl.eq(NAME),
+            any ? ctrl.anyDouble() : ctrl.eq(WEIGHT));
+    }
+  }
+  
+  /**
+   * Calls the method with the given number of arguments.
+   */
+  static int call(BenchmarkService mock, int id, int arguments) {
+    switch (arguments) {
+      case 1:
+        return mock.call1(id);
+      case 2:
+        return mock.call2(id, NAME);
+      default:
+        return mock.call3(id, NAME, WEIGHT);
+    }
+  }
+  
+  /**
+   * Creates the matchers the control would record for the given id.
+   */
+  static List<ArgumentMatcher> matchers(int id, int arguments, String matchers) {
+    List<ArgumentMatcher> result = new ArrayList<ArgumentMatcher>();
+    if (matchers.equals("custom")) {
+      result.add(new IdMatcher(id));
+    } else {
+      result.add(new Equals(id));
+    }
+    boolean any = matchers.equals("any");
+    if (arguments > 1) {
+      result.add(any ? Any.ANY : new Equals(NAME));
+    }
+    if (arguments > 2) {
+      result.add(any ? Any.ANY : new Equals(WEIGHT));
+    }
+    return result;
+  }
+  
+  /**
+   * A custom matcher for ids, so the expectation cannot be indexed.
+   */
+  static class IdMatcher implements ArgumentMatcher {
+    
+    private final int id;
+    
+    IdMatcher(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean matches(Object argument) {
+      return argument instanceof Integer && (Integer) argument == this.id;
+    }
+
+    @Override
+    public void appendTo(StringBuffer buffer) {
+      buffer.append("id(").append(this.id).append(")");
+    }
+  }
+}
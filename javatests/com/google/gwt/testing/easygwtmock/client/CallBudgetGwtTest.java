@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.core.client.GWT;
+
+/**
+ * Tests call budgets.
+ */
+public class CallBudgetGwtTest extends BaseGwtTestCase {
+  interface MyControl extends MocksControl {
+    Service getMock();
+    @Nice Service getNiceMock();
+  }
+
+  interface Service {
+    int load(int id);
+    void save(int id);
+  }
+
+  private MyControl ctrl;
+  private Service mock;
+  private Service niceMock;
+
+  @Override
+  public void gwtSetUp() {
+    this.ctrl = GWT.create(MyControl.class);
+    this.mock = ctrl.getMock();
+    this.niceMock = ctrl.getNiceMock();
+  }
+
+  public void testMockBudget() {
+    ctrl.setCallBudget(mock, 2);
+    ctrl.expect(mock.load(ctrl.anyInt())).andReturn(1).anyTimes();
+    mock.save(ctrl.anyInt());
+    ctrl.expectLastCall().anyTimes();
+    ctrl.replay();
+
+    mock.load(1);
+    mock.save(1);
+    ctrl.verify();
+
+    mock.load(2);
+    try {
+      ctrl.verify();
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+      assertTrue(expected.getMessage().contains("Call budget exceeded on verify."));
+    }
+  }
+
+  public void testTotalBudget() {
+    ctrl.setTotalCallBudget(2);
+    ctrl.expect(mock.load(ctrl.anyInt())).andReturn(1).anyTimes();
+    ctrl.replay();
+
+    mock.load(1);
+    niceMock.load(1);
+    ctrl.verify();
+
+    niceMock.save(1);
+    try {
+      ctrl.verify();
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+      assertTrue(expected.getMessage().contains(
+          "all mocks: expected at most 2 calls, actual 3"));
+    }
+  }
+
+  public void testBudgetDoesNotReplaceExpectations() {
+    ctrl.setCallBudget(mock, 5);
+    ctrl.expect(mock.load(1)).andReturn(1);
+    ctrl.replay();
+
+    try {
+      ctrl.verify();
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+      assertTrue(expected.getMessage().contains("Expectation failure on verify."));
+    }
+  }
+
+  public void testNegativeBudget() {
+    try {
+      ctrl.setCallBudget(mock, -1);
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testResetRemovesBudget() {
+    ctrl.setTotalCallBudget(0);
+    ctrl.reset();
+    ctrl.expect(mock.load(1)).andReturn(1);
+    ctrl.replay();
+
+    mock.load(1);
+    ctrl.verify();
+  }
+}
@@ -182,6 +182,132 @@ public class CallbackGwtTest extends BaseGwtTestCase {
     }
   }
   
+  public void testOnSuccessAfter() {
+    MyCallback<String> callback = new MyCallback<String>();
+
+    mock.oneArgument(ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccessAfter(100, "Hallo");
+
+    ctrl.replay();
+
+    mock.oneArgument(callback);
+    assertEquals(callback.onSuccessCalledCount, 0);
+    ctrl.advanceClock(99);
+    assertEquals(callback.onSuccessCalledCount, 0);
+    ctrl.advanceClock(1);
+    assertEquals(callback.onSuccessCalledCount, 1);
+    assertEquals("Hallo", callback.result);
+    assertEquals(callback.onFailureCalledCount, 0);
+    ctrl.verify();
+  }
+
+  public void testOnFailureAfter() {
+    MyCallback<Integer> callback = new MyCallback<Integer>();
+    Throwable throwable = new RuntimeException();
+
+    mock.twoArguments(ctrl.eq(4), ctrl.asyncCallback(Integer.class));
+    ctrl.expectLastCall().andCallOnFailureAfter(50, throwable);
+
+    ctrl.replay();
+
+    mock.twoArguments(4, callback);
+    assertEquals(callback.onFailureCalledCount, 0);
+    ctrl.flushCallbacks();
+    assertEquals(callback.onFailureCalledCount, 1);
+    assertEquals(throwable, callback.caught);
+    assertEquals(callback.onSuccessCalledCount, 0);
+  }
+
+  public void testOnSuccessAfter_completesInDueTimeOrder() {
+    final StringBuilder order = new StringBuilder();
+
+    mock.twoArguments(ctrl.eq(1), ctrl.asyncCallback(Integer.class));
+    ctrl.expectLastCall().andCallOnSuccessAfter(300, 1);
+    mock.twoArguments(ctrl.eq(2), ctrl.asyncCallback(Integer.class));
+    ctrl.expectLastCall().andCallOnSuccessAfter(100, 2);
+
+    ctrl.replay();
+
+    AsyncCallback<Integer> callback = new AsyncCallback<Integer>() {
+      @Override
+      public void onFailure(Throwable caught) {
+        fail("should not be called");
+      }
+
+      @Override
+      public void onSuccess(Integer result) {
+        order.append(result);
+      }
+    };
+    mock.twoArguments(1, callback);
+    mock.twoArguments(2, callback);
+
+    ctrl.advanceClock(200);
+    assertEquals("2", order.toString());
+    ctrl.advanceClock(200);
+    assertEquals("21", order.toString());
+  }
+
+  public void testOnSuccessAfter_resetDropsPendingCallbacks() {
+    MyCallback<String> callback = new MyCallback<String>();
+
+    mock.oneArgument(ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccessAfter(10, "Hallo");
+
+    ctrl.replay();
+    mock.oneArgument(callback);
+    ctrl.reset();
+    ctrl.flushCallbacks();
+
+    assertEquals(callback.onSuccessCalledCount, 0);
+  }
+
+  public void testOnSuccessAfter_NonVoidMethod() {
+    try {
+      ctrl.expect(mock.nonVoid("hi")).andCallOnSuccessAfter(10, 11);
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+      assertEquals("andCallOnSuccessAfter() is only supported for void methods",
+          expected.getMessage());
+    }
+  }
+
+  public void testOnFailureAfter_MethodWithoutCallbackArg() {
+    mock.noCallback("hi");
+
+    try {
+      ctrl.expectLastCall().andCallOnFailureAfter(10, null);
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+      assertEquals(
+        "andCallOnFailureAfter() can only be used with methods " +
+        "that take an AsyncCallback as last argument", expected.getMessage());
+    }
+  }
+
+  public void testOnSuccessAfter_NegativeDelay() {
+    mock.oneArgument(ctrl.asyncCallback(String.class));
+
+    try {
+      ctrl.expectLastCall().andCallOnSuccessAfter(-1, "Hallo");
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testOnSuccessAfter_NoCallback() {
+    mock.oneArgument(ctrl.<AsyncCallback<String>>anyObject());
+    ctrl.expectLastCall().andCallOnSuccessAfter(10, "Hallo");
+
+    ctrl.replay();
+
+    try {
+      mock.oneArgument(null);
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
   class MyCallback <T> implements AsyncCallback<T> {
 
     int onFailureCalledCount = 0;
@@ -53,6 +53,26 @@ public class CaptureJavaTest extends TestCase {
     assertEquals(20, (int) values.get(1));
   }
   
+  public void testCaptureValue_concurrent() throws InterruptedException {
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; j++) {
+            capture.captureValue(j);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    
+    assertEquals(8000, capture.getValues().size());
+  }
+  
   public void testHasCaptured() {
     assertFalse("should not have captured", capture.hasCaptured());
     
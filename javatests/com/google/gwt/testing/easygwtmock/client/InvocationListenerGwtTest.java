@@ -0,0 +1,203 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests notifying invocation listeners.
+ */
+public class InvocationListenerGwtTest extends BaseGwtTestCase {
+  interface MyControl extends MocksControl {
+    Service getMock();
+    @Nice Service getNiceMock();
+  }
+
+  interface Service {
+    String load(int id);
+  }
+
+  private MyControl ctrl;
+  private Service mock;
+  private List<String> events;
+  private InvocationListener listener;
+
+  @Override
+  public void gwtSetUp() {
+    this.ctrl = GWT.create(MyControl.class);
+    this.mock = ctrl.getMock();
+    this.events = new ArrayList<String>();
+    this.listener = new InvocationListener() {
+      @Override
+      public void beforeInvoke(Invocation invocation) {
+        events.add("beforeInvoke " + invocation.getMethodName() + invocation.getArguments());
+      }
+
+      @Override
+      public void afterMatch(Invocation invocation, Expectation expectation) {
+        events.add("afterMatch " + invocation + " " + expectation);
+      }
+
+      @Override
+      public void unexpectedCall(Invocation invocation) {
+        events.add("unexpectedCall " + invocation);
+      }
+
+      @Override
+      public void afterVerify(AssertionError failure) {
+        events.add("afterVerify " + (failure == null ? "passed" : "failed"));
+      }
+
+      @Override
+      public void afterReset() {
+        events.add("afterReset");
+      }
+    };
+  }
+
+  public void testCalls() {
+    ctrl.addInvocationListener(listener);
+    ctrl.expect(mock.load(ctrl.anyInt())).andReturn("item");
+    ctrl.replay();
+
+    mock.load(1);
+    try {
+      mock.load(2);
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+
+    assertEquals(Arrays.asList(
+        "beforeInvoke load[1]",
+        "afterMatch load(1) load(<any>)",
+        "beforeInvoke load[2]",
+        "unexpectedCall load(2)"), events);
+  }
+
+  public void testCalls_expectationRenderedOnDemand() {
+    final int[] renderCount = new int[1];
+    ArgumentMatcher anyId = new ArgumentMatcher() {
+      @Override
+      public boolean matches(Object argument) {
+        return true;
+      }
+
+      @Override
+      public void appendTo(StringBuffer buffer) {
+        renderCount[0]++;
+        buffer.append("anyId()");
+      }
+    };
+    final List<Expectation> expectations = new ArrayList<Expectation>();
+    ctrl.addInvocationListener(new InvocationListener() {
+      @Override
+      public void beforeInvoke(Invocation invocation) {
+      }
+
+      @Override
+      public void afterMatch(Invocation invocation, Expectation expectation) {
+        expectations.add(expectation);
+      }
+
+      @Override
+      public void unexpectedCall(Invocation invocation) {
+      }
+
+      @Override
+      public void afterVerify(AssertionError failure) {
+      }
+
+      @Override
+      public void afterReset() {
+      }
+    });
+    ctrl.expect(mock.load(ctrl.matchesInt(anyId))).andReturn("item").times(2);
+    ctrl.replay();
+
+    mock.load(1);
+    mock.load(2);
+
+    assertEquals(0, renderCount[0]);
+    assertEquals(2, expectations.size());
+    assertSame(mock, expectations.get(0).getMock());
+    assertEquals("load", expectations.get(0).getMethodName());
+    assertEquals("load(anyId())", expectations.get(1).toString());
+    assertEquals(1, renderCount[0]);
+  }
+
+  public void testCalls_notInRecordState() {
+    ctrl.addInvocationListener(listener);
+    ctrl.expect(mock.load(1)).andReturn("item");
+
+    assertTrue(events.isEmpty());
+  }
+
+  public void testNiceMock() {
+    Service niceMock = ctrl.getNiceMock();
+    ctrl.addInvocationListener(listener);
+    ctrl.replay();
+
+    assertNull(niceMock.load(1));
+
+    assertEquals(Arrays.asList("beforeInvoke load[1]", "afterMatch load(1) null"), events);
+  }
+
+  public void testVerify() {
+    ctrl.addInvocationListener(listener);
+    ctrl.expect(mock.load(1)).andReturn("item");
+    ctrl.replay();
+
+    try {
+      ctrl.verify();
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+    mock.load(1);
+    ctrl.verify();
+
+    assertEquals("afterVerify failed", events.get(0));
+    assertEquals("afterVerify passed", events.get(events.size() - 1));
+  }
+
+  public void testReset_keepsListeners() {
+    ctrl.addInvocationListener(listener);
+    ctrl.reset();
+    ctrl.expect(mock.load(1)).andReturn("item");
+    ctrl.replay();
+
+    mock.load(1);
+
+    assertEquals(Arrays.asList("afterReset", "beforeInvoke load[1]",
+        "afterMatch load(1) load(1)"), events);
+  }
+
+  public void testRemoveInvocationListener() {
+    ctrl.addInvocationListener(listener);
+    ctrl.removeInvocationListener(listener);
+    ctrl.expect(mock.load(1)).andReturn("item");
+    ctrl.replay();
+
+    mock.load(1);
+    ctrl.verify();
+
+    assertTrue(events.isEmpty());
+  }
+}
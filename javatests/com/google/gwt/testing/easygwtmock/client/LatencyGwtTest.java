@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/**
+ * Tests simulated latency of mocks.
+ */
+public class LatencyGwtTest extends BaseGwtTestCase {
+  interface MyControl extends MocksControl {
+    Service getMock();
+  }
+
+  interface Service {
+    void load(int id, AsyncCallback<String> callback);
+    void save(String value, AsyncCallback<Void> callback);
+    int size();
+  }
+
+  private MyControl ctrl;
+  private Service mock;
+  private StringBuilder log;
+
+  @Override
+  public void gwtSetUp() {
+    this.ctrl = GWT.create(MyControl.class);
+    this.mock = ctrl.getMock();
+    this.log = new StringBuilder();
+  }
+
+  public void testMockLatency() {
+    ctrl.setLatency(mock, LatencyProfiles.fixed(200));
+    mock.load(ctrl.eq(1), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("one");
+    ctrl.replay();
+
+    mock.load(1, new LogCallback<String>());
+    assertEquals("", log.toString());
+    ctrl.advanceClock(199);
+    assertEquals("", log.toString());
+    ctrl.advanceClock(1);
+    assertEquals("one@200 ", log.toString());
+    ctrl.verify();
+  }
+
+  public void testMethodLatencyOverridesMockLatency() {
+    ctrl.setLatency(mock, LatencyProfiles.fixed(200));
+    ctrl.setLatency(mock, "save", LatencyProfiles.fixed(50));
+    mock.load(ctrl.eq(1), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("one");
+    mock.save(ctrl.eq("x"), ctrl.asyncCallback(Void.class));
+    ctrl.expectLastCall().andCallOnFailure(new RuntimeException("full"));
+    ctrl.replay();
+
+    mock.load(1, new LogCallback<String>());
+    mock.save("x", new LogCallback<Void>());
+    ctrl.flushCallbacks();
+    assertEquals("full@50 one@200 ", log.toString());
+    assertEquals(200, ctrl.getSimulatedTimeMillis());
+  }
+
+  public void testLatencyAddsToDeferredAnswer() {
+    ctrl.setLatency(mock, "load", LatencyProfiles.fixed(100));
+    mock.load(ctrl.eq(1), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccessAfter(20, "one");
+    ctrl.replay();
+
+    mock.load(1, new LogCallback<String>());
+    ctrl.flushCallbacks();
+    assertEquals("one@120 ", log.toString());
+  }
+
+  public void testSimulatedTimeOfScenario() {
+    ctrl.setLatency(mock, LatencyProfiles.fixed(300));
+    mock.load(ctrl.anyInt(), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("value").times(2);
+    ctrl.replay();
+
+    // the second request is only sent after the first response arrived
+    mock.load(1, new AsyncCallback<String>() {
+      @Override
+      public void onFailure(Throwable caught) {
+        fail("should not be called");
+      }
+
+      @Override
+      public void onSuccess(String result) {
+        mock.load(2, new LogCallback<String>());
+      }
+    });
+    ctrl.flushCallbacks();
+
+    assertEquals("value@600 ", log.toString());
+    assertEquals(600, ctrl.getSimulatedTimeMillis());
+    ctrl.verify();
+  }
+
+  public void testLatencyDoesNotDelayReturnValues() {
+    ctrl.setLatency(mock, LatencyProfiles.fixed(300));
+    ctrl.expect(mock.size()).andReturn(3);
+    ctrl.replay();
+
+    assertEquals(3, mock.size());
+    assertEquals(0, ctrl.getSimulatedTimeMillis());
+  }
+
+  public void testResetRemovesLatency() {
+    ctrl.setLatency(mock, LatencyProfiles.fixed(300));
+    ctrl.reset();
+    mock.load(ctrl.eq(1), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("one");
+    ctrl.replay();
+
+    mock.load(1, new LogCallback<String>());
+    assertEquals("one@0 ", log.toString());
+  }
+
+  class LogCallback<T> implements AsyncCallback<T> {
+
+    @Override
+    public void onFailure(Throwable caught) {
+      log.append(caught.getMessage() + "@" + ctrl.getSimulatedTimeMillis() + " ");
+    }
+
+    @Override
+    public void onSuccess(T result) {
+      log.append(result + "@" + ctrl.getSimulatedTimeMillis() + " ");
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the LatencyProfiles class
+ */
+public class LatencyProfilesJavaTest extends TestCase {
+
+  public void testFixed() {
+    LatencyProfile profile = LatencyProfiles.fixed(42);
+    assertEquals(42, profile.nextDelayMillis());
+    assertEquals(42, profile.nextDelayMillis());
+  }
+
+  public void testFixed_negative() {
+    try {
+      LatencyProfiles.fixed(-1);
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testUniform() {
+    LatencyProfile profile = LatencyProfiles.uniform(10, 12, 7L);
+    boolean[] seen = new boolean[3];
+    for (int i = 0; i < 100; i++) {
+      int delay = profile.nextDelayMillis();
+      assertTrue("delay " + delay + " out of range", delay >= 10 && delay <= 12);
+      seen[delay - 10] = true;
+    }
+    assertTrue(seen[0] && seen[1] && seen[2]);
+  }
+
+  public void testUniform_sameSeedSameDelays() {
+    LatencyProfile first = LatencyProfiles.uniform(0, 1000, 7L);
+    LatencyProfile second = LatencyProfiles.uniform(0, 1000, 7L);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(first.nextDelayMillis(), second.nextDelayMillis());
+    }
+  }
+
+  public void testUniform_invalidRange() {
+    try {
+      LatencyProfiles.uniform(10, 9, 7L);
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testHistogram() {
+    LatencyProfile profile = LatencyProfiles.histogram(
+        new int[] {10, 20, 30}, new int[] {3, 0, 1}, 7L);
+    int[] seen = new int[4];
+    for (int i = 0; i < 400; i++) {
+      seen[profile.nextDelayMillis() / 10]++;
+    }
+    assertEquals(0, seen[0]);
+    assertEquals(0, seen[2]);
+    assertTrue("10ms should be the most common delay: " + seen[1], seen[1] > seen[3]);
+    assertTrue("30ms should occur: " + seen[3], seen[3] > 0);
+  }
+
+  public void testHistogram_noCounts() {
+    try {
+      LatencyProfiles.histogram(new int[] {10}, new int[] {0}, 7L);
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testHistogram_text() {
+    LatencyProfile profile = LatencyProfiles.histogram(
+        "# millis count\n\n 25 1\n40,0\n", 7L);
+    assertEquals(25, profile.nextDelayMillis());
+  }
+
+  public void testHistogram_malformedText() {
+    try {
+      LatencyProfiles.histogram("25 1\n40 ms 3\n", 7L);
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Line 2 of histogram is not '<millis> <count>': 40 ms 3",
+          expected.getMessage());
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the MocksStats class
+ */
+public class MocksStatsJavaTest extends TestCase {
+
+  private Object service;
+  private Object other;
+  private MocksStats stats;
+
+  @Override
+  public void setUp() {
+    this.service = new Object() {
+      @Override
+      public String toString() {
+        return "Mock for Service";
+      }
+    };
+    this.other = new Object() {
+      @Override
+      public String toString() {
+        return "Mock for Other";
+      }
+    };
+    List<MocksStats.MethodStats> methods = new ArrayList<MocksStats.MethodStats>();
+    methods.add(new MocksStats.MethodStats(this.service, "load", "load(int, String)", 3, 1, 0, 12));
+    methods.add(new MocksStats.MethodStats(this.service, "save", "save(int)", 0, 0, 2, 0));
+    methods.add(new MocksStats.MethodStats(this.other, "load", "load(int)", 1, 0, 0, 0));
+    this.stats = new MocksStats(methods, Arrays.asList("Mock for Service.save(\"a\")"));
+  }
+
+  public void testCallCounts() {
+    assertEquals(4, this.stats.getMethod(this.service, "load").getCallCount());
+    assertEquals(6, this.stats.getCallCount(this.service));
+    assertEquals(1, this.stats.getCallCount(this.other));
+    assertEquals(7, this.stats.getTotalCallCount());
+  }
+
+  public void testGetMethod_unknown() {
+    assertNull(this.stats.getMethod(this.other, "save"));
+    assertNull(this.stats.getMethod(new Object(), "load"));
+  }
+
+  public void testGetMethods_readOnly() {
+    try {
+      this.stats.getMethods().clear();
+      fail("should have thrown exception");
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
+  public void testToCsv() {
+    assertEquals("mock,method,matched,unexpected,niceDefaults,answerNanos\n"
+        + "Mock for Service,\"load(int, String)\",3,1,0,12\n"
+        + "Mock for Service,save(int),0,0,2,0\n"
+        + "Mock for Other,load(int),1,0,0,0\n",
+        this.stats.toCsv());
+  }
+
+  public void testToJson() {
+    assertEquals("{\"methods\":["
+        + "\n{\"mock\":\"Mock for Service\",\"method\":\"load(int, String)\",\"matched\":3,"
+        + "\"unexpected\":1,\"niceDefaults\":0,\"answerNanos\":12},"
+        + "\n{\"mock\":\"Mock for Service\",\"method\":\"save(int)\",\"matched\":0,"
+        + "\"unexpected\":0,\"niceDefaults\":2,\"answerNanos\":0},"
+        + "\n{\"mock\":\"Mock for Other\",\"method\":\"load(int)\",\"matched\":1,"
+        + "\"unexpected\":0,\"niceDefaults\":0,\"answerNanos\":0}"
+        + "\n],\"unusedExpectations\":["
+        + "\n\"Mock for Service.save(\\\"a\\\")\""
+        + "\n]}\n",
+        this.stats.toJson());
+  }
+
+  public void testToJson_empty() {
+    MocksStats empty = new MocksStats(new ArrayList<MocksStats.MethodStats>(),
+        new ArrayList<String>());
+    assertEquals("{\"methods\":[\n],\"unusedExpectations\":[\n]}\n", empty.toJson());
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.testing.easygwtmock.client.dummyclasses.GreetingService;
+import com.google.gwt.testing.easygwtmock.client.dummyclasses.GreetingServiceAsync;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.gwt.user.client.rpc.SerializationStreamFactory;
+
+/**
+ * Tests measuring the payloads of calls to mocked asynchronous services.
+ */
+public class PayloadGwtTest extends BaseGwtTestCase {
+  interface MyControl extends MocksControl {
+    ServiceAsync getMock();
+    GreetingServiceAsync getGreetingService();
+  }
+
+  interface ServiceAsync {
+    void load(String query, AsyncCallback<String> callback);
+    void save(String item, AsyncCallback<Void> callback);
+  }
+
+  private MyControl ctrl;
+  private ServiceAsync mock;
+  private AsyncCallback<String> callback;
+  private AsyncCallback<Void> voidCallback;
+
+  @Override
+  public void gwtSetUp() {
+    this.ctrl = GWT.create(MyControl.class);
+    this.mock = ctrl.getMock();
+    this.callback = new AsyncCallback<String>() {
+      @Override
+      public void onFailure(Throwable caught) {
+      }
+
+      @Override
+      public void onSuccess(String result) {
+      }
+    };
+    this.voidCallback = new AsyncCallback<Void>() {
+      @Override
+      public void onFailure(Throwable caught) {
+      }
+
+      @Override
+      public void onSuccess(Void result) {
+      }
+    };
+  }
+
+  public void testPayloadSizes() {
+    ctrl.measurePayloads(mock, new CharacterSizer());
+    mock.load(ctrl.eq("ab"), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("result");
+    mock.load(ctrl.eq("abcd"), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccessAfter(10, "longer result");
+    mock.save(ctrl.anyObject(String.class), ctrl.asyncCallback(Void.class));
+    ctrl.replay();
+
+    mock.load("ab", callback);
+    mock.load("abcd", callback);
+    mock.save("item", voidCallback);
+    ctrl.flushCallbacks();
+
+    PayloadSizes sizes = ctrl.payloadSizes();
+    PayloadSizes.MethodSizes load = sizes.getMethod(mock, "load");
+    assertEquals(2, load.getRequestCount());
+    assertEquals(6, load.getTotalRequestBytes());
+    assertEquals(4, load.getMaxRequestBytes());
+    assertEquals(2, load.getResponseCount());
+    assertEquals(19, load.getTotalResponseBytes());
+    assertEquals(13, load.getMaxResponseBytes());
+    assertEquals(0, sizes.getMethod(mock, "save").getResponseCount());
+    assertEquals(10, sizes.getTotalRequestBytes());
+    assertEquals(4, sizes.getMaxRequestBytes());
+    ctrl.verify();
+  }
+
+  public void testPayloadSizes_responsesMeasuredWhenDelivered() {
+    ctrl.measurePayloads(mock, new CharacterSizer());
+    mock.load(ctrl.eq("ab"), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccessAfter(10, "result");
+    mock.load(ctrl.eq("abcd"), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnFailure(new RuntimeException("failed"));
+    ctrl.replay();
+
+    mock.load("ab", callback);
+    mock.load("abcd", callback);
+    assertEquals(0, ctrl.payloadSizes().getMethod(mock, "load").getResponseCount());
+
+    ctrl.advanceClock(10);
+    PayloadSizes.MethodSizes load = ctrl.payloadSizes().getMethod(mock, "load");
+    assertEquals(1, load.getResponseCount());
+    assertEquals(6, load.getTotalResponseBytes());
+    ctrl.verify();
+  }
+
+  public void testPayloadSizes_unexpectedCallsMeasured() {
+    ctrl.measurePayloads(mock, new CharacterSizer());
+    ctrl.replay();
+
+    try {
+      mock.load("abc", callback);
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+
+    assertEquals(3, ctrl.payloadSizes().getMaxRequestBytes());
+  }
+
+  public void testPayloadSizes_gwtRpc() {
+    GreetingServiceAsync greetingService = ctrl.getGreetingService();
+    ctrl.measurePayloads(greetingService, PayloadSizers.gwtRpc(
+        (SerializationStreamFactory) GWT.create(GreetingService.class)));
+    greetingService.greet(ctrl.eq("World"), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("Hello, World!");
+    ctrl.replay();
+
+    greetingService.greet("World", callback);
+
+    PayloadSizes.MethodSizes greet = ctrl.payloadSizes().getMethod(greetingService, "greet");
+    assertEquals(1, greet.getRequestCount());
+    assertTrue(greet.getMaxRequestBytes() > "World".length());
+    assertEquals(1, greet.getResponseCount());
+    assertTrue(greet.getMaxResponseBytes() > "Hello, World!".length());
+    ctrl.verify();
+  }
+
+  public void testPayloadSizes_sizerFails() {
+    ctrl.measurePayloads(mock, new FailingSizer());
+    mock.load(ctrl.eq("ab"), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("result");
+    ctrl.replay();
+
+    try {
+      mock.load("ab", callback);
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+      assertTrue(expected.getMessage(),
+          expected.getMessage().contains("Cannot measure the payload of"));
+    }
+  }
+
+  public void testPayloadSizes_unexpectedCallWithFailingSizer() {
+    ctrl.measurePayloads(mock, new FailingSizer());
+    ctrl.replay();
+
+    try {
+      mock.load("abc", callback);
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+      assertTrue(expected.getMessage(), expected.getMessage().contains("Unexpected method call"));
+    }
+  }
+
+  public void testResetStopsMeasuring() {
+    ctrl.measurePayloads(mock, new FailingSizer());
+    ctrl.reset();
+    mock.load(ctrl.eq("ab"), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("result");
+    ctrl.replay();
+
+    mock.load("ab", callback);
+    ctrl.verify();
+    try {
+      ctrl.payloadSizes();
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testPayloadSizes_notMeasured() {
+    try {
+      ctrl.payloadSizes();
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  /**
+   * Counts the characters of the string representations of the values.
+   */
+  private static class CharacterSizer implements PayloadSizer {
+    @Override
+    public int sizeOf(Object[] values) {
+      int size = 0;
+      for (Object value : values) {
+        size += String.valueOf(value).length();
+      }
+      return size;
+    }
+  }
+
+  private static class FailingSizer implements PayloadSizer {
+    @Override
+    public int sizeOf(Object[] values) {
+      throw new IllegalArgumentException("not serializable");
+    }
+  }
+}
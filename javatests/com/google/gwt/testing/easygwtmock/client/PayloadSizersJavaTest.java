@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.client.rpc.SerializationStreamFactory;
+import com.google.gwt.user.client.rpc.SerializationStreamReader;
+import com.google.gwt.user.client.rpc.SerializationStreamWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the PayloadSizers class
+ */
+public class PayloadSizersJavaTest extends TestCase {
+
+  public void testGwtRpc() {
+    PayloadSizer sizer = PayloadSizers.gwtRpc(new FakeStreamFactory());
+
+    assertEquals("7|1|abc|".length(), sizer.sizeOf(new Object[] {"abc"}));
+    assertEquals("7|1|abc|2|".length(), sizer.sizeOf(new Object[] {"abc", 2}));
+  }
+
+  public void testGwtRpc_countsUtf8Bytes() {
+    PayloadSizer sizer = PayloadSizers.gwtRpc(new FakeStreamFactory());
+
+    assertEquals("7|1|".length() + 2 + 3 + 4 + 1,
+        sizer.sizeOf(new Object[] {"\u00e4\u20ac\ud83d\ude00"}));
+  }
+
+  public void testGwtRpc_notSerializable() {
+    PayloadSizer sizer = PayloadSizers.gwtRpc(new FakeStreamFactory());
+
+    try {
+      sizer.sizeOf(new Object[] {new Object()});
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+      assertTrue(expected.getCause() instanceof SerializationException);
+    }
+  }
+
+  public void testUtf8Length() {
+    assertEquals(0, PayloadSizers.utf8Length(""));
+    assertEquals(3, PayloadSizers.utf8Length("abc"));
+    assertEquals(2, PayloadSizers.utf8Length("\u00e4"));
+    assertEquals(3, PayloadSizers.utf8Length("\u20ac"));
+    assertEquals(4, PayloadSizers.utf8Length("\ud83d\ude00"));
+  }
+
+  /**
+   * Creates writers that write strings and integers separated by '|' after a header.
+   */
+  private static class FakeStreamFactory implements SerializationStreamFactory {
+
+    @Override
+    public SerializationStreamWriter createStreamWriter() {
+      return new FakeStreamWriter();
+    }
+
+    @Override
+    public SerializationStreamReader createStreamReader(String encoded) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static class FakeStreamWriter implements SerializationStreamWriter {
+
+    private final StringBuilder stream = new StringBuilder("7|1|");
+
+    @Override
+    public void writeObject(Object value) throws SerializationException {
+      if (!(value instanceof String) && !(value instanceof Integer)) {
+        throw new SerializationException("Not serializable: " + value);
+      }
+      this.stream.append(value).append("|");
+    }
+
+    @Override
+    public void writeString(String value) {
+      this.stream.append(value).append("|");
+    }
+
+    @Override
+    public void writeInt(int value) {
+      this.stream.append(value).append("|");
+    }
+
+    @Override
+    public void writeBoolean(boolean value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeByte(byte value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeChar(char value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeDouble(double value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeFloat(float value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeLong(long value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeShort(short value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+      return this.stream.toString();
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+/**
+ * Tests detection of repeated identical calls.
+ */
+public class RepeatedCallsGwtTest extends BaseGwtTestCase {
+  interface MyControl extends MocksControl {
+    Service getMock();
+    ServiceAsync getAsyncMock();
+  }
+
+  interface Service {
+    String load(int id);
+  }
+
+  interface ServiceAsync {
+    void load(int id, AsyncCallback<String> callback);
+  }
+
+  private MyControl ctrl;
+  private Service mock;
+
+  @Override
+  public void gwtSetUp() {
+    this.ctrl = GWT.create(MyControl.class);
+    this.mock = ctrl.getMock();
+  }
+
+  public void testReport() {
+    ctrl.detectRepeatedCalls(5);
+    ctrl.expect(mock.load(ctrl.anyInt())).andReturn("item").anyTimes();
+    ctrl.replay();
+
+    mock.load(1);
+    mock.load(2);
+    mock.load(1);
+
+    String report = ctrl.getRepeatedCallsReport();
+    assertTrue(report, report.contains(".load(1): 2 times"));
+    assertFalse(report, report.contains("load(2)"));
+    ctrl.verify();
+  }
+
+  public void testReport_asyncService() {
+    ServiceAsync asyncMock = ctrl.getAsyncMock();
+    ctrl.detectRepeatedCalls(5);
+    asyncMock.load(ctrl.anyInt(), ctrl.asyncCallback(String.class));
+    ctrl.expectLastCall().andCallOnSuccess("item").anyTimes();
+    ctrl.replay();
+
+    for (int i = 0; i < 3; i++) {
+      asyncMock.load(1, new AsyncCallback<String>() {
+        @Override
+        public void onFailure(Throwable caught) {
+        }
+
+        @Override
+        public void onSuccess(String result) {
+        }
+      });
+    }
+
+    String report = ctrl.getRepeatedCallsReport();
+    assertTrue(report, report.contains(".load(1, <AsyncCallback>): 3 times"));
+    ctrl.verify();
+  }
+
+  public void testReport_noRepeatedCalls() {
+    ctrl.detectRepeatedCalls(1);
+    ctrl.expect(mock.load(ctrl.anyInt())).andReturn("item").anyTimes();
+    ctrl.replay();
+
+    mock.load(1);
+    mock.load(2);
+
+    assertEquals("", ctrl.getRepeatedCallsReport());
+    ctrl.verify();
+  }
+
+  public void testVerify() {
+    ctrl.detectRepeatedCalls(1);
+    ctrl.expect(mock.load(ctrl.anyInt())).andReturn("item").anyTimes();
+    ctrl.replay();
+
+    mock.load(1);
+    mock.load(1);
+
+    try {
+      ctrl.verify();
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+      assertTrue(expected.getMessage(),
+          expected.getMessage().contains("Identical calls made more than 1 times:"));
+    }
+  }
+
+  public void testResetStopsDetection() {
+    ctrl.detectRepeatedCalls(1);
+    ctrl.reset();
+    ctrl.expect(mock.load(1)).andReturn("item").times(2);
+    ctrl.replay();
+
+    mock.load(1);
+    mock.load(1);
+    ctrl.verify();
+    try {
+      ctrl.getRepeatedCallsReport();
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testReport_notDetected() {
+    try {
+      ctrl.getRepeatedCallsReport();
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testDetectRepeatedCalls_invalidMax() {
+    try {
+      ctrl.detectRepeatedCalls(0);
+      fail("should have thrown exception");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
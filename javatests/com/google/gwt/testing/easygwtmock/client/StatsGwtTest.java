@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.core.client.GWT;
+
+/**
+ * Tests the call statistics of the control.
+ */
+public class StatsGwtTest extends BaseGwtTestCase {
+  interface MyControl extends MocksControl {
+    Service getMock();
+    @Nice Service getNiceMock();
+  }
+
+  interface Service {
+    String load(int id);
+    void save(String item);
+  }
+
+  private MyControl ctrl;
+  private Service mock;
+  private Service niceMock;
+
+  @Override
+  public void gwtSetUp() {
+    this.ctrl = GWT.create(MyControl.class);
+    this.mock = ctrl.getMock();
+    this.niceMock = ctrl.getNiceMock();
+  }
+
+  public void testStats() {
+    ctrl.recordStats();
+    ctrl.expect(mock.load(1)).andReturn("one");
+    ctrl.expect(mock.load(ctrl.anyInt())).andReturn("item").anyTimes();
+    mock.save("never");
+    ctrl.expectLastCall().anyTimes();
+    ctrl.replay();
+
+    mock.load(1);
+    mock.load(2);
+    mock.load(3);
+    niceMock.load(1);
+
+    MocksStats stats = ctrl.stats();
+    assertEquals(3, stats.getMethod(mock, "load").getMatchedCount());
+    assertEquals(0, stats.getMethod(mock, "save").getCallCount());
+    assertEquals(1, stats.getMethod(niceMock, "load").getNiceDefaultCount());
+    assertEquals(4, stats.getTotalCallCount());
+    assertEquals(1, stats.getUnusedExpectations().size());
+    assertTrue(stats.getUnusedExpectations().get(0),
+        stats.getUnusedExpectations().get(0).endsWith(".save(never)"));
+    ctrl.verify();
+  }
+
+  public void testStats_unexpectedCall() {
+    ctrl.recordStats();
+    ctrl.replay();
+
+    try {
+      mock.load(1);
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+
+    assertEquals(1, ctrl.stats().getMethod(mock, "load").getUnexpectedCount());
+  }
+
+  public void testStats_csv() {
+    ctrl.recordStats();
+    ctrl.expect(mock.load(1)).andReturn("one");
+    ctrl.replay();
+
+    mock.load(1);
+
+    String csv = ctrl.stats().toCsv();
+    assertTrue(csv, csv.startsWith("mock,method,matched,unexpected,niceDefaults,answerNanos\n"));
+    assertTrue(csv, csv.contains(",load(int),1,0,0,"));
+  }
+
+  public void testResetStopsStats() {
+    ctrl.recordStats();
+    ctrl.reset();
+    ctrl.replay();
+
+    try {
+      ctrl.stats();
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testStats_notRecorded() {
+    try {
+      ctrl.stats();
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+    }
+  }
+}
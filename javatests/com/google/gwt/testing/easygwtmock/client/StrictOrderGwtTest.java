@@ -0,0 +1,104 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.testing.easygwtmock.client.BaseGwtTestCase;
+
+/**
+ * Tests controls that check the order of calls
+ */
+public class StrictOrderGwtTest extends BaseGwtTestCase {
+
+  interface Connection {
+    void open();
+    int send(String message);
+    void close();
+  }
+
+  @StrictOrder
+  interface MyControl extends MocksControl {
+    Connection getMock();
+    Connection getOtherMock();
+  }
+
+  public void testInOrder() {
+    MyControl ctrl = GWT.create(MyControl.class);
+    Connection mock = ctrl.getMock();
+
+    mock.open();
+    ctrl.expect(mock.send("a")).andReturn(1).times(2);
+    ctrl.expect(mock.send("b")).andReturn(2);
+    mock.close();
+    ctrl.replay();
+
+    mock.open();
+    assertEquals(1, mock.send("a"));
+    assertEquals(1, mock.send("a"));
+    assertEquals(2, mock.send("b"));
+    mock.close();
+
+    ctrl.verify();
+  }
+
+  public void testWrongOrder() {
+    MyControl ctrl = GWT.create(MyControl.class);
+    Connection mock = ctrl.getMock();
+
+    mock.open();
+    mock.close();
+    ctrl.replay();
+
+    try {
+      mock.close();
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+  }
+
+  public void testOrderAcrossMocks() {
+    MyControl ctrl = GWT.create(MyControl.class);
+    Connection mock = ctrl.getMock();
+    Connection otherMock = ctrl.getOtherMock();
+
+    mock.open();
+    otherMock.open();
+    ctrl.replay();
+
+    try {
+      otherMock.open();
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+  }
+
+  public void testReset() {
+    MyControl ctrl = GWT.create(MyControl.class);
+    Connection mock = ctrl.getMock();
+    ctrl.reset();
+
+    mock.open();
+    mock.close();
+    ctrl.replay();
+
+    try {
+      mock.close();
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+  }
+}
@@ -45,6 +45,16 @@ public class AnswerFactoryJavaTest extends TestCase {
     assertSame(obj, answer.answer(null));
   }
   
+  public void testForValue_sharedDefaults() throws Throwable {
+    assertSame(AnswerFactory.forValue(null), AnswerFactory.forValue(null));
+    assertSame(AnswerFactory.forValue(false), AnswerFactory.forValue(false));
+    assertSame(AnswerFactory.forValue(0), AnswerFactory.forValue(0));
+    assertSame(AnswerFactory.forValue((char) 0), AnswerFactory.forValue((char) 0));
+    assertEquals(0L, AnswerFactory.forValue(0L).answer(null));
+    assertEquals(-0.0, AnswerFactory.forValue(-0.0).answer(null));
+    assertEquals(true, AnswerFactory.forValue(true).answer(null));
+  }
+  
   public void testForThrowable() throws Throwable {
     NullPointerException exception = new NullPointerException();
     Answer<Object> answer = AnswerFactory.forThrowable(exception);
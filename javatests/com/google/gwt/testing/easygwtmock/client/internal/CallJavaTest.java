@@ -16,6 +16,9 @@
 
 package com.google.gwt.testing.easygwtmock.client.internal;
 
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Any;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Equals;
+
 import junit.framework.TestCase;
 
 import java.util.List;
@@ -52,6 +55,18 @@ public class CallJavaTest extends TestCase {
     assertEquals(args.get(5), "arg3");
   }
   
+  public void testGetArgumentArray_notCopied() {
+    Object[] args = { 1, "hallo" };
+    Call call = new Call(mock, method, args);
+    
+    assertSame(args, call.getArgumentArray());
+    assertEquals(2, call.getArguments().size());
+    
+    call.addVarArgument(new Object[] { "arg1" });
+    assertEquals(3, call.getArgumentArray().length);
+    assertEquals("arg1", call.getArgumentArray()[2]);
+  }
+  
   public void testToString() {
     Call call = new Call(mock, method, 1, 2, "hallo");
     assertEquals("foo(1, 2, hallo)", call.toString());
@@ -67,6 +82,69 @@ public class CallJavaTest extends TestCase {
     assertEquals("foo(1, hallo, 42, 43, 44)", call.toString());
   }
   
+  public void testCreate_boxesOnDemand() {
+    Class<?>[] argumentTypes = { int.class, String.class, long.class, double.class,
+                                 boolean.class, char.class, byte.class, short.class, float.class };
+    Method method = new Method("bar", int.class, argumentTypes, new Class<?>[0]);
+    
+    Call call = Call.create(mock, method, 9);
+    call.setArgument(0, 42);
+    call.setArgument(1, "hallo");
+    call.setArgument(2, 1L << 40);
+    call.setArgument(3, 0.5);
+    call.setArgument(4, true);
+    call.setArgument(5, 'x');
+    call.setArgument(6, (byte) 7);
+    call.setArgument(7, (short) -3);
+    call.setArgument(8, 1.5f);
+    
+    assertEquals(42, call.getArgument(0));
+    
+    List<Object> args = call.getArguments();
+    assertEquals(9, args.size());
+    assertEquals(42, args.get(0));
+    assertEquals("hallo", args.get(1));
+    assertEquals(1L << 40, args.get(2));
+    assertEquals(0.5, args.get(3));
+    assertEquals(true, args.get(4));
+    assertEquals('x', args.get(5));
+    assertEquals((byte) 7, args.get(6));
+    assertEquals((short) -3, args.get(7));
+    assertEquals(1.5f, args.get(8));
+    assertEquals("bar(42, hallo, 1099511627776, 0.5, true, x, 7, -3, 1.5)", call.toString());
+  }
+  
+  public void testCreate_withVarArgument() {
+    Class<?>[] argumentTypes = { int.class, int[].class };
+    Method method = new Method("bar", int.class, argumentTypes, new Class<?>[0]);
+    
+    Call call = Call.create(mock, method, 1);
+    call.setArgument(0, 1);
+    int[] varArgs = { 42, 43 };
+    call.addVarArgument(varArgs);
+    
+    assertEquals("bar(1, 42, 43)", call.toString());
+  }
+  
+  public void testMatchesArgument_unboxed() {
+    Class<?>[] argumentTypes = { int.class, long.class, double.class };
+    Method method = new Method("bar", int.class, argumentTypes, new Class<?>[0]);
+    
+    Call call = Call.create(mock, method, 3);
+    call.setArgument(0, 42);
+    call.setArgument(1, 42L);
+    call.setArgument(2, Double.NaN);
+    
+    assertTrue(call.matchesArgument(0, new Equals(42)));
+    assertFalse(call.matchesArgument(0, new Equals(42L)));
+    assertFalse(call.matchesArgument(0, new Equals(43)));
+    assertTrue(call.matchesArgument(1, new Equals(42L)));
+    assertFalse(call.matchesArgument(1, new Equals(42)));
+    assertTrue(call.matchesArgument(2, new Equals(Double.NaN)));
+    assertFalse(call.matchesArgument(2, new Equals(Float.NaN)));
+    assertTrue(call.matchesArgument(0, Any.ANY));
+  }
+  
   public void testGetDefaultReturnValue() {
     Call call = new Call(mock, method, 1, 2, "hallo");
     assertEquals(method.getDefaultReturnValue(), call.getDefaultReturnValue());
@@ -25,6 +25,7 @@ import com.google.gwt.testing.easygwtmock.client.internal.matchers.Equals;
 import junit.framework.TestCase;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -122,28 +123,45 @@ public class ExpectedCallJavaTest extends TestCase {
     assertTrue("should be invokable", exp.canBeInvoked());
     assertEquals(0, exp.getCallCount());
     
-    assertSame(answer, exp.invoke());
+    assertSame(answer, exp.invoke(call1));
     
     assertTrue("expectations should be met", exp.expectationMet());
     assertFalse("should not be invokable", exp.canBeInvoked());
     assertEquals(1, exp.getCallCount());
   }
   
-  public void testInvoke_withCapture() {
+  public void testMetByLastInvoke() {
     Call call1 = new Call(this.mock, this.method);
+    ExpectedCall exp = new ExpectedCall(call1, createMatchersFor(call1),
+                                        null, null, new Range(2, 3));
+    
+    exp.invoke(call1);
+    assertFalse("should not be met by first invoke", exp.metByLastInvoke());
+    exp.invoke(call1);
+    assertTrue("should be met by second invoke", exp.metByLastInvoke());
+    exp.invoke(call1);
+    assertFalse("was already met before third invoke", exp.metByLastInvoke());
+  }
+  
+  public void testInvoke_withCapture() {
+    Call call1 = new Call(this.mock, this.method, 1, "Hallo", 3);
     
     Capture<Integer> capture = new Capture<Integer>();
+    ArgumentCapture argumentCapture = new ArgumentCapture(capture);
     Set<ArgumentCapture> argumentCaptures = new HashSet<ArgumentCapture>();
-    argumentCaptures.add(new ArgumentCapture(capture));
+    argumentCaptures.add(argumentCapture);
+    List<ArgumentMatcher> matchers = createMatchersFor(call1);
+    matchers.set(2, argumentCapture);
     
-    ExpectedCall exp = new ExpectedCall(call1, createMatchersFor(call1),
+    ExpectedCall exp = new ExpectedCall(call1, matchers,
                                         argumentCaptures, null, Range.DEFAULT);
     
+    assertTrue("should match", exp.matches(new Call(this.mock, this.method, 1, "Hallo", 4)));
     assertFalse("should not have captured", capture.hasCaptured());
     
-    exp.invoke();
+    exp.invoke(new Call(this.mock, this.method, 1, "Hallo", 5));
     
-    assertTrue("should have captured", capture.hasCaptured());
+    assertEquals(Arrays.asList(5), capture.getValues());
   }
   
   static List<ArgumentMatcher> createMatchersFor(Call call) {
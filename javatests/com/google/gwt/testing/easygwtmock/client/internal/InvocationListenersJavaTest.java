@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.ArgumentMatcher;
+import com.google.gwt.testing.easygwtmock.client.Expectation;
+import com.google.gwt.testing.easygwtmock.client.Invocation;
+import com.google.gwt.testing.easygwtmock.client.InvocationListener;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Any;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the InvocationListeners class
+ */
+public class InvocationListenersJavaTest extends TestCase {
+
+  private List<String> events;
+  private Call call;
+
+  @Override
+  public void setUp() {
+    this.events = new ArrayList<String>();
+    Method foo = new Method("foo", int.class, new Class<?>[] {int.class}, new Class<?>[0]);
+    this.call = new Call(new Object(), foo, 1);
+  }
+
+  public void testNotifiedInOrder() {
+    InvocationListeners listeners = InvocationListeners.add(null, new RecordingListener("a"));
+    listeners = InvocationListeners.add(listeners, new RecordingListener("b"));
+
+    listeners.beforeInvoke(this.call);
+    listeners.afterMatch(this.call, new ExpectedCall(this.call,
+        Collections.<ArgumentMatcher>singletonList(Any.ANY), null, AnswerFactory.forValue(1),
+        Range.DEFAULT));
+    listeners.unexpectedCall(this.call);
+    listeners.afterVerify(null);
+    listeners.afterReset();
+
+    assertEquals(Arrays.asList(
+        "a beforeInvoke foo(1)", "b beforeInvoke foo(1)",
+        "a afterMatch foo(1) foo(<any>)", "b afterMatch foo(1) foo(<any>)",
+        "a unexpectedCall foo(1)", "b unexpectedCall foo(1)",
+        "a afterVerify null", "b afterVerify null",
+        "a afterReset", "b afterReset"), this.events);
+  }
+
+  public void testAdd_doesNotChangeList() {
+    InvocationListeners listeners = InvocationListeners.add(null, new RecordingListener("a"));
+    InvocationListeners.add(listeners, new RecordingListener("b"));
+
+    listeners.afterReset();
+
+    assertEquals(Arrays.asList("a afterReset"), this.events);
+  }
+
+  public void testRemove() {
+    InvocationListener a = new RecordingListener("a");
+    InvocationListener b = new RecordingListener("b");
+    InvocationListeners listeners = InvocationListeners.add(null, a);
+    listeners = InvocationListeners.add(listeners, b);
+    listeners = InvocationListeners.add(listeners, a);
+
+    listeners = InvocationListeners.remove(listeners, a);
+    listeners.afterReset();
+
+    assertEquals(Arrays.asList("b afterReset", "a afterReset"), this.events);
+  }
+
+  public void testRemove_lastListener() {
+    InvocationListener a = new RecordingListener("a");
+    InvocationListeners listeners = InvocationListeners.add(null, a);
+
+    assertNull(InvocationListeners.remove(listeners, a));
+  }
+
+  public void testRemove_unknownListener() {
+    InvocationListeners listeners = InvocationListeners.add(null, new RecordingListener("a"));
+
+    assertSame(listeners, InvocationListeners.remove(listeners, new RecordingListener("b")));
+    assertNull(InvocationListeners.remove(null, new RecordingListener("b")));
+  }
+
+  private class RecordingListener implements InvocationListener {
+
+    private final String name;
+
+    RecordingListener(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void beforeInvoke(Invocation invocation) {
+      events.add(this.name + " beforeInvoke " + invocation);
+    }
+
+    @Override
+    public void afterMatch(Invocation invocation, Expectation expectation) {
+      events.add(this.name + " afterMatch " + invocation + " " + expectation);
+    }
+
+    @Override
+    public void unexpectedCall(Invocation invocation) {
+      events.add(this.name + " unexpectedCall " + invocation);
+    }
+
+    @Override
+    public void afterVerify(AssertionError failure) {
+      events.add(this.name + " afterVerify " + failure);
+    }
+
+    @Override
+    public void afterReset() {
+      events.add(this.name + " afterReset");
+    }
+  }
+}
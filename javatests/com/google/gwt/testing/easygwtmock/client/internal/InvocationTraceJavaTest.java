@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Answer;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the InvocationTrace class
+ */
+public class InvocationTraceJavaTest extends TestCase {
+
+  private Object mock;
+  private Method foo;
+  private Method load;
+  private VirtualClock clock;
+  private InvocationTrace trace;
+
+  @Override
+  public void setUp() {
+    this.mock = new Object() {
+      @Override
+      public String toString() {
+        return "Mock for Service";
+      }
+    };
+    this.foo = new Method("foo", int.class, new Class<?>[] {String.class}, new Class<?>[0]);
+    this.load = new Method("load", void.class, new Class<?>[] {AsyncCallback.class},
+        new Class<?>[0]);
+    this.clock = new VirtualClock();
+    this.trace = new InvocationTrace(this.clock);
+  }
+
+  public void testToJson_empty() {
+    assertEquals("{\"traceEvents\":[\n"
+        + "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":1,"
+        + "\"args\":{\"name\":\"mock calls (real time)\"}},\n"
+        + "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":2,\"tid\":1,"
+        + "\"args\":{\"name\":\"callbacks (virtual time)\"}}\n"
+        + "],\"displayTimeUnit\":\"ms\"}\n", this.trace.toJson());
+  }
+
+  public void testTrace_call() throws Throwable {
+    Call call = new Call(this.mock, this.foo, "a\"b");
+    Answer<Object> answer = this.trace.trace(call, "foo(<any>)", AnswerFactory.forValue(42));
+
+    assertEquals(42, answer.answer(call.getArgumentArray()));
+    String json = this.trace.toJson();
+    assertTrue(json, json.contains("{\"name\":\"foo\",\"cat\":\"call\",\"ph\":\"X\",\"pid\":1,"));
+    assertTrue(json, json.contains("\"args\":{\"call\":\"Mock for Service.foo(a\\\"b)\","
+        + "\"expectation\":\"foo(<any>)\",\"answer\":\"return\"}}"));
+  }
+
+  public void testTrace_argumentsChangedByAnswer() throws Throwable {
+    Call call = new Call(this.mock, this.foo, "a");
+    Answer<Object> answer = this.trace.trace(call, "foo(<any>)", new Answer<Object>() {
+      @Override
+      public Object answer(Object[] args) throws Throwable {
+        args[0] = "changed";
+        return 42;
+      }
+    });
+
+    answer.answer(call.getArgumentArray());
+    String json = this.trace.toJson();
+    assertTrue(json, json.contains("\"call\":\"Mock for Service.foo(a)\""));
+  }
+
+  public void testTrace_throwingAnswer() {
+    Call call = new Call(this.mock, this.foo, "a");
+    Answer<Object> answer = this.trace.trace(call, "foo(<any>)", new Answer<Object>() {
+      @Override
+      public Object answer(Object[] args) throws Throwable {
+        throw new IllegalStateException();
+      }
+    });
+
+    try {
+      answer.answer(call.getArgumentArray());
+      fail("should have thrown exception");
+    } catch (Throwable expected) {
+      assertTrue(expected instanceof IllegalStateException);
+    }
+    assertTrue(this.trace.toJson().contains("\"answer\":\"throw\""));
+  }
+
+  public void testTrace_deferredCallback() throws Throwable {
+    this.clock.advance(5);
+    AsyncCallback<Object> callback = new AsyncCallback<Object>() {
+      @Override
+      public void onFailure(Throwable caught) {
+      }
+
+      @Override
+      public void onSuccess(Object result) {
+      }
+    };
+    Call call = new Call(this.mock, this.load, callback);
+    Answer<Object> answer = this.trace.trace(call, "load(<any>)",
+        AnswerFactory.forOnSuccessAfter(this.clock, 300, "x"));
+
+    answer.answer(call.getArgumentArray());
+    String json = this.trace.toJson();
+    assertTrue(json, json.contains("\"answer\":\"deferred callback\""));
+    assertTrue(json, json.contains("{\"name\":\"load\",\"cat\":\"callback\",\"ph\":\"b\","
+        + "\"pid\":2,\"tid\":1,\"ts\":5000,\"id\":0,"));
+    assertTrue(json, json.contains("{\"name\":\"load\",\"cat\":\"callback\",\"ph\":\"e\","
+        + "\"pid\":2,\"tid\":1,\"ts\":305000,\"id\":0}"));
+  }
+
+  public void testAddUnexpected() {
+    this.trace.addUnexpected(new Call(this.mock, this.foo, "a"));
+
+    String json = this.trace.toJson();
+    assertTrue(json, json.contains("{\"name\":\"foo\",\"cat\":\"unexpected\",\"ph\":\"i\","));
+  }
+
+  public void testTimestampsIncrease() throws Throwable {
+    Call call = new Call(this.mock, this.foo, "a");
+    for (int i = 0; i < 3; i++) {
+      this.trace.trace(call, "foo(a)", AnswerFactory.forValue(1)).answer(null);
+    }
+
+    String json = this.trace.toJson();
+    long last = -1;
+    int index = json.indexOf("\"ts\":");
+    while (index >= 0) {
+      int end = json.indexOf(',', index);
+      long timestamp = Long.parseLong(json.substring(index + 5, end));
+      assertTrue(json, timestamp > last);
+      last = timestamp;
+      index = json.indexOf("\"ts\":", end);
+    }
+  }
+}
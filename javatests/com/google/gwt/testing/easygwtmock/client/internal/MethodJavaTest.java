@@ -108,6 +108,33 @@ public class MethodJavaTest extends TestCase {
     assertTrue("should be throwable", method.canThrow(new Error()));
   }
   
+  public void testCanThrow_generatedDeclaredThrowables() {
+    final int[] checkedIndex = {-1};
+    Method method = new Method("foo", new Class<?>[0], null, false, false,
+        new Method.DeclaredThrowables() {
+          @Override
+          public boolean isDeclared(int methodIndex, Throwable throwable) {
+            checkedIndex[0] = methodIndex;
+            return throwable instanceof MyException;
+          }
+        }, 3);
+    
+    // no declared throwable classes are known, so only the generated check can accept it
+    assertTrue("should be throwable", method.canThrow(new MyExtendedException()));
+    assertEquals(3, checkedIndex[0]);
+    assertFalse("should not be throwable", method.canThrow(new MyUndeclaredException()));
+    assertTrue("should be throwable", method.canThrow(new RuntimeException()));
+  }
+  
+  public void testCanThrow_noDeclaredThrowables() {
+    Method method = new Method("foo", new Class<?>[0], 0, false, true, null, 0);
+    
+    assertFalse("should not be throwable", method.canThrow(new MyException()));
+    assertTrue("should be throwable", method.canThrow(new Error()));
+    assertEquals(0, method.getDefaultReturnValue());
+    assertTrue(method.isReturnValuePrimitive());
+  }
+  
   public void testToString() {
     Class<?>[] args = { MyException.class, int.class, String.class };
     Method method = new Method("foo", int.class, args, null);
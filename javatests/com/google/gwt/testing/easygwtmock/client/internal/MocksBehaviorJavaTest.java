@@ -0,0 +1,559 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Answer;
+import com.google.gwt.testing.easygwtmock.client.ArgumentMatcher;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizer;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Any;
+import com.google.gwt.testing.easygwtmock.client.internal.matchers.Equals;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the MocksBehavior class
+ */
+public class MocksBehaviorJavaTest extends TestCase {
+
+  private Object mock;
+  private Method foo;
+  private Method bar;
+  private MocksBehavior behavior;
+
+  @Override
+  public void setUp() {
+    this.mock = new Object();
+    Class<?>[] argumentTypes = { int.class };
+    Class<?>[] declaredThrowables = {};
+    this.foo = new Method("foo", int.class, argumentTypes, declaredThrowables);
+    this.bar = new Method("bar", int.class, argumentTypes, declaredThrowables);
+    this.behavior = new MocksBehavior();
+  }
+
+  public void testAddActual_firstRecordedWins() throws Throwable {
+    expect(this.mock, this.foo, anyMatcher(), 1, Range.DEFAULT);
+    expect(this.mock, this.foo, null, 2, Range.DEFAULT);
+
+    assertEquals(1, answer(new Call(this.mock, this.foo, 3)));
+    assertEquals(2, answer(new Call(this.mock, this.foo, 3)));
+  }
+
+  public void testAddActual_skipsExhaustedExpectations() throws Throwable {
+    expect(this.mock, this.foo, null, 1, new Range(1, 2));
+    expect(this.mock, this.foo, null, 2, Range.DEFAULT);
+
+    assertEquals(1, answer(new Call(this.mock, this.foo, 3)));
+    assertEquals(1, answer(new Call(this.mock, this.foo, 3)));
+    assertEquals(2, answer(new Call(this.mock, this.foo, 3)));
+  }
+
+  public void testAddActual_separatesMethods() throws Throwable {
+    expect(this.mock, this.foo, anyMatcher(), 1, Range.DEFAULT);
+    expect(this.mock, this.bar, anyMatcher(), 2, Range.DEFAULT);
+
+    assertEquals(2, answer(new Call(this.mock, this.bar, 3)));
+    assertEquals(1, answer(new Call(this.mock, this.foo, 3)));
+  }
+
+  public void testAddActual_separatesMocks() throws Throwable {
+    Object otherMock = new EqualToEverything();
+    expect(this.mock, this.foo, anyMatcher(), 1, Range.DEFAULT);
+    expect(otherMock, this.foo, anyMatcher(), 2, Range.DEFAULT);
+
+    assertEquals(2, answer(new Call(otherMock, this.foo, 3)));
+    assertEquals(1, answer(new Call(this.mock, this.foo, 3)));
+  }
+
+  public void testAddActual_unexpected() throws Throwable {
+    expect(this.mock, this.foo, null, 1, Range.DEFAULT);
+
+    try {
+      this.behavior.addActual(new Call(this.mock, this.foo, 4));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      assertTrue(expected.getAssertionError().getMessage().contains("Unexpected method call"));
+    }
+  }
+
+  public void testAddActual_unexpectedWithFailingPayloadSizer() throws Throwable {
+    this.behavior.measurePayloads(this.mock, new PayloadSizer() {
+      @Override
+      public int sizeOf(Object[] values) {
+        throw new IllegalArgumentException("not serializable");
+      }
+    });
+
+    try {
+      this.behavior.addActual(new Call(this.mock, this.foo, 4));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      assertTrue(expected.getAssertionError().getMessage().contains("Unexpected method call"));
+    }
+  }
+
+  public void testAddActual_unexpectedMessage() throws Throwable {
+    expect(this.mock, this.foo, null, 1, Range.DEFAULT);
+    expect(this.mock, this.bar, anyMatcher(), 2, Range.DEFAULT);
+    answer(new Call(this.mock, this.foo, 3));
+
+    try {
+      this.behavior.addActual(new Call(this.mock, this.foo, 3));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      // bar is invoked after the failure, the message still shows the old state
+      answer(new Call(this.mock, this.bar, 4));
+      assertEquals("\n  Unexpected method call foo(3). List of all expectations:"
+          + "\n  Potential matches are marked with (+1)."
+          + "\n        foo(3): expected 1, actual 1 (+1)"
+          + "\n    --> bar(<any>): expected 1, actual 0\n",
+          expected.getAssertionError().getMessage());
+    }
+  }
+
+  public void testAddActual_unexpectedMessageKeepsPotentialMatches() throws Throwable {
+    final boolean[] accepting = { true };
+    List<ArgumentMatcher> matchers = new ArrayList<ArgumentMatcher>();
+    matchers.add(new ArgumentMatcher() {
+      @Override
+      public boolean matches(Object argument) {
+        return accepting[0];
+      }
+
+      @Override
+      public void appendTo(StringBuffer buffer) {
+        buffer.append("<toggle>");
+      }
+    });
+    expect(this.mock, this.foo, matchers, 1, Range.DEFAULT);
+    answer(new Call(this.mock, this.foo, 3));
+
+    try {
+      this.behavior.addActual(new Call(this.mock, this.foo, 3));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      // the matcher changes its mind after the failure, the message still shows the old match
+      accepting[0] = false;
+      assertEquals("\n  Unexpected method call foo(3). List of all expectations:"
+          + "\n  Potential matches are marked with (+1)."
+          + "\n        foo(<toggle>): expected 1, actual 1 (+1)\n",
+          expected.getAssertionError().getMessage());
+    }
+  }
+
+  public void testVerify_message() throws Throwable {
+    expect(this.mock, this.foo, null, 1, Range.DEFAULT);
+
+    try {
+      this.behavior.verify();
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      assertEquals("\n  Expectation failure on verify. List of all expectations:"
+          + "\n    --> foo(3): expected 1, actual 0\n",
+          expected.getAssertionError().getMessage());
+    }
+  }
+
+  public void testVerify_tracksUnmetExpectations() throws Throwable {
+    expect(this.mock, this.foo, null, 1, new Range(2, 3));
+    expect(this.mock, this.bar, null, 2, new Range(0, 1));
+
+    assertVerifyFails();
+    answer(new Call(this.mock, this.foo, 3));
+    assertVerifyFails();
+    answer(new Call(this.mock, this.foo, 3));
+    this.behavior.verify();
+    answer(new Call(this.mock, this.foo, 3));
+    answer(new Call(this.mock, this.bar, 3));
+    this.behavior.verify();
+  }
+
+  private void assertVerifyFails() {
+    try {
+      this.behavior.verify();
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+    }
+  }
+
+  public void testVerify_messageListsLimitedExpectations() throws Throwable {
+    int count = ExpectationsSnapshot.MAX_LISTED_EXPECTATIONS + 10;
+    for (int i = 0; i < count; i++) {
+      expectArgument(i, i, Range.DEFAULT);
+    }
+    answer(new Call(this.mock, this.foo, count - 1));
+
+    try {
+      this.behavior.verify();
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      String message = expected.getAssertionError().getMessage();
+      assertTrue(message.endsWith("\n    ... 10 more expectations not listed (9 unmet)\n"));
+      assertFalse(message.contains("foo(" + (count - 1) + ")"));
+    }
+  }
+
+  public void testAddActual_niceMock() throws Throwable {
+    this.behavior.addNiceMock(this.mock);
+
+    assertEquals(0, answer(new Call(this.mock, this.foo, 4)));
+  }
+
+  public void testAddActual_niceMockComparedByIdentity() throws Throwable {
+    Object niceMock = new UnmockableObjectMethods();
+    this.behavior.addNiceMock(niceMock);
+    this.behavior.addNiceMock(new UnmockableObjectMethods());
+
+    assertEquals(0, answer(new Call(niceMock, this.foo, 4)));
+
+    this.behavior.removeNiceMock(niceMock);
+    try {
+      this.behavior.addActual(new Call(niceMock, this.foo, 4));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+    }
+  }
+
+  public void testAddActual_indexed() throws Throwable {
+    for (int i = 0; i < 10; i++) {
+      expectArgument(i, i * 10, Range.DEFAULT);
+    }
+    this.behavior.prepareForReplay();
+
+    assertEquals(70, answer(new Call(this.mock, this.foo, 7)));
+    assertEquals(20, answer(new Call(this.mock, this.foo, 2)));
+    try {
+      this.behavior.addActual(new Call(this.mock, this.foo, 7));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+    }
+  }
+
+  public void testAddActual_indexedFirstRecordedWins() throws Throwable {
+    expectArgument(1, 10, Range.DEFAULT);
+    expect(this.mock, this.foo, anyMatcher(), 0, Range.DEFAULT);
+    expectArgument(1, 11, Range.DEFAULT);
+    expectArgument(2, 20, Range.DEFAULT);
+    this.behavior.prepareForReplay();
+
+    assertEquals(10, answer(new Call(this.mock, this.foo, 1)));
+    assertEquals(0, answer(new Call(this.mock, this.foo, 1)));
+    assertEquals(11, answer(new Call(this.mock, this.foo, 1)));
+    assertEquals(20, answer(new Call(this.mock, this.foo, 2)));
+  }
+
+  public void testAddActual_indexedSkipsExhaustedExpectations() throws Throwable {
+    expectArgument(1, 10, new Range(1, 2));
+    expectArgument(1, 11, Range.DEFAULT);
+    expectArgument(2, 20, Range.DEFAULT);
+    expect(this.mock, this.foo, anyMatcher(), 0, new Range(0, Range.UNLIMITED_MAX));
+    this.behavior.prepareForReplay();
+
+    assertEquals(10, answer(new Call(this.mock, this.foo, 1)));
+    assertEquals(10, answer(new Call(this.mock, this.foo, 1)));
+    assertEquals(11, answer(new Call(this.mock, this.foo, 1)));
+    assertEquals(0, answer(new Call(this.mock, this.foo, 1)));
+    assertEquals(0, answer(new Call(this.mock, this.foo, 3)));
+  }
+
+  public void testAddActual_argumentChangedAfterReplay() throws Throwable {
+    List<String> entity = new ArrayList<String>();
+    expectEqualTo(entity, 1);
+    expectEqualTo(new ArrayList<String>(Collections.singletonList("other")), 2);
+    this.behavior.prepareForReplay();
+
+    entity.add("changed");
+
+    assertEquals(1, answer(new Call(this.mock, this.foo, entity)));
+  }
+
+  public void testAddActual_asymmetricEquals() throws Throwable {
+    expectEqualTo(new EqualToEverything(), 1);
+    expectEqualTo(new EqualToEverything(), 2);
+    this.behavior.prepareForReplay();
+
+    // the expected value decides if the argument is equal, as without the index
+    assertEquals(1, answer(new Call(this.mock, this.foo, "anything")));
+  }
+
+  public void testAddActual_strictOrder() throws Throwable {
+    this.behavior = new MocksBehavior(true);
+    expect(this.mock, this.foo, null, 1, Range.DEFAULT);
+    expect(this.mock, this.bar, null, 2, new Range(1, 2));
+    expect(this.mock, this.foo, null, 3, Range.DEFAULT);
+
+    assertEquals(1, answer(new Call(this.mock, this.foo, 3)));
+    assertEquals(2, answer(new Call(this.mock, this.bar, 3)));
+    assertEquals(2, answer(new Call(this.mock, this.bar, 3)));
+    assertEquals(3, answer(new Call(this.mock, this.foo, 3)));
+    this.behavior.verify();
+  }
+
+  public void testAddActual_strictOrderSkipsMetExpectations() throws Throwable {
+    this.behavior = new MocksBehavior(true);
+    expect(this.mock, this.foo, null, 1, Range.DEFAULT);
+    expect(this.mock, this.bar, null, 2, new Range(0, 1));
+    expect(this.mock, this.foo, null, 3, Range.DEFAULT);
+
+    assertEquals(1, answer(new Call(this.mock, this.foo, 3)));
+    assertEquals(3, answer(new Call(this.mock, this.foo, 3)));
+    // the skipped expectation cannot be called anymore
+    try {
+      this.behavior.addActual(new Call(this.mock, this.bar, 3));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+    }
+    this.behavior.verify();
+  }
+
+  public void testAddActual_strictOrderWrongOrder() throws Throwable {
+    this.behavior = new MocksBehavior(true);
+    expect(this.mock, this.foo, null, 1, Range.DEFAULT);
+    expect(this.mock, this.bar, null, 2, Range.DEFAULT);
+
+    try {
+      this.behavior.addActual(new Call(this.mock, this.bar, 3));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+    }
+    assertEquals(1, answer(new Call(this.mock, this.foo, 3)));
+    assertEquals(2, answer(new Call(this.mock, this.bar, 3)));
+  }
+
+  public void testAddActual_concurrentKeepsRange() throws Throwable {
+    this.behavior = new MocksBehavior(false, true);
+    expect(this.mock, this.foo, anyMatcher(), 1, new Range(5000, 5000));
+    this.behavior.prepareForReplay();
+
+    final AtomicInteger answered = new AtomicInteger();
+    final AtomicInteger unexpected = new AtomicInteger();
+    runInThreads(8, new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 1000; i++) {
+          try {
+            MocksBehaviorJavaTest.this.behavior.addActual(
+                new Call(MocksBehaviorJavaTest.this.mock, MocksBehaviorJavaTest.this.foo, i));
+            answered.incrementAndGet();
+          } catch (AssertionErrorWrapper e) {
+            unexpected.incrementAndGet();
+          }
+        }
+      }
+    });
+
+    assertEquals(5000, answered.get());
+    assertEquals(3000, unexpected.get());
+    this.behavior.verify();
+  }
+
+  public void testAddActual_concurrentStrictOrder() throws Throwable {
+    this.behavior = new MocksBehavior(true, true);
+    expect(this.mock, this.foo, anyMatcher(), 1, new Range(4000, 4000));
+    expect(this.mock, this.bar, anyMatcher(), 2, Range.DEFAULT);
+
+    runInThreads(4, new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 1000; i++) {
+          try {
+            MocksBehaviorJavaTest.this.behavior.addActual(
+                new Call(MocksBehaviorJavaTest.this.mock, MocksBehaviorJavaTest.this.foo, i));
+          } catch (AssertionErrorWrapper e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }
+    });
+
+    assertEquals(2, answer(new Call(this.mock, this.bar, 3)));
+    this.behavior.verify();
+  }
+
+  public void testGetValueAnswer_sharedForIdenticalValues() throws Throwable {
+    Object value = new Object();
+    Answer<Object> answer = this.behavior.getValueAnswer(value);
+
+    assertSame(value, answer.answer(null));
+    assertSame(answer, this.behavior.getValueAnswer(value));
+    assertNotSame(answer, this.behavior.getValueAnswer(new Object()));
+  }
+
+  public void testVerify_callBudget() throws Throwable {
+    expect(this.mock, this.foo, anyMatcher(), 1, new Range(0, Range.UNLIMITED_MAX));
+    expect(this.mock, this.bar, anyMatcher(), 2, new Range(0, Range.UNLIMITED_MAX));
+    this.behavior.setCallBudget(this.mock, 2);
+
+    answer(new Call(this.mock, this.foo, 3));
+    answer(new Call(this.mock, this.bar, 3));
+    this.behavior.verify();
+    answer(new Call(this.mock, this.foo, 4));
+    assertVerifyFails();
+  }
+
+  public void testVerify_callBudgetCountsNiceMocks() throws Throwable {
+    this.behavior.addNiceMock(this.mock);
+    this.behavior.setCallBudget(this.mock, 1);
+
+    answer(new Call(this.mock, this.foo, 3));
+    this.behavior.verify();
+    answer(new Call(this.mock, this.foo, 3));
+    assertVerifyFails();
+  }
+
+  public void testVerify_totalCallBudget() throws Throwable {
+    Object otherMock = new Object();
+    expect(this.mock, this.foo, anyMatcher(), 1, new Range(0, Range.UNLIMITED_MAX));
+    this.behavior.addNiceMock(otherMock);
+    this.behavior.setCallBudget(null, 2);
+
+    answer(new Call(this.mock, this.foo, 3));
+    answer(new Call(otherMock, this.foo, 3));
+    this.behavior.verify();
+    answer(new Call(otherMock, this.bar, 3));
+    assertVerifyFails();
+  }
+
+  public void testVerify_callBudgetMessage() throws Throwable {
+    Object service = new Object() {
+      @Override
+      public String toString() {
+        return "Mock for Service";
+      }
+    };
+    expect(service, this.foo, anyMatcher(), 1, new Range(1, Range.UNLIMITED_MAX));
+    this.behavior.setCallBudget(service, 1);
+    this.behavior.setCallBudget(null, 2);
+
+    answer(new Call(service, this.foo, 3));
+    answer(new Call(service, this.foo, 3));
+    answer(new Call(service, this.foo, 3));
+
+    try {
+      this.behavior.verify();
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      assertEquals("\n  Call budget exceeded on verify."
+          + "\n    Mock for Service: expected at most 1 calls, actual 3"
+          + "\n    all mocks: expected at most 2 calls, actual 3\n",
+          expected.getAssertionError().getMessage());
+    }
+  }
+
+  private void expectArgument(int argument, int returnValue, Range range) {
+    Call call = new Call(this.mock, this.foo, argument);
+    this.behavior.addExpected(new ExpectedCall(call, ExpectedCallJavaTest.createMatchersFor(call),
+        null, AnswerFactory.forValue(returnValue), range));
+  }
+
+  private void expect(Object mock, Method method, List<ArgumentMatcher> matchers,
+                      int returnValue, Range range) {
+    Call call = new Call(mock, method, 3);
+    if (matchers == null) {
+      matchers = ExpectedCallJavaTest.createMatchersFor(call);
+    }
+    this.behavior.addExpected(
+        new ExpectedCall(call, matchers, null, AnswerFactory.forValue(returnValue), range));
+  }
+
+  private void expectEqualTo(Object argument, int returnValue) {
+    List<ArgumentMatcher> matchers = new ArrayList<ArgumentMatcher>();
+    matchers.add(new Equals(argument));
+    expect(this.mock, this.foo, matchers, returnValue, Range.DEFAULT);
+  }
+
+  private Object answer(Call call) throws Throwable {
+    return this.behavior.addActual(call).answer(call.getArguments().toArray());
+  }
+
+  /**
+   * Runs {@code task} in the given number of threads at once and waits for them to finish.
+   */
+  private static void runInThreads(int threadCount, final Runnable task) throws Throwable {
+    final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          task.run();
+        }
+      };
+      threads[i].setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+        @Override
+        public void uncaughtException(Thread thread, Throwable throwable) {
+          failures.add(throwable);
+        }
+      });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (!failures.isEmpty()) {
+      throw failures.get(0);
+    }
+  }
+
+  private static List<ArgumentMatcher> anyMatcher() {
+    List<ArgumentMatcher> matchers = new ArrayList<ArgumentMatcher>();
+    matchers.add(Any.ANY);
+    return matchers;
+  }
+
+  /**
+   * A mock whose equals() and hashCode() must not be called, like the generated ones.
+   */
+  private static class UnmockableObjectMethods {
+    @Override
+    public boolean equals(Object obj) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int hashCode() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * A mock that claims to be equal to any other object.
+   */
+  private static class EqualToEverything {
+    @Override
+    public boolean equals(Object obj) {
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Answer;
+import com.google.gwt.testing.easygwtmock.client.UndeclaredThrowableException;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+/**
+ * Tests the MocksControlBase class
+ */
+public class MocksControlBaseJavaTest extends TestCase {
+
+  private MocksControlBase ctrl;
+  private Object mock;
+  private Method method;
+
+  @Override
+  public void setUp() {
+    this.ctrl = new MocksControlBase() {};
+    this.mock = new Object();
+    Class<?>[] argumentTypes = { int.class };
+    Class<?>[] declaredThrowables = { IOException.class };
+    this.method = new Method("foo", int.class, argumentTypes, declaredThrowables);
+  }
+
+  public void testDispatch_returnsAnswer() {
+    this.ctrl.dispatch(new Call(this.mock, this.method, 1));
+    this.ctrl.expectLastCall().andReturn(42);
+    this.ctrl.replay();
+
+    assertEquals(42, this.ctrl.dispatch(new Call(this.mock, this.method, 1)));
+  }
+
+  public void testDispatch_declaredException() {
+    IOException exception = new IOException();
+    this.ctrl.dispatch(new Call(this.mock, this.method, 1));
+    this.ctrl.expectLastCall().andThrow(exception);
+    this.ctrl.replay();
+
+    try {
+      this.ctrl.dispatch(new Call(this.mock, this.method, 1));
+      fail("should have thrown exception");
+    } catch (Throwable expected) {
+      assertSame(exception, expected);
+    }
+  }
+
+  public void testDispatch_undeclaredException() {
+    final Exception exception = new Exception();
+    this.ctrl.dispatch(new Call(this.mock, this.method, 1));
+    this.ctrl.expectLastCall().andAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(Object[] args) throws Throwable {
+        throw exception;
+      }
+    });
+    this.ctrl.replay();
+
+    try {
+      this.ctrl.dispatch(new Call(this.mock, this.method, 1));
+      fail("should have thrown exception");
+    } catch (UndeclaredThrowableException expected) {
+      assertSame(exception, expected.getUndeclaredThrowable());
+    }
+  }
+
+  public void testDispatch_unexpectedCallStackTrace() {
+    this.ctrl.replay();
+
+    try {
+      this.ctrl.dispatch(new Call(this.mock, this.method, 1));
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+      StackTraceElement stackFrame = expected.getStackTrace()[0];
+      assertEquals(
+          MocksControlBaseJavaTest.class.getName() + ".testDispatch_unexpectedCallStackTrace",
+          stackFrame.getClassName() + "." + stackFrame.getMethodName());
+    }
+  }
+
+  public void testReset_stopsTrace() {
+    this.ctrl.recordTrace();
+    this.ctrl.reset();
+    this.ctrl.replay();
+
+    try {
+      this.ctrl.getTraceJson();
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Answer;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizer;
+import com.google.gwt.testing.easygwtmock.client.PayloadSizes;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the PayloadMeter class
+ */
+public class PayloadMeterJavaTest extends TestCase {
+
+  private Object mock;
+  private Method load;
+  private AsyncCallback<String> callback;
+  private PayloadMeter meter;
+
+  @Override
+  public void setUp() {
+    this.mock = new Object();
+    this.load = new Method("load", void.class,
+        new Class<?>[] {String.class, AsyncCallback.class}, new Class<?>[0]);
+    this.callback = new AsyncCallback<String>() {
+      @Override
+      public void onFailure(Throwable caught) {
+      }
+
+      @Override
+      public void onSuccess(String result) {
+      }
+    };
+    this.meter = new PayloadMeter();
+    this.meter.measure(this.mock, new CharacterSizer());
+  }
+
+  public void testMeasureRequest_withoutCallback() throws Exception {
+    this.meter.measureRequest(new Call(this.mock, this.load, "abc", this.callback));
+    this.meter.measureRequest(new Call(this.mock, this.load, "a", this.callback));
+
+    PayloadSizes.MethodSizes sizes = this.meter.snapshot().getMethod(this.mock, "load");
+    assertEquals(2, sizes.getRequestCount());
+    assertEquals(4, sizes.getTotalRequestBytes());
+    assertEquals(3, sizes.getMaxRequestBytes());
+    assertEquals(0, sizes.getResponseCount());
+  }
+
+  public void testMeasureRequest_unmeasuredMock() throws Exception {
+    this.meter.measureRequest(new Call(new Object(), this.load, "abc", this.callback));
+
+    assertTrue(this.meter.snapshot().getMethods().isEmpty());
+  }
+
+  public void testMeasureResponse() throws Throwable {
+    Call call = new Call(this.mock, this.load, "a", this.callback);
+    answer(call, AnswerFactory.forOnSuccess("abcd"));
+    answer(call, AnswerFactory.forOnSuccess("ab"));
+    answer(call, AnswerFactory.forValue("ignored"));
+
+    PayloadSizes sizes = this.meter.snapshot();
+    assertEquals(2, sizes.getMethod(this.mock, "load").getResponseCount());
+    assertEquals(6, sizes.getTotalResponseBytes());
+    assertEquals(4, sizes.getMaxResponseBytes());
+  }
+
+  public void testMeasureResponse_failureNotMeasured() throws Throwable {
+    answer(new Call(this.mock, this.load, "a", this.callback),
+        AnswerFactory.forOnFailure(new IllegalStateException()));
+
+    assertTrue(this.meter.snapshot().getMethods().isEmpty());
+  }
+
+  public void testMeasureResponse_deferredCallbackMeasuredWhenCalled() throws Throwable {
+    VirtualClock clock = new VirtualClock();
+    answer(new Call(this.mock, this.load, "a", this.callback),
+        AnswerFactory.forOnSuccessAfter(clock, 10, "abcd"));
+
+    assertTrue(this.meter.snapshot().getMethods().isEmpty());
+    clock.advance(10);
+    assertEquals(4, this.meter.snapshot().getMaxResponseBytes());
+  }
+
+  public void testMeasureResponse_keepsCallArguments() throws Throwable {
+    Call call = new Call(this.mock, this.load, "a", this.callback);
+    answer(call, AnswerFactory.forOnSuccess("abcd"));
+
+    assertSame(this.callback, call.getArgumentArray()[1]);
+  }
+
+  public void testMeasureResponse_unmeasuredMock() {
+    Answer<Object> answer = AnswerFactory.forOnSuccess("abcd");
+
+    assertSame(answer,
+        this.meter.measureResponse(new Call(new Object(), this.load, "a", this.callback), answer));
+  }
+
+  public void testMeasureRequest_sizerFails() throws Exception {
+    IllegalArgumentException failure = new IllegalArgumentException("not serializable");
+    this.meter.measure(this.mock, new FailingSizer(failure));
+
+    try {
+      this.meter.measureRequest(new Call(this.mock, this.load, "abc", this.callback));
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      AssertionError error = expected.getAssertionError();
+      assertTrue(error.getMessage(),
+          error.getMessage().contains("Cannot measure the payload of " + this.mock + ".load("));
+      assertSame(failure, error.getCause());
+    }
+  }
+
+  public void testMeasureResponse_sizerFails() throws Throwable {
+    this.meter.measure(this.mock, new FailingSizer(new IllegalArgumentException()));
+
+    try {
+      answer(new Call(this.mock, this.load, "a", this.callback),
+          AnswerFactory.forOnSuccess("abcd"));
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+      assertTrue(expected.getMessage(),
+          expected.getMessage().contains("Cannot measure the payload of"));
+    }
+  }
+
+  private void answer(Call call, Answer<Object> answer) throws Throwable {
+    this.meter.measureResponse(call, answer).answer(call.getArgumentArray());
+  }
+
+  /**
+   * Counts the characters of the string representations of the values.
+   */
+  private static class CharacterSizer implements PayloadSizer {
+    @Override
+    public int sizeOf(Object[] values) {
+      int size = 0;
+      for (Object value : values) {
+        size += String.valueOf(value).length();
+      }
+      return size;
+    }
+  }
+
+  private static class FailingSizer implements PayloadSizer {
+
+    private final RuntimeException failure;
+
+    FailingSizer(RuntimeException failure) {
+      this.failure = failure;
+    }
+
+    @Override
+    public int sizeOf(Object[] values) {
+      throw this.failure;
+    }
+  }
+}
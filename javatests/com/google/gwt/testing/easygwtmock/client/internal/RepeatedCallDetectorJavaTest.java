@@ -0,0 +1,207 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the RepeatedCallDetector class
+ */
+public class RepeatedCallDetectorJavaTest extends TestCase {
+
+  private Object mock;
+  private Method foo;
+  private Method bar;
+  private RepeatedCallDetector detector;
+
+  @Override
+  public void setUp() {
+    this.mock = new Object() {
+      @Override
+      public String toString() {
+        return "Mock for Service";
+      }
+    };
+    this.foo = new Method("foo", int.class, new Class<?>[] {int.class, String.class},
+        new Class<?>[0]);
+    this.bar = new Method("bar", int.class, new Class<?>[] {int[].class}, new Class<?>[0]);
+    this.detector = new RepeatedCallDetector(2);
+  }
+
+  public void testReport() {
+    this.detector.record(new Call(this.mock, this.foo, 1, "a"));
+    this.detector.record(new Call(this.mock, this.foo, 2, "a"));
+    this.detector.record(new Call(this.mock, this.foo, 1, "a"));
+    this.detector.record(new Call(this.mock, this.bar, new int[] {1, 2}));
+    this.detector.record(new Call(this.mock, this.bar, new int[] {1, 2}));
+    this.detector.record(new Call(this.mock, this.bar, new int[] {1, 2}));
+
+    assertEquals("\n  Repeated identical calls:"
+        + "\n    Mock for Service.foo(1, a): 2 times"
+        + "\n    Mock for Service.bar([1, 2]): 3 times\n",
+        this.detector.report());
+  }
+
+  public void testReport_noRepeatedCalls() {
+    this.detector.record(new Call(this.mock, this.foo, 1, "a"));
+    this.detector.record(new Call(this.mock, this.foo, 1, "b"));
+    this.detector.record(new Call(this.mock, this.bar, new int[] {1}));
+
+    assertEquals("", this.detector.report());
+  }
+
+  public void testReport_mocksComparedByIdentity() {
+    Object equalMock = new Object() {
+      @Override
+      public boolean equals(Object obj) {
+        return true;
+      }
+
+      @Override
+      public int hashCode() {
+        return 0;
+      }
+    };
+    Object otherEqualMock = new Object() {
+      @Override
+      public boolean equals(Object obj) {
+        return true;
+      }
+
+      @Override
+      public int hashCode() {
+        return 0;
+      }
+    };
+    this.detector.record(new Call(equalMock, this.foo, 1, "a"));
+    this.detector.record(new Call(otherEqualMock, this.foo, 1, "a"));
+
+    assertEquals("", this.detector.report());
+  }
+
+  public void testReport_unboxedArguments() {
+    for (int i = 0; i < 2; i++) {
+      Call call = Call.create(this.mock, this.foo, 2);
+      call.setArgument(0, 7);
+      call.setArgument(1, "a");
+      this.detector.record(call);
+    }
+
+    assertEquals("\n  Repeated identical calls:"
+        + "\n    Mock for Service.foo(7, a): 2 times\n",
+        this.detector.report());
+  }
+
+  public void testReport_argumentChangedAfterCall() {
+    List<String> items = new ArrayList<String>();
+    this.detector.record(new Call(this.mock, this.foo, 1, items));
+    items.add("b");
+    this.detector.record(new Call(this.mock, this.foo, 1, items));
+
+    assertEquals("", this.detector.report());
+  }
+
+  public void testReport_argumentsComparedByEquals() {
+    this.detector.record(new Call(this.mock, this.foo, 1, new Labeled("a", 1)));
+    this.detector.record(new Call(this.mock, this.foo, 1, new Labeled("a", 2)));
+    this.detector.record(new Call(this.mock, this.foo, 2, new Labeled("b", 3)));
+    this.detector.record(new Call(this.mock, this.foo, 2, new Labeled("c", 3)));
+
+    assertEquals("\n  Repeated identical calls:"
+        + "\n    Mock for Service.foo(2, b): 2 times\n",
+        this.detector.report());
+  }
+
+  public void testReport_nestedArrays() {
+    Method baz = new Method("baz", int.class, new Class<?>[] {int[][].class}, new Class<?>[0]);
+    this.detector.record(new Call(this.mock, baz, (Object) new int[][] {{1}, {2}}));
+    this.detector.record(new Call(this.mock, baz, (Object) new int[][] {{1}, {2}}));
+    this.detector.record(new Call(this.mock, baz, (Object) new int[][] {{1}, {3}}));
+
+    assertEquals("\n  Repeated identical calls:"
+        + "\n    Mock for Service.baz([[1], [2]]): 2 times\n",
+        this.detector.report());
+  }
+
+  public void testReport_anyAsyncCallbackIsIdentical() {
+    this.detector.record(new Call(this.mock, this.foo, 1, new NoOpCallback()));
+    this.detector.record(new Call(this.mock, this.foo, 1, new NoOpCallback()));
+
+    assertEquals("\n  Repeated identical calls:"
+        + "\n    Mock for Service.foo(1, <AsyncCallback>): 2 times\n",
+        this.detector.report());
+  }
+
+  public void testVerify() throws AssertionErrorWrapper {
+    this.detector.record(new Call(this.mock, this.foo, 1, "a"));
+    this.detector.record(new Call(this.mock, this.foo, 1, "a"));
+    this.detector.verify();
+
+    this.detector.record(new Call(this.mock, this.foo, 1, "a"));
+    try {
+      this.detector.verify();
+      fail("should have thrown exception");
+    } catch (AssertionErrorWrapper expected) {
+      assertEquals("\n  Identical calls made more than 2 times:"
+          + "\n    Mock for Service.foo(1, a): 3 times\n",
+          expected.getAssertionError().getMessage());
+    }
+  }
+
+  /**
+   * A value whose equality is unrelated to its string representation.
+   */
+  private static class Labeled {
+    private final String label;
+    private final int id;
+
+    Labeled(String label, int id) {
+      this.label = label;
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Labeled && ((Labeled) obj).id == this.id;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.id;
+    }
+
+    @Override
+    public String toString() {
+      return this.label;
+    }
+  }
+
+  private static class NoOpCallback implements AsyncCallback<String> {
+    @Override
+    public void onFailure(Throwable caught) {
+    }
+
+    @Override
+    public void onSuccess(String result) {
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import com.google.gwt.testing.easygwtmock.client.Answer;
+import com.google.gwt.testing.easygwtmock.client.MocksStats;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the StatsCollector class
+ */
+public class StatsCollectorJavaTest extends TestCase {
+
+  private Object mock;
+  private Method foo;
+  private Method fooOverload;
+  private Method bar;
+  private StatsCollector collector;
+
+  @Override
+  public void setUp() {
+    this.mock = new Object() {
+      @Override
+      public String toString() {
+        return "Mock for Service";
+      }
+    };
+    this.foo = new Method("foo", int.class, new Class<?>[] {int.class}, new Class<?>[0]);
+    this.fooOverload = new Method("foo", int.class, new Class<?>[] {String.class},
+        new Class<?>[0]);
+    this.bar = new Method("bar", int.class, new Class<?>[] {int.class}, new Class<?>[0]);
+    this.collector = new StatsCollector();
+  }
+
+  public void testSnapshot_matchedCountsFromExpectedCalls() {
+    ExpectedCall foo1 = expect(new Call(this.mock, this.foo, 1), new Range(0, 5));
+    ExpectedCall foo2 = expect(new Call(this.mock, this.foo, 2), new Range(0, 5));
+    foo1.invoke(new Call(this.mock, this.foo, 1));
+    foo1.invoke(new Call(this.mock, this.foo, 1));
+    foo2.invoke(new Call(this.mock, this.foo, 2));
+
+    MocksStats stats = this.collector.snapshot(Arrays.asList(foo1, foo2));
+
+    assertEquals(1, stats.getMethods().size());
+    MocksStats.MethodStats fooStats = stats.getMethod(this.mock, "foo");
+    assertEquals("foo(int)", fooStats.getSignature());
+    assertEquals(3, fooStats.getMatchedCount());
+    assertEquals(3, stats.getTotalCallCount());
+    assertTrue(stats.getUnusedExpectations().isEmpty());
+  }
+
+  public void testSnapshot_unusedExpectations() {
+    ExpectedCall foo1 = expect(new Call(this.mock, this.foo, 1), new Range(0, 5));
+    ExpectedCall bar1 = expect(new Call(this.mock, this.bar, 1), new Range(0, 5));
+    foo1.invoke(new Call(this.mock, this.foo, 1));
+
+    MocksStats stats = this.collector.snapshot(Arrays.asList(foo1, bar1));
+
+    assertEquals(Arrays.asList("Mock for Service.bar(1)"), stats.getUnusedExpectations());
+    assertEquals(0, stats.getMethod(this.mock, "bar").getCallCount());
+  }
+
+  public void testSnapshot_unexpectedAndNiceDefaults() {
+    this.collector.countUnexpected(new Call(this.mock, this.foo, 1));
+    this.collector.countNiceDefault(new Call(this.mock, this.bar, 1));
+    this.collector.countNiceDefault(new Call(this.mock, this.bar, 2));
+
+    MocksStats stats = this.collector.snapshot(new ArrayList<ExpectedCall>());
+
+    assertEquals(1, stats.getMethod(this.mock, "foo").getUnexpectedCount());
+    assertEquals(2, stats.getMethod(this.mock, "bar").getNiceDefaultCount());
+    assertEquals(3, stats.getCallCount(this.mock));
+  }
+
+  public void testSnapshot_overloadsSeparated() {
+    this.collector.countUnexpected(new Call(this.mock, this.foo, 1));
+    this.collector.countUnexpected(new Call(this.mock, this.fooOverload, "a"));
+
+    List<MocksStats.MethodStats> methods =
+        this.collector.snapshot(new ArrayList<ExpectedCall>()).getMethods();
+
+    assertEquals(2, methods.size());
+    assertEquals("foo(int)", methods.get(0).getSignature());
+    assertEquals("foo(String)", methods.get(1).getSignature());
+  }
+
+  public void testSnapshot_mocksComparedByIdentity() {
+    Object equalMock = new EqualToEverything();
+    Object otherEqualMock = new EqualToEverything();
+    this.collector.countUnexpected(new Call(equalMock, this.foo, 1));
+    this.collector.countUnexpected(new Call(otherEqualMock, this.foo, 1));
+
+    MocksStats stats = this.collector.snapshot(new ArrayList<ExpectedCall>());
+
+    assertEquals(2, stats.getMethods().size());
+    assertEquals(1, stats.getCallCount(equalMock));
+    assertEquals(1, stats.getCallCount(otherEqualMock));
+  }
+
+  public void testTime() throws Throwable {
+    Answer<Object> answer = this.collector.time(new Call(this.mock, this.foo, 1),
+        new Answer<Object>() {
+          @Override
+          public Object answer(Object[] args) throws Throwable {
+            Thread.sleep(20);
+            return 7;
+          }
+        });
+
+    assertEquals(7, answer.answer(new Object[] {1}));
+
+    MocksStats.MethodStats fooStats =
+        this.collector.snapshot(new ArrayList<ExpectedCall>()).getMethod(this.mock, "foo");
+    assertTrue("answerNanos: " + fooStats.getAnswerNanos(),
+        fooStats.getAnswerNanos() >= 15 * 1000 * 1000);
+  }
+
+  public void testTime_throwingAnswer() throws Throwable {
+    Answer<Object> answer = this.collector.time(new Call(this.mock, this.foo, 1),
+        AnswerFactory.forThrowable(new IllegalStateException()));
+
+    try {
+      answer.answer(new Object[] {1});
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+    }
+    assertNotNull(
+        this.collector.snapshot(new ArrayList<ExpectedCall>()).getMethod(this.mock, "foo"));
+  }
+
+  private ExpectedCall expect(Call call, Range range) {
+    return new ExpectedCall(call, ExpectedCallJavaTest.createMatchersFor(call), null,
+        AnswerFactory.forValue(0), range);
+  }
+
+  private static class EqualToEverything {
+    @Override
+    public boolean equals(Object obj) {
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+  }
+}
@@ -53,4 +53,8 @@ public class UtilsJavaTest extends TestCase {
     Utils.appendArgumentTo(stringArray, buffer);
     assertEquals("[Hallo, Hi]", buffer.toString());
   }
+  
+  public void testToJsonString() {
+    assertEquals("\"a\\\\b\\\"c\\n\\u0001\"", Utils.toJsonString("a\\b\"c\n\u0001"));
+  }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the VirtualClock class
+ */
+public class VirtualClockJavaTest extends TestCase {
+
+  private VirtualClock clock;
+  private List<String> log;
+
+  @Override
+  public void setUp() {
+    this.clock = new VirtualClock();
+    this.log = new ArrayList<String>();
+  }
+
+  public void testAdvance_runsDueTasksInOrder() {
+    this.clock.schedule(30, new LogTask("c"));
+    this.clock.schedule(10, new LogTask("a"));
+    this.clock.schedule(20, new LogTask("b"));
+
+    this.clock.advance(5);
+    assertEquals(0, this.log.size());
+    assertEquals(5, this.clock.now());
+
+    this.clock.advance(15);
+    assertEquals("[a@10, b@20]", this.log.toString());
+    assertEquals(20, this.clock.now());
+    assertEquals(1, this.clock.getScheduledCount());
+
+    this.clock.advance(100);
+    assertEquals("[a@10, b@20, c@30]", this.log.toString());
+    assertEquals(120, this.clock.now());
+    assertEquals(0, this.clock.getScheduledCount());
+  }
+
+  public void testAdvance_sameDueTimeInScheduleOrder() {
+    this.clock.schedule(10, new LogTask("a"));
+    this.clock.schedule(10, new LogTask("b"));
+    this.clock.schedule(0, new LogTask("c"));
+    this.clock.schedule(10, new LogTask("d"));
+
+    this.clock.advance(10);
+    assertEquals("[c@0, a@10, b@10, d@10]", this.log.toString());
+  }
+
+  public void testAdvance_delayIsRelativeToNow() {
+    this.clock.advance(50);
+    this.clock.schedule(10, new LogTask("a"));
+
+    this.clock.advance(9);
+    assertEquals(0, this.log.size());
+    this.clock.advance(1);
+    assertEquals("[a@60]", this.log.toString());
+  }
+
+  public void testAdvance_runsTasksScheduledByTasks() {
+    this.clock.schedule(10, new Runnable() {
+      @Override
+      public void run() {
+        log.add("a@" + clock.now());
+        clock.schedule(5, new LogTask("b"));
+        clock.schedule(50, new LogTask("c"));
+      }
+    });
+
+    this.clock.advance(20);
+    assertEquals("[a@10, b@15]", this.log.toString());
+    assertEquals(20, this.clock.now());
+    assertEquals(1, this.clock.getScheduledCount());
+  }
+
+  public void testFlush() {
+    this.clock.schedule(10, new Runnable() {
+      @Override
+      public void run() {
+        log.add("a@" + clock.now());
+        clock.schedule(1000, new LogTask("b"));
+      }
+    });
+    this.clock.schedule(5, new LogTask("c"));
+
+    this.clock.flush();
+    assertEquals("[c@5, a@10, b@1010]", this.log.toString());
+    assertEquals(1010, this.clock.now());
+    assertEquals(0, this.clock.getScheduledCount());
+  }
+
+  private class LogTask implements Runnable {
+
+    private final String name;
+
+    LogTask(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void run() {
+      log.add(this.name + "@" + clock.now());
+    }
+  }
+}
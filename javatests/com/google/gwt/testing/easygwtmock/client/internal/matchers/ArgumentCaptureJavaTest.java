@@ -43,11 +43,10 @@ public class ArgumentCaptureJavaTest extends TestCase {
   
   public void testCaptureArgument() {
     argumentCapture.matches(10);
-    argumentCapture.matches(20);
     
-    assertFalse("should not have captured", capture.hasCaptured());
+    assertFalse("matching should not capture", capture.hasCaptured());
     
-    argumentCapture.captureArgument();
+    argumentCapture.captureArgument(20);
     
     assertTrue("should have captured", capture.hasCaptured());
     assertEquals(1, capture.getValues().size());
@@ -59,15 +58,13 @@ public class ArgumentCaptureJavaTest extends TestCase {
     argumentCapture.appendTo(buffer);
     assertEquals("captured(<nothing>)", buffer.toString());
     
-    argumentCapture.matches(20);
-    argumentCapture.captureArgument();
+    argumentCapture.captureArgument(20);
     
     buffer = new StringBuffer();
     argumentCapture.appendTo(buffer);
     assertEquals("captured(20)", buffer.toString());
     
-    argumentCapture.matches(30);
-    argumentCapture.captureArgument();
+    argumentCapture.captureArgument(30);
     
     buffer = new StringBuffer();
     argumentCapture.appendTo(buffer);
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.client.internal.matchers;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the Equals class
+ */
+public class EqualsJavaTest extends TestCase {
+
+  public void testMatches() {
+    assertTrue(new Equals(null).matches(null));
+    assertFalse(new Equals(null).matches("Hallo"));
+    assertTrue(new Equals("Hallo").matches("Hallo"));
+    assertFalse(new Equals("Hallo").matches(null));
+    assertTrue(new Equals(23).matches(23));
+    assertFalse(new Equals(23).matches(23L));
+  }
+
+  public void testMatchesPrimitive() {
+    assertTrue(new Equals(23).matchesPrimitive(int.class, 23));
+    assertFalse(new Equals(23).matchesPrimitive(int.class, 24));
+    assertFalse(new Equals(23).matchesPrimitive(short.class, 23));
+    assertFalse(new Equals("23").matchesPrimitive(int.class, 23));
+    assertTrue(new Equals(true).matchesPrimitive(boolean.class, 1));
+    assertFalse(new Equals(true).matchesPrimitive(boolean.class, 0));
+    assertTrue(new Equals('a').matchesPrimitive(char.class, 'a'));
+    assertTrue(new Equals((byte) -1).matchesPrimitive(byte.class, -1));
+    assertTrue(new Equals(1.5f).matchesPrimitive(float.class, 1.5f));
+    assertFalse(new Equals(1.5f).matchesPrimitive(double.class, 1.5));
+  }
+
+  public void testMatchesPrimitive_sameAsBoxedEquals() {
+    double[] values = { 0.0, -0.0, Double.NaN, 1.0, Double.POSITIVE_INFINITY };
+    for (double expected : values) {
+      for (double actual : values) {
+        assertEquals(Double.valueOf(expected).equals(actual),
+            new Equals(expected).matchesPrimitive(double.class, actual));
+        assertEquals(Float.valueOf((float) expected).equals((float) actual),
+            new Equals((float) expected).matchesPrimitive(float.class, (float) actual));
+      }
+    }
+  }
+
+  public void testMatchesLong() {
+    assertTrue(new Equals(Long.MAX_VALUE).matchesLong(Long.MAX_VALUE));
+    assertFalse(new Equals(Long.MAX_VALUE).matchesLong(Long.MAX_VALUE - 1));
+    assertFalse(new Equals(23).matchesLong(23));
+  }
+
+  public void testAppend() {
+    StringBuffer buffer = new StringBuffer();
+    new Equals(23).appendTo(buffer);
+    assertEquals("23", buffer.toString());
+  }
+}
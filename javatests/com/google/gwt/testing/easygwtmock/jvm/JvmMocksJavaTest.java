@@ -0,0 +1,227 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.jvm;
+
+import com.google.gwt.testing.easygwtmock.client.Concurrent;
+import com.google.gwt.testing.easygwtmock.client.MocksControl;
+import com.google.gwt.testing.easygwtmock.client.Nice;
+import com.google.gwt.testing.easygwtmock.client.StrictOrder;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Scanner;
+
+/**
+ * Tests controls built from dynamic proxies
+ */
+public class JvmMocksJavaTest extends TestCase {
+
+  interface Service {
+    int count(String name, int... ids);
+    String load(long id) throws IOException;
+    void store(byte[] data);
+  }
+
+  interface MyControl extends MocksControl {
+    Service getMock();
+    @Nice Service getNiceMock();
+  }
+
+  @StrictOrder
+  interface MyStrictControl extends MocksControl {
+    Service getMock();
+  }
+
+  @Concurrent
+  interface MyConcurrentControl extends MocksControl {
+    Service getMock();
+  }
+
+  interface ClassControl extends MocksControl {
+    StringBuilder getMock();
+  }
+
+  interface ParameterControl extends MocksControl {
+    Service getMock(int id);
+  }
+
+  interface ReservedControl extends MocksControl {
+    Service replay(int id);
+  }
+
+  public void testCreateProxy() throws IOException {
+    MyControl ctrl = JvmMocks.createProxy(MyControl.class);
+    Service mock = ctrl.getMock();
+
+    ctrl.expect(mock.count("a", 1, 2)).andReturn(3);
+    ctrl.expect(mock.load(4L)).andReturn("four");
+    mock.store(ctrl.<byte[]>anyObject());
+    ctrl.replay();
+
+    assertEquals(3, mock.count("a", 1, 2));
+    assertEquals("four", mock.load(4L));
+    mock.store(new byte[] {1});
+    ctrl.verify();
+  }
+
+  public void testCreateProxy_unexpectedCall() {
+    MyControl ctrl = JvmMocks.createProxy(MyControl.class);
+    Service mock = ctrl.getMock();
+
+    ctrl.expect(mock.count("a", 1)).andReturn(3);
+    ctrl.replay();
+
+    try {
+      mock.count("a", 2);
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+  }
+
+  public void testCreateProxy_niceMock() throws IOException {
+    MyControl ctrl = JvmMocks.createProxy(MyControl.class);
+    Service mock = ctrl.getNiceMock();
+    ctrl.replay();
+
+    assertEquals(0, mock.count("a"));
+    assertNull(mock.load(1L));
+    ctrl.verify();
+  }
+
+  public void testCreateProxy_strictOrder() {
+    MyStrictControl ctrl = JvmMocks.createProxy(MyStrictControl.class);
+    Service mock = ctrl.getMock();
+
+    ctrl.expect(mock.count("a")).andReturn(1);
+    ctrl.expect(mock.count("b")).andReturn(2);
+    ctrl.replay();
+
+    try {
+      mock.count("b");
+      fail("should have thrown exception");
+    } catch (AssertionError expected) {
+    }
+  }
+
+  public void testCreateProxy_concurrent() throws InterruptedException {
+    MyConcurrentControl ctrl = JvmMocks.createProxy(MyConcurrentControl.class);
+    final Service mock = ctrl.getMock();
+
+    ctrl.expect(mock.count("a")).andReturn(1).times(400);
+    ctrl.replay();
+
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 100; j++) {
+            mock.count("a");
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    ctrl.verify();
+  }
+
+  public void testCreateProxy_throwables() throws IOException {
+    MyControl ctrl = JvmMocks.createProxy(MyControl.class);
+    Service mock = ctrl.getMock();
+    IOException declared = new IOException();
+    IllegalStateException unchecked = new IllegalStateException();
+
+    ctrl.expect(mock.load(1L)).andThrow(declared);
+    ctrl.expect(mock.count("a")).andThrow(unchecked);
+    ctrl.replay();
+
+    try {
+      mock.load(1L);
+      fail("should have thrown exception");
+    } catch (IOException expected) {
+      assertSame(declared, expected);
+    }
+    try {
+      mock.count("a");
+      fail("should have thrown exception");
+    } catch (IllegalStateException expected) {
+      assertSame(unchecked, expected);
+    }
+  }
+
+  public void testCreateProxy_objectMethods() {
+    MyControl ctrl = JvmMocks.createProxy(MyControl.class);
+    Service mock = ctrl.getMock();
+
+    assertTrue(mock.equals(mock));
+    assertFalse(mock.equals(ctrl.getMock()));
+    assertEquals(System.identityHashCode(mock), mock.hashCode());
+    assertEquals("Mock for JvmMocksJavaTest.Service", mock.toString());
+    assertTrue(ctrl.equals(ctrl));
+  }
+
+  public void testCreateProxy_class() {
+    try {
+      JvmMocks.createProxy(ClassControl.class);
+      fail("should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testCreateProxy_parameters() {
+    try {
+      JvmMocks.createProxy(ParameterControl.class);
+      fail("should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testCreateProxy_reservedName() {
+    try {
+      JvmMocks.createProxy(ReservedControl.class);
+      fail("should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testWriteTrace() throws IOException {
+    MyControl ctrl = JvmMocks.createProxy(MyControl.class);
+    Service mock = ctrl.getMock();
+    ctrl.recordTrace();
+    ctrl.expect(mock.count("a")).andReturn(3);
+    ctrl.replay();
+    mock.count("a");
+
+    File file = File.createTempFile("trace", ".json");
+    try {
+      JvmMocks.writeTrace(ctrl, file);
+      Scanner scanner = new Scanner(file, "UTF-8");
+      String json = scanner.useDelimiter("\\A").next();
+      scanner.close();
+      assertEquals(ctrl.getTraceJson(), json);
+      assertTrue(json, json.contains(".count(a)\",\"expectation\":\"count(a)\""));
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.jvm;
+
+import com.google.gwt.testing.easygwtmock.client.internal.MocksControlBase;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+/**
+ * Tests the MockInvocationHandler class
+ */
+public class MockInvocationHandlerJavaTest extends TestCase {
+
+  public interface Service {
+    String load(int id);
+  }
+
+  public void testCreateMock_doesNotKeepInterfaceLoaded() throws Exception {
+    WeakReference<ClassLoader> loader = callMockOfSeparatelyLoadedInterface();
+
+    for (int i = 0; i < 10 && loader.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull("the class loader of the mocked interface is still reachable", loader.get());
+  }
+
+  /**
+   * Loads {@link Service} with a class loader of its own, records a call to a mock of it and
+   * drops the mock.
+   */
+  private static WeakReference<ClassLoader> callMockOfSeparatelyLoadedInterface()
+      throws Exception {
+    ClassLoader loader = new IsolatingClassLoader(Service.class.getName());
+    Class<?> serviceClass = loader.loadClass(Service.class.getName());
+    assertNotSame(Service.class, serviceClass);
+
+    MocksControlBase ctrl = new MocksControlBase() {};
+    Object mock = MockInvocationHandler.createMock(serviceClass, ctrl);
+    serviceClass.getMethod("load", int.class).invoke(mock, 1);
+    return new WeakReference<ClassLoader>(loader);
+  }
+
+  /**
+   * Loads one class itself instead of asking its parent.
+   */
+  private static class IsolatingClassLoader extends ClassLoader {
+
+    private final String isolatedName;
+
+    IsolatingClassLoader(String isolatedName) {
+      super(MockInvocationHandlerJavaTest.class.getClassLoader());
+      this.isolatedName = isolatedName;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.equals(this.isolatedName)) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (this) {
+        Class<?> loaded = findLoadedClass(name);
+        if (loaded == null) {
+          byte[] bytes = readClassFile(name);
+          loaded = defineClass(name, bytes, 0, bytes.length);
+        }
+        return loaded;
+      }
+    }
+
+    private byte[] readClassFile(String name) throws ClassNotFoundException {
+      InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+      if (in == null) {
+        throw new ClassNotFoundException(name);
+      }
+      try {
+        try {
+          ByteArrayOutputStream content = new ByteArrayOutputStream();
+          byte[] buffer = new byte[8192];
+          int read;
+          while ((read = in.read(buffer)) != -1) {
+            content.write(buffer, 0, read);
+          }
+          return content.toByteArray();
+        } finally {
+          in.close();
+        }
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests the MockSourceCache class
+ */
+public class MockSourceCacheJavaTest extends TestCase {
+
+  private File directory;
+
+  @Override
+  public void setUp() throws IOException {
+    this.directory = File.createTempFile("mockSourceCache", "");
+    this.directory.delete();
+  }
+
+  @Override
+  public void tearDown() {
+    File[] files = this.directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    this.directory.delete();
+  }
+
+  public void testGet_missing() {
+    MockSourceCache cache = new MockSourceCache(this.directory, 10);
+
+    assertNull(cache.get("abc"));
+  }
+
+  public void testPutAndGet() {
+    new MockSourceCache(this.directory, 10).put("abc", "class A {}\n");
+
+    assertEquals("class A {}\n", new MockSourceCache(this.directory, 10).get("abc"));
+    assertEquals(1, this.directory.list().length);
+  }
+
+  public void testPut_evictsLeastRecentlyUsed() {
+    MockSourceCache cache = new MockSourceCache(this.directory, 2);
+    cache.put("first", "1");
+    cache.put("second", "2");
+    new File(this.directory, "first.java").setLastModified(1000000);
+    new File(this.directory, "second.java").setLastModified(2000000);
+    cache.get("first");
+
+    cache.put("third", "3");
+
+    assertEquals("1", cache.get("first"));
+    assertNull(cache.get("second"));
+    assertEquals("3", cache.get("third"));
+  }
+
+  public void testPut_listsDirectoryOnlyWhenFull() throws IOException {
+    MockSourceCache cache = new MockSourceCache(this.directory, 3);
+    cache.put("first", "1");
+    // written by another compile, not noticed until the directory is listed again
+    new File(this.directory, "other1.java").createNewFile();
+    new File(this.directory, "other2.java").createNewFile();
+    new File(this.directory, "other3.java").createNewFile();
+
+    cache.put("second", "2");
+    cache.put("third", "3");
+    assertEquals(6, this.directory.list().length);
+
+    cache.put("fourth", "4");
+    assertEquals(3, this.directory.list().length);
+  }
+
+  public void testPut_deletesStaleTempFiles() throws IOException {
+    this.directory.mkdirs();
+    File stale = new File(this.directory, "interrupted.tmp");
+    stale.createNewFile();
+    stale.setLastModified(
+        System.currentTimeMillis() - MockSourceCache.STALE_TEMP_MILLIS - 1000);
+    File writing = new File(this.directory, "writing.tmp");
+    writing.createNewFile();
+
+    new MockSourceCache(this.directory, 10).put("abc", "class A {}\n");
+
+    assertFalse(stale.exists());
+    assertTrue(writing.exists());
+  }
+
+  public void testPut_evictsTenthOfEntries() {
+    MockSourceCache cache = new MockSourceCache(this.directory, 20);
+    for (int i = 0; i < 21; i++) {
+      cache.put("entry" + i, "source");
+    }
+
+    assertEquals(18, this.directory.list().length);
+  }
+
+  public void testFromSystemProperties_shared() {
+    String old = System.getProperty(MockSourceCache.DIRECTORY_PROPERTY);
+    System.setProperty(MockSourceCache.DIRECTORY_PROPERTY, this.directory.getPath());
+    try {
+      assertSame(MockSourceCache.fromSystemProperties(), MockSourceCache.fromSystemProperties());
+    } finally {
+      if (old != null) {
+        System.setProperty(MockSourceCache.DIRECTORY_PROPERTY, old);
+      } else {
+        System.clearProperty(MockSourceCache.DIRECTORY_PROPERTY);
+      }
+    }
+  }
+
+  public void testFromSystemProperties_disabledByDefault() {
+    String old = System.getProperty(MockSourceCache.DIRECTORY_PROPERTY);
+    System.clearProperty(MockSourceCache.DIRECTORY_PROPERTY);
+    try {
+      assertNull(MockSourceCache.fromSystemProperties());
+    } finally {
+      if (old != null) {
+        System.setProperty(MockSourceCache.DIRECTORY_PROPERTY, old);
+      }
+    }
+  }
+}
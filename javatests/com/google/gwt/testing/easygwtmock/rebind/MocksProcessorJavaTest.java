@@ -0,0 +1,235 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.testing.easygwtmock.rebind;
+
+import com.google.gwt.testing.easygwtmock.client.MocksControl;
+import com.google.gwt.testing.easygwtmock.client.internal.Method;
+import com.google.gwt.testing.easygwtmock.jvm.JvmMocks;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Tests the MocksProcessor class by compiling sample controls with it
+ */
+public class MocksProcessorJavaTest extends TestCase {
+
+  private File directory;
+  private DiagnosticCollector<JavaFileObject> diagnostics;
+
+  @Override
+  public void setUp() throws IOException {
+    this.directory = File.createTempFile("mocksProcessor", "");
+    this.directory.delete();
+    new File(this.directory, "sample").mkdirs();
+    this.diagnostics = new DiagnosticCollector<JavaFileObject>();
+  }
+
+  @Override
+  public void tearDown() {
+    delete(this.directory);
+  }
+
+  public void testProcess_generatesControlAndMocks() throws Exception {
+    assertTrue(compile(
+        "package sample;",
+        "public interface Service<T> {",
+        "  T get(long id) throws java.io.IOException;",
+        "  int count(String... names);",
+        "}"));
+    assertTrue(compile(
+        "package sample;",
+        "public class Tests {",
+        "  public interface Control extends com.google.gwt.testing.easygwtmock.client.MocksControl {",
+        "    Service<String> service();",
+        "    @com.google.gwt.testing.easygwtmock.client.Nice Service<Integer> niceService();",
+        "    Counter counter(int start);",
+        "  }",
+        "  public static class Counter {",
+        "    public Counter(int start) {}",
+        "    public int next() { return 0; }",
+        "  }",
+        "}"));
+
+    assertTrue(new File(this.directory, "sample/Tests_ControlImpl.java").exists());
+    assertTrue(new File(this.directory, "sample/Tests_ControlImpl.class").exists());
+    assertTrue(new File(this.directory, "sample/Tests_CounterMock.class").exists());
+    assertEquals(2, new File(this.directory, "sample").list(new java.io.FilenameFilter() {
+      public boolean accept(File dir, String name) {
+        return name.matches("ServiceMock[0-9a-f]+\\.class");
+      }
+    }).length);
+  }
+
+  public void testProcess_methodDeclaredByUnrelatedInterfaces() throws Exception {
+    assertTrue(compile(
+        "package sample;",
+        "public class Tests {",
+        "  public interface A { void foo(); Object bar(); }",
+        "  public interface B { void foo(); String bar(); }",
+        "  public interface C extends A, B {}",
+        "  public interface Control extends com.google.gwt.testing.easygwtmock.client.MocksControl,",
+        "      ControlA, ControlB {",
+        "  }",
+        "  public interface ControlA { C c(); }",
+        "  public interface ControlB { C c(); }",
+        "}"));
+
+    assertTrue(new File(this.directory, "sample/Tests_ControlImpl.class").exists());
+  }
+
+  public void testProcess_generatesResolvedMethods() throws Exception {
+    assertTrue(compile(
+        "package sample;",
+        "public interface Control extends com.google.gwt.testing.easygwtmock.client.MocksControl {",
+        "  Service service();",
+        "  public interface Service {",
+        "    String load(int id) throws java.io.IOException, InterruptedException;",
+        "    long count();",
+        "    void save(String item);",
+        "  }",
+        "}"));
+
+    ClassLoader loader = new URLClassLoader(new URL[] {this.directory.toURI().toURL()},
+        getClass().getClassLoader());
+    java.lang.reflect.Field field =
+        loader.loadClass("sample.Control_ServiceMock").getDeclaredField("methods");
+    field.setAccessible(true);
+    Method[] methods = (Method[]) field.get(null);
+    Method load = methods[0];
+    Method count = methods[1];
+    Method save = methods[2];
+
+    assertEquals("load", load.getName());
+    assertNull(load.getDefaultReturnValue());
+    assertFalse(load.isReturnValuePrimitive());
+    assertTrue(load.canThrow(new java.io.FileNotFoundException()));
+    assertTrue(load.canThrow(new InterruptedException()));
+    assertFalse(load.canThrow(new Exception()));
+    assertEquals(0L, count.getDefaultReturnValue());
+    assertTrue(count.isReturnValuePrimitive());
+    assertFalse(count.canThrow(new java.io.IOException()));
+    assertTrue(save.isReturnValueVoid());
+  }
+
+  public void testProcess_reportsErrors() throws Exception {
+    assertFalse(compile(
+        "package sample;",
+        "public interface Control extends com.google.gwt.testing.easygwtmock.client.MocksControl {",
+        "  int notAType();",
+        "  Runnable withParameters(int x);",
+        "  void replay(int x);",
+        "}"));
+
+    assertEquals(3, countErrors());
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testCreate() throws Exception {
+    assertTrue(compile(
+        "package sample;",
+        "public interface Control extends com.google.gwt.testing.easygwtmock.client.MocksControl {",
+        "  Runnable runnable();",
+        "}"));
+
+    ClassLoader loader = new URLClassLoader(new URL[] {this.directory.toURI().toURL()},
+        getClass().getClassLoader());
+    Class<? extends MocksControl> controlInterface =
+        (Class<? extends MocksControl>) loader.loadClass("sample.Control");
+    MocksControl ctrl = JvmMocks.create(controlInterface);
+    Runnable mock = (Runnable) controlInterface.getMethod("runnable").invoke(ctrl);
+
+    mock.run();
+    ctrl.replay();
+    mock.run();
+    ctrl.verify();
+  }
+
+  public void testCreate_notGenerated() {
+    try {
+      JvmMocks.create(MocksControl.class);
+      fail("should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  /**
+   * Compiles the source file given by {@code lines} into the temporary directory with the
+   * MocksProcessor enabled. Returns true if compilation succeeded.
+   */
+  private boolean compile(String... lines) throws IOException {
+    String packageName = "sample";
+    String typeName = lines[1].replaceAll("^public \\w+ (\\w+).*$", "$1");
+    File source = new File(new File(this.directory, packageName), typeName + ".java");
+    FileWriter writer = new FileWriter(source);
+    try {
+      for (String line : lines) {
+        writer.write(line);
+        writer.write('\n');
+      }
+    } finally {
+      writer.close();
+    }
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+    List<String> options = Arrays.asList(
+        "-classpath", System.getProperty("java.class.path") + File.pathSeparator + this.directory,
+        "-processor", MocksProcessor.class.getName(),
+        "-d", this.directory.getPath(), "-s", this.directory.getPath());
+    try {
+      return compiler.getTask(null, fileManager, this.diagnostics, options, null,
+          fileManager.getJavaFileObjects(source)).call();
+    } finally {
+      fileManager.close();
+    }
+  }
+
+  private int countErrors() {
+    int errors = 0;
+    for (Diagnostic<? extends JavaFileObject> diagnostic : this.diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors++;
+      }
+    }
+    return errors;
+  }
+
+  private void delete(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File child : files) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}